@@ -4,17 +4,36 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import com.cardio_generator.clock.ScaledClock;
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.clock.VirtualClock;
 import com.cardio_generator.generators.AlertGenerator;
 
 import com.cardio_generator.generators.BloodPressureDataGenerator;
 import com.cardio_generator.generators.BloodSaturationDataGenerator;
 import com.cardio_generator.generators.BloodLevelsDataGenerator;
 import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.HighRateECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.PatientRange;
+import com.cardio_generator.generators.RandomStreams;
+import com.cardio_generator.outputs.BackpressurePolicy;
+import com.cardio_generator.outputs.BinaryFileOutputStrategy;
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.CompositeOutputStrategy;
 import com.cardio_generator.outputs.ConsoleOutputStrategy;
+import com.cardio_generator.outputs.FileOutputOptions;
 import com.cardio_generator.outputs.FileOutputStrategy;
 import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.RingBufferOutputStrategy;
 import com.cardio_generator.outputs.TcpOutputStrategy;
+import com.cardio_generator.outputs.UdpOutputStrategy;
 import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.cardio_generator.scheduling.BatchedTickScheduler;
+import com.cardio_generator.scheduling.FixedRateTaskScheduler;
+import com.cardio_generator.scheduling.PatientTaskScheduler;
+import com.cardio_generator.scheduling.VirtualThreadTaskScheduler;
+import com.cardio_generator.scheduling.VirtualTimeScheduler;
 
 import java.util.Collections;
 import java.util.List;
@@ -24,6 +43,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * The {@code HealthDataSimulator} class serves as the entry point for the health data simulation.
@@ -45,10 +66,37 @@ import java.util.ArrayList;
 public class HealthDataSimulator {
 
     private static volatile HealthDataSimulator instance;
+    private static final int DEFAULT_LANE_CAPACITY = 65536; // Records buffered per output with several outputs
     private static int patientCount = 50; // Default number of patients
-    private static ScheduledExecutorService scheduler;
-    private static OutputStrategy outputStrategy = new ConsoleOutputStrategy(); // Default output strategy
-    private static final Random random = new Random();
+    private static PatientRange patientRange; // Patients of this process, all patients if null
+    private static int shardIndex;
+    private static int shardCount; // 0 = not sharded
+    private static List<String> mergedShards = new ArrayList<>(); // host:port of shards to merge
+    private static String executorMode = "platform"; // Default scheduling mode
+    private static boolean executorSelected; // --executor was given
+    private static PatientTaskScheduler scheduler;
+    private static OutputStrategy outputStrategy; // Console unless --output is given
+    private static int consoleSampleEvery = 1;
+    private static String udpInterface; // null = default interface of the system
+    private static List<String> outputArgs = new ArrayList<>(); // All --output values
+    private static Map<String, OutputStrategy> outputs = new LinkedHashMap<>();
+    private static FileOutputOptions fileOutputOptions = new FileOutputOptions();
+    private static int tcpClientBufferBytes = TcpOutputStrategy.DEFAULT_CLIENT_BUFFER_BYTES;
+    private static TcpOutputStrategy.SlowClientPolicy slowClientPolicy = TcpOutputStrategy.SlowClientPolicy.DROP;
+    private static TcpOutputStrategy.Format tcpFormat = TcpOutputStrategy.Format.TEXT;
+    private static int frameBytes = TcpOutputStrategy.DEFAULT_FRAME_BYTES;
+    private static WebSocketOutputStrategy.Format webSocketFormat = WebSocketOutputStrategy.Format.TEXT;
+    private static long seed = RandomStreams.randomSeed(); // Random unless --seed is given
+    private static boolean seeded; // --seed given: runs in virtual time start at SEEDED_START_MILLIS
+    private static final long SEEDED_START_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static Random random;
+    private static double speed = 1; // Simulated time per wall-clock time, infinite for --speed max
+    private static long durationMillis; // Simulated time to run for, 0 = until stopped
+    private static int ecgSampleRate; // Samples per second of the high-rate ECG, 0 = one sample per second
+    private static SimulationClock clock;
+    private static int ringBufferCapacity; // 0 = generators write to the output directly
+    private static BackpressurePolicy backpressurePolicy; // null = block, or drop-oldest for live outputs of several
+    private static final long DROP_REPORT_MILLIS = 10_000; // How often lanes that dropped records are reported
 
     public static HealthDataSimulator getInstance() {
         if (instance == null) {
@@ -64,17 +112,49 @@ public class HealthDataSimulator {
      *
      * @param args the command-line arguments used to configure the simulation.
      * @throws IOException if an I/O error occurs during argument parsing or directory creation.
+     * @throws InterruptedException if the main thread is interrupted while running the simulation.
      */
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
 
         parseArguments(args);
+        createOutputs();
+        wrapOutputStrategy();
 
-        scheduler = Executors.newScheduledThreadPool(patientCount * 4);
+        if (!mergedShards.isEmpty()) {
+            startShardMerger();
+            return;
+        }
+
+        random = new Random(seed);
+        clock = createClock();
+        if (shardCount > 0) {
+            try {
+                patientRange = PatientRange.shard(patientCount, shardIndex, shardCount);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                System.exit(1);
+            }
+        } else if (patientRange == null) {
+            patientRange = new PatientRange(1, patientCount);
+        }
 
-        List<Integer> patientIds = initializePatientIds(patientCount);
-        Collections.shuffle(patientIds); // Randomize the order of patient IDs
+        scheduler = createScheduler();
+
+        List<Integer> patientIds = initializePatientIds(patientRange);
+        Collections.shuffle(patientIds, random); // Randomize the order of patient IDs
 
         scheduleTasksForPatients(patientIds);
+
+        if (scheduler instanceof VirtualTimeScheduler) {
+            // Virtual time: generate as fast as the output absorbs the data
+            ((VirtualTimeScheduler) scheduler).run(durationMillis);
+        } else if (durationMillis > 0) {
+            Thread.sleep((long) (durationMillis / speed));
+        } else {
+            return; // Run until the process is stopped
+        }
+        scheduler.shutdown();
+        System.exit(0);
     }
 
     /**
@@ -104,37 +184,250 @@ public class HealthDataSimulator {
                     break;
                 case "--output":
                     if (i + 1 < args.length) {
-                        String outputArg = args[++i];
-                        if (outputArg.equals("console")) {
-                            outputStrategy = new ConsoleOutputStrategy();
-                        } else if (outputArg.startsWith("file:")) {
-                            String baseDirectory = outputArg.substring(5);
-                            Path outputPath = Paths.get(baseDirectory);
-                            if (!Files.exists(outputPath)) {
-                                Files.createDirectories(outputPath);
+                        outputArgs.add(args[++i]); // Created once all options are known
+                    }
+                    break;
+                case "--flush-bytes":
+                    if (i + 1 < args.length) {
+                        try {
+                            fileOutputOptions.flushBytes(Integer.parseInt(args[++i]));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid flush size. Using the default.");
+                        }
+                    }
+                    break;
+                case "--flush-interval":
+                    if (i + 1 < args.length) {
+                        try {
+                            fileOutputOptions.flushIntervalMillis(Long.parseLong(args[++i]));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid flush interval. Using the default.");
+                        }
+                    }
+                    break;
+                case "--tcp-buffer":
+                    if (i + 1 < args.length) {
+                        String sizeArg = args[++i];
+                        try {
+                            long size = parseSize(sizeArg);
+                            if (size > Integer.MAX_VALUE) {
+                                throw new IllegalArgumentException("Buffer too large: " + sizeArg);
                             }
-                            outputStrategy = new FileOutputStrategy(baseDirectory);
-                        } else if (outputArg.startsWith("websocket:")) {
-                            try {
-                                int port = Integer.parseInt(outputArg.substring(10));
-                                // Initialize your WebSocket output strategy here
-                                outputStrategy = new WebSocketOutputStrategy(port);
-                                System.out.println("WebSocket output will be on port: " + port);
-                            } catch (NumberFormatException e) {
-                                System.err.println(
-                                        "Invalid port for WebSocket output. Please specify a valid port number.");
+                            tcpClientBufferBytes = (int) size;
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid TCP buffer size '" + sizeArg + "'. Using the default.");
+                        }
+                    }
+                    break;
+                case "--tcp-format":
+                    if (i + 1 < args.length) {
+                        String formatArg = args[++i];
+                        try {
+                            tcpFormat = TcpOutputStrategy.Format.fromName(formatArg);
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid TCP format '" + formatArg + "'. Using text.");
+                        }
+                    }
+                    break;
+                case "--udp-interface":
+                    if (i + 1 < args.length) {
+                        udpInterface = args[++i];
+                    }
+                    break;
+                case "--console-sample":
+                    if (i + 1 < args.length) {
+                        try {
+                            consoleSampleEvery = Integer.parseInt(args[++i]);
+                            if (consoleSampleEvery <= 0) {
+                                throw new NumberFormatException();
                             }
-                        } else if (outputArg.startsWith("tcp:")) {
-                            try {
-                                int port = Integer.parseInt(outputArg.substring(4));
-                                // Initialize your TCP socket output strategy here
-                                outputStrategy = new TcpOutputStrategy(port);
-                                System.out.println("TCP socket output will be on port: " + port);
-                            } catch (NumberFormatException e) {
-                                System.err.println("Invalid port for TCP output. Please specify a valid port number.");
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid console sampling interval. Printing every record.");
+                            consoleSampleEvery = 1;
+                        }
+                    }
+                    break;
+                case "--websocket-format":
+                    if (i + 1 < args.length) {
+                        String formatArg = args[++i];
+                        try {
+                            webSocketFormat = WebSocketOutputStrategy.Format.fromName(formatArg);
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid WebSocket format '" + formatArg + "'. Using text.");
+                        }
+                    }
+                    break;
+                case "--frame-size":
+                    if (i + 1 < args.length) {
+                        String sizeArg = args[++i];
+                        try {
+                            long size = parseSize(sizeArg);
+                            if (size > BinaryRecordFormat.MAX_FRAME_SIZE) {
+                                throw new IllegalArgumentException("Frame too large: " + sizeArg);
                             }
+                            frameBytes = (int) size;
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid frame size '" + sizeArg + "'. Using the default.");
+                        }
+                    }
+                    break;
+                case "--slow-client":
+                    if (i + 1 < args.length) {
+                        String policyArg = args[++i];
+                        try {
+                            slowClientPolicy = TcpOutputStrategy.SlowClientPolicy.fromName(policyArg);
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid slow client policy '" + policyArg + "'. Using drop.");
+                        }
+                    }
+                    break;
+                case "--segment-size":
+                    if (i + 1 < args.length) {
+                        String sizeArg = args[++i];
+                        try {
+                            fileOutputOptions.segmentBytes(parseSize(sizeArg));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid segment size '" + sizeArg + "'. Not rolling by size.");
+                        }
+                    }
+                    break;
+                case "--segment-time":
+                    if (i + 1 < args.length) {
+                        String timeArg = args[++i];
+                        try {
+                            fileOutputOptions.segmentMillis(parseDuration(timeArg));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid segment time '" + timeArg + "'. Not rolling by time.");
+                        }
+                    }
+                    break;
+                case "--compress":
+                    if (i + 1 < args.length) {
+                        String compressionArg = args[++i];
+                        try {
+                            fileOutputOptions.compression(FileOutputOptions.Compression.fromName(compressionArg));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid compression '" + compressionArg + "'. Not compressing.");
+                        }
+                    }
+                    break;
+                case "--fsync":
+                    if (i + 1 < args.length) {
+                        String syncArg = args[++i];
+                        try {
+                            fileOutputOptions.syncPolicy(FileOutputOptions.SyncPolicy.fromName(syncArg));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid fsync policy '" + syncArg + "'. Using the default.");
+                        }
+                    }
+                    break;
+                case "--seed":
+                    if (i + 1 < args.length) {
+                        try {
+                            seed = Long.parseLong(args[++i]);
+                            seeded = true;
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid seed. Using a random seed.");
+                        }
+                    }
+                    break;
+                case "--speed":
+                    if (i + 1 < args.length) {
+                        String speedArg = args[++i];
+                        try {
+                            speed = parseSpeed(speedArg);
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid speed '" + speedArg + "'. Using real time.");
+                        }
+                    }
+                    break;
+                case "--duration":
+                    if (i + 1 < args.length) {
+                        String durationArg = args[++i];
+                        try {
+                            durationMillis = parseDuration(durationArg);
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid duration '" + durationArg + "'. Running until stopped.");
+                        }
+                    }
+                    break;
+                case "--shard":
+                    if (i + 1 < args.length) {
+                        String shardArg = args[++i];
+                        try {
+                            int slash = shardArg.indexOf('/');
+                            shardIndex = Integer.parseInt(shardArg.substring(0, slash));
+                            shardCount = Integer.parseInt(shardArg.substring(slash + 1));
+                        } catch (RuntimeException e) {
+                            System.err.println("Error: Invalid shard '" + shardArg + "'. Expected <index>/<count>.");
+                            System.exit(1);
+                        }
+                    }
+                    break;
+                case "--patient-range":
+                    if (i + 1 < args.length) {
+                        String rangeArg = args[++i];
+                        try {
+                            int dash = rangeArg.indexOf('-');
+                            patientRange = new PatientRange(Integer.parseInt(rangeArg.substring(0, dash)),
+                                    Integer.parseInt(rangeArg.substring(dash + 1)));
+                        } catch (RuntimeException e) {
+                            System.err.println("Error: Invalid patient range '" + rangeArg + "'. Expected <first>-<last>.");
+                            System.exit(1);
+                        }
+                    }
+                    break;
+                case "--merge":
+                    if (i + 1 < args.length) {
+                        for (String shard : args[++i].split(",")) {
+                            mergedShards.add(shard.trim());
+                        }
+                    }
+                    break;
+                case "--ecg-rate":
+                    if (i + 1 < args.length) {
+                        try {
+                            ecgSampleRate = Integer.parseInt(args[++i]);
+                            if (ecgSampleRate <= 0) {
+                                throw new NumberFormatException();
+                            }
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid ECG sample rate. Using one ECG value per second.");
+                            ecgSampleRate = 0;
+                        }
+                    }
+                    break;
+                case "--ring-buffer":
+                    if (i + 1 < args.length) {
+                        try {
+                            ringBufferCapacity = Integer.parseInt(args[++i]);
+                            if (ringBufferCapacity <= 0) {
+                                throw new NumberFormatException();
+                            }
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid ring buffer capacity. Writing to the output directly.");
+                            ringBufferCapacity = 0;
+                        }
+                    }
+                    break;
+                case "--backpressure":
+                    if (i + 1 < args.length) {
+                        String policyArg = args[++i];
+                        try {
+                            backpressurePolicy = BackpressurePolicy.fromName(policyArg);
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Error: Invalid backpressure policy '" + policyArg + "'. Using the default.");
+                        }
+                    }
+                    break;
+                case "--executor":
+                    if (i + 1 < args.length) {
+                        String mode = args[++i];
+                        if (mode.equals("platform") || mode.equals("batched") || mode.equals("virtual")) {
+                            executorMode = mode;
+                            executorSelected = true;
                         } else {
-                            System.err.println("Unknown output type. Using default (console).");
+                            System.err.println("Unknown executor '" + mode + "'. Using default: " + executorMode);
                         }
                     }
                     break;
@@ -144,6 +437,23 @@ public class HealthDataSimulator {
                     System.exit(1);
             }
         }
+        // Options that depend on each other, checked once all are known
+        if (tcpFormat == TcpOutputStrategy.Format.FRAMED
+                && frameBytes > tcpClientBufferBytes - BinaryRecordFormat.FRAME_HEADER_SIZE) {
+            frameBytes = tcpClientBufferBytes - BinaryRecordFormat.FRAME_HEADER_SIZE;
+            System.err.println("Error: Frames must fit into the TCP buffer of a client. Using a frame size of "
+                    + frameBytes + " bytes.");
+        }
+        if (fileOutputOptions.getCompression() != FileOutputOptions.Compression.NONE
+                && !fileOutputOptions.isSegmented()) {
+            // Only closed segments are compressed, a single file per label never is
+            fileOutputOptions.compression(FileOutputOptions.Compression.NONE);
+            System.err.println("Error: --compress needs --segment-size or --segment-time. Not compressing.");
+        }
+        if (Double.isInfinite(speed) && executorSelected) {
+            System.err.println("Error: --speed max always uses the virtual time scheduler. Ignoring --executor "
+                    + executorMode + ".");
+        }
     }
     /**
      * Prints the help message to the standard output, detailing the available command-line options.
@@ -157,8 +467,66 @@ public class HealthDataSimulator {
         System.out.println("  --output <type>          Define the output method. Options are:");
         System.out.println("                             'console' for console output,");
         System.out.println("                             'file:<directory>' for file output,");
+        System.out.println("                             'binary:<directory>' for compact binary file output,");
         System.out.println("                             'websocket:<port>' for WebSocket output,");
-        System.out.println("                             'tcp:<port>' for TCP socket output.");
+        System.out.println("                             'tcp:<port>' for TCP socket output,");
+        System.out.println("                             'udp:<group>:<port>' for UDP (multicast) datagrams.");
+        System.out.println("                           Can be given several times to write to several outputs, each");
+        System.out.println("                             with its own buffer and writer thread.");
+        System.out.println("  --shard <index>/<count>  Only simulate the 0-based shard <index> of <count> equally sized,");
+        System.out.println("                             disjoint slices of the patients, e.g. '--shard 0/4'.");
+        System.out.println("  --patient-range <a>-<b>  Only simulate the patients with ids <a> to <b>.");
+        System.out.println("  --merge <host:port,...>  Do not simulate; relay the TCP output of the given shards");
+        System.out.println("                             to this process' output instead.");
+        System.out.println("  --ecg-rate <hz>          Simulate a high-rate ECG waveform with the given number of samples");
+        System.out.println("                             per second, emitted as one block per patient and second.");
+        System.out.println("  --flush-bytes <bytes>    Buffer size per file after which file output is written");
+        System.out.println("                             (default: 65536).");
+        System.out.println("  --flush-interval <ms>    Longest time file output stays buffered (default: 1000).");
+        System.out.println("  --fsync <policy>         When file output is forced to disk. Options are:");
+        System.out.println("                             'none', 'close' (default) or 'flush' for every write.");
+        System.out.println("  --tcp-buffer <size>      Outbound buffer per TCP client, e.g. '4M' (default: 1M).");
+        System.out.println("  --tcp-format <format>    Encoding of the TCP output. Options are:");
+        System.out.println("                             'text' for one line per record (default),");
+        System.out.println("                             'framed' for length-prefixed frames of binary records.");
+        System.out.println("  --frame-size <size>      Size after which a frame is sent (default: 64K); frames are");
+        System.out.println("                             also sent at the end of every tick. At most the TCP buffer.");
+        System.out.println("  --udp-interface <name>   Network interface for UDP multicast output, e.g. 'eth0'.");
+        System.out.println("  --console-sample <n>     Print only every n-th record to the console (default: 1).");
+        System.out.println("  --websocket-format <format> Encoding of the WebSocket output. Options are:");
+        System.out.println("                             'text' for one message per record (default),");
+        System.out.println("                             'binary' for one message of binary records per tick,");
+        System.out.println("                             'json' for one message with a JSON array per tick.");
+        System.out.println("  --slow-client <policy>   What happens to a TCP client whose buffer is full. Options are:");
+        System.out.println("                             'drop' to skip records for that client (default),");
+        System.out.println("                             'disconnect' to close its connection.");
+        System.out.println("  --segment-size <size>    Write file output to numbered segments of at most the given");
+        System.out.println("                             size, e.g. '64M', each with an index file.");
+        System.out.println("  --segment-time <duration> Start a new segment when the data spans the given time,");
+        System.out.println("                             e.g. '1h'.");
+        System.out.println("  --compress <type>        Compression of closed segments: 'none' (default) or 'gzip'.");
+        System.out.println("  --ring-buffer <capacity> Queue the output in a lock-free ring buffer of the given capacity");
+        System.out.println("                             that is written by a dedicated thread, so a slow output does");
+        System.out.println("                             not delay data generation.");
+        System.out.println("  --backpressure <policy>  What to do when the ring buffer is full. Options are:");
+        System.out.println("                             'block' to wait for room (default for a single output),");
+        System.out.println("                             'drop-oldest' to discard the oldest buffered record");
+        System.out.println("                             (default for console and network outputs when there");
+        System.out.println("                             are several; file outputs block),");
+        System.out.println("                             'drop-newest' to discard the new record.");
+        System.out.println("  --executor <mode>        Define how data generation is scheduled. Options are:");
+        System.out.println("                             'platform' for one timer task per patient (default),");
+        System.out.println("                             'batched' for one periodic sweep per generator on a");
+        System.out.println("                             worker pool sized to the number of cores,");
+        System.out.println("                             'virtual' for one virtual thread per patient stream");
+        System.out.println("                             (requires Java 21).");
+        System.out.println("  --seed <number>          Seed for all random values, so runs can be reproduced");
+        System.out.println("                             (default: a random seed).");
+        System.out.println("  --speed <speed>          Speed of the simulated time. Options are:");
+        System.out.println("                             '<N>x' to run N times faster than real time (default: 1x),");
+        System.out.println("                             'max' to generate as fast as the output can absorb.");
+        System.out.println("  --duration <duration>    Simulated time after which the simulator stops, e.g. '90s',");
+        System.out.println("                             '30m', '24h' or '7d' (default: run until stopped).");
         System.out.println("Example:");
         System.out.println("  java HealthDataSimulator --patient-count 100 --output websocket:8080");
         System.out.println(
@@ -166,43 +534,281 @@ public class HealthDataSimulator {
     }
 
     /**
-     * Initializes a list of patient IDs.
+     * Parses a speed argument: either "max" or a factor such as "10x" or "10".
      *
-     * @param patientCount the total number of patients to simulate.
-     * @return a list containing patient IDs from 1 to patientCount.
+     * @param speedArg the speed argument.
+     * @return the speed factor, {@link Double#POSITIVE_INFINITY} for "max".
+     * @throws IllegalArgumentException if the argument is not a valid speed.
      */
-    private static List<Integer> initializePatientIds(int patientCount) {
-        List<Integer> patientIds = new ArrayList<>();
-        for (int i = 1; i <= patientCount; i++) {
-            patientIds.add(i);
+    private static double parseSpeed(String speedArg) {
+        if (speedArg.equals("max")) {
+            return Double.POSITIVE_INFINITY;
         }
-        return patientIds;
+        String factor = speedArg.endsWith("x") ? speedArg.substring(0, speedArg.length() - 1) : speedArg;
+        double value = Double.parseDouble(factor);
+        if (!(value > 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Speed must be positive: " + speedArg);
+        }
+        return value;
     }
 
-    private static void scheduleTasksForPatients(List<Integer> patientIds) {
-        ECGDataGenerator ecgDataGenerator = new ECGDataGenerator(patientCount);
-        BloodSaturationDataGenerator bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientCount);
-        BloodPressureDataGenerator bloodPressureDataGenerator = new BloodPressureDataGenerator(patientCount);
-        BloodLevelsDataGenerator bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientCount);
-        AlertGenerator alertGenerator = new AlertGenerator(patientCount);
-
-        for (int patientId : patientIds) {
-            scheduleTask(() -> ecgDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodSaturationDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodPressureDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.MINUTES);
-            scheduleTask(() -> bloodLevelsDataGenerator.generate(patientId, outputStrategy), 2, TimeUnit.MINUTES);
-            scheduleTask(() -> alertGenerator.generate(patientId, outputStrategy), 20, TimeUnit.SECONDS);
+    /**
+     * Parses a duration argument such as "90s", "30m", "24h" or "7d". A plain number is read as seconds.
+     *
+     * @param durationArg the duration argument.
+     * @return the duration in milliseconds.
+     * @throws IllegalArgumentException if the argument is not a valid duration.
+     */
+    private static long parseDuration(String durationArg) {
+        TimeUnit unit = TimeUnit.SECONDS;
+        String amount = durationArg;
+        if (durationArg.endsWith("s") || durationArg.endsWith("m") || durationArg.endsWith("h")
+                || durationArg.endsWith("d")) {
+            amount = durationArg.substring(0, durationArg.length() - 1);
+            switch (durationArg.charAt(durationArg.length() - 1)) {
+                case 'm':
+                    unit = TimeUnit.MINUTES;
+                    break;
+                case 'h':
+                    unit = TimeUnit.HOURS;
+                    break;
+                case 'd':
+                    unit = TimeUnit.DAYS;
+                    break;
+                default:
+                    break;
+            }
+        }
+        long value = Long.parseLong(amount);
+        if (value <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationArg);
         }
+        return unit.toMillis(value);
     }
 
     /**
-     * Schedules a task to run at a fixed rate with a random initial delay.
+     * Creates the outputs selected with {@code --output}.
      *
-     * @param task     the task to be scheduled.
-     * @param period   the period between successive executions of the task.
-     * @param timeUnit the time unit of the period parameter.
+     * @throws IOException if an output directory cannot be created.
+     */
+    private static void createOutputs() throws IOException {
+        for (String outputArg : outputArgs) {
+            if (outputArg.equals("console")) {
+                outputs.put(outputArg, new ConsoleOutputStrategy(consoleSampleEvery));
+            } else if (outputArg.startsWith("file:")) {
+                String baseDirectory = outputArg.substring(5);
+                Path outputPath = Paths.get(baseDirectory);
+                if (!Files.exists(outputPath)) {
+                    Files.createDirectories(outputPath);
+                }
+                outputs.put(outputArg, new FileOutputStrategy(baseDirectory, fileOutputOptions));
+            } else if (outputArg.startsWith("binary:")) {
+                outputs.put(outputArg, new BinaryFileOutputStrategy(outputArg.substring(7), fileOutputOptions));
+            } else if (outputArg.startsWith("websocket:")) {
+                try {
+                    int port = Integer.parseInt(outputArg.substring(10));
+                    // Initialize your WebSocket output strategy here
+                    outputs.put(outputArg, new WebSocketOutputStrategy(port, webSocketFormat));
+                    System.out.println("WebSocket output will be on port: " + port);
+                } catch (NumberFormatException e) {
+                    System.err.println(
+                            "Invalid port for WebSocket output. Please specify a valid port number.");
+                }
+            } else if (outputArg.startsWith("tcp:")) {
+                try {
+                    int port = Integer.parseInt(outputArg.substring(4));
+                    // Initialize your TCP socket output strategy here
+                    outputs.put(outputArg, new TcpOutputStrategy(port, tcpClientBufferBytes, slowClientPolicy, tcpFormat,
+                            frameBytes));
+                    System.out.println("TCP socket output will be on port: " + port);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid port for TCP output. Please specify a valid port number.");
+                }
+            } else if (outputArg.startsWith("udp:")) {
+                int colon = outputArg.lastIndexOf(':');
+                try {
+                    int port = Integer.parseInt(outputArg.substring(colon + 1));
+                    outputs.put(outputArg, new UdpOutputStrategy(outputArg.substring(4, colon), port, udpInterface));
+                    System.out.println("UDP output will be sent to " + outputArg.substring(4));
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    System.err.println("Invalid UDP output. Please specify udp:<group>:<port>.");
+                } catch (IOException e) {
+                    System.err.println("Error opening UDP output: " + e.getMessage());
+                }
+            } else {
+                System.err.println("Unknown output type. Using default (console).");
+            }
+        }
+        if (outputs.isEmpty()) {
+            outputs.put("console", new ConsoleOutputStrategy(consoleSampleEvery));
+        }
+    }
+
+    /**
+     * Combines the selected outputs, puts the ring buffer in front of them if requested, and makes
+     * sure the outputs are closed when the process exits.
      */
-    private static void scheduleTask(Runnable task, long period, TimeUnit timeUnit) {
-        scheduler.scheduleAtFixedRate(task, random.nextInt(5), period, timeUnit);
+    private static void wrapOutputStrategy() {
+        if (outputs.size() > 1) {
+            // Separate lanes, so one slow output does not hold up the others
+            int capacity = ringBufferCapacity > 0 ? ringBufferCapacity : DEFAULT_LANE_CAPACITY;
+            CompositeOutputStrategy composite = new CompositeOutputStrategy(capacity, BackpressurePolicy.BLOCK);
+            for (Map.Entry<String, OutputStrategy> output : outputs.entrySet()) {
+                composite.addOutput(output.getKey(), output.getValue(), lanePolicy(output.getValue()));
+            }
+            outputStrategy = composite;
+            ScheduledExecutorService dropReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "drop-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dropReporter.scheduleWithFixedDelay(() -> composite.getDropReport().forEach(System.err::println),
+                    DROP_REPORT_MILLIS, DROP_REPORT_MILLIS, TimeUnit.MILLISECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                dropReporter.shutdown();
+                composite.close();
+                composite.getThroughputReport().forEach(System.err::println);
+            }));
+            return;
+        }
+        if (outputs.size() == 1) {
+            outputStrategy = outputs.values().iterator().next();
+        }
+        if (ringBufferCapacity > 0) {
+            RingBufferOutputStrategy ringBuffer = new RingBufferOutputStrategy(outputStrategy, ringBufferCapacity,
+                    backpressurePolicy != null ? backpressurePolicy : BackpressurePolicy.BLOCK);
+            outputStrategy = ringBuffer;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                ringBuffer.close();
+                System.err.println("Ring buffer: " + ringBuffer.getDeliveredCount() + " records written, "
+                        + ringBuffer.getDroppedCount() + " dropped");
+            }));
+        } else {
+            OutputStrategy output = outputStrategy;
+            Runtime.getRuntime().addShutdownHook(new Thread(output::close));
+        }
+    }
+
+    /**
+     * Chooses the backpressure policy of one output among several: the one given with
+     * --backpressure, or else block for archives, which must not lose records, and drop-oldest
+     * for live outputs, which should not hold up the others.
+     *
+     * @param output the output.
+     * @return the policy of its lane.
+     */
+    private static BackpressurePolicy lanePolicy(OutputStrategy output) {
+        if (backpressurePolicy != null) {
+            return backpressurePolicy;
+        }
+        boolean durable = output instanceof FileOutputStrategy || output instanceof BinaryFileOutputStrategy;
+        return durable ? BackpressurePolicy.BLOCK : BackpressurePolicy.DROP_OLDEST;
+    }
+
+    /**
+     * Parses a size argument such as "65536", "512K", "64M" or "1G".
+     *
+     * @param sizeArg the size argument.
+     * @return the size in bytes.
+     * @throws IllegalArgumentException if the argument is not a valid size.
+     */
+    private static long parseSize(String sizeArg) {
+        long unit = 1;
+        String amount = sizeArg.toUpperCase();
+        if (amount.endsWith("K") || amount.endsWith("M") || amount.endsWith("G")) {
+            unit = amount.endsWith("K") ? 1L << 10 : amount.endsWith("M") ? 1L << 20 : 1L << 30;
+            amount = amount.substring(0, amount.length() - 1);
+        }
+        long value = Long.parseLong(amount);
+        if (value <= 0) {
+            throw new IllegalArgumentException("Size must be positive: " + sizeArg);
+        }
+        return value * unit;
+    }
+
+    /**
+     * Creates the clock for the selected speed.
+     *
+     * @return the clock of the simulation.
+     */
+    private static SimulationClock createClock() {
+        if (Double.isInfinite(speed)) {
+            // Timestamps feed into the values (e.g. the ECG wave), so seeded runs must not start at "now"
+            return new VirtualClock(seeded ? SEEDED_START_MILLIS : System.currentTimeMillis());
+        }
+        if (speed != 1) {
+            return new ScaledClock(speed);
+        }
+        return SimulationClock.system();
+    }
+
+    /**
+     * Creates the scheduler for the selected executor mode and speed.
+     *
+     * @return the scheduler driving the data generators.
+     */
+    private static PatientTaskScheduler createScheduler() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (clock instanceof VirtualClock) {
+            // Only the sweep based scheduler can run in virtual time
+            return new VirtualTimeScheduler(outputStrategy, cores, random, (VirtualClock) clock);
+        }
+        if (executorMode.equals("batched")) {
+            return new BatchedTickScheduler(outputStrategy, cores, random, clock);
+        }
+        int platformThreads = patientRange.size() * 4;
+        if (executorMode.equals("virtual")) {
+            return VirtualThreadTaskScheduler.createOrFallBack(outputStrategy, random, clock, platformThreads);
+        }
+        return new FixedRateTaskScheduler(outputStrategy, platformThreads, random, clock);
+    }
+
+    /**
+     * Initializes a list of patient IDs.
+     *
+     * @param patientRange the patients simulated by this process.
+     * @return a list containing the patient IDs of the range.
+     */
+    private static List<Integer> initializePatientIds(PatientRange patientRange) {
+        List<Integer> patientIds = new ArrayList<>(patientRange.size());
+        for (int i = patientRange.getFirstId(); i <= patientRange.getLastId(); i++) {
+            patientIds.add(i);
+        }
+        return patientIds;
+    }
+
+    /**
+     * Starts relaying the TCP output of the shards given with --merge to the selected output.
+     */
+    private static void startShardMerger() {
+        ShardMerger merger = new ShardMerger(outputStrategy);
+        for (String shard : mergedShards) {
+            int colon = shard.lastIndexOf(':');
+            try {
+                merger.addShard(shard.substring(0, colon), Integer.parseInt(shard.substring(colon + 1)));
+            } catch (RuntimeException e) {
+                System.err.println("Error: Invalid shard address '" + shard + "'. Expected <host>:<port>.");
+                System.exit(1);
+            }
+        }
+        merger.start();
+    }
+
+    private static void scheduleTasksForPatients(List<Integer> patientIds) {
+        PatientDataGenerator ecgDataGenerator = ecgSampleRate > 0
+                ? new HighRateECGDataGenerator(patientRange, seed, clock, ecgSampleRate, ecgSampleRate)
+                : new ECGDataGenerator(patientRange, seed, clock);
+        BloodSaturationDataGenerator bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientRange,
+                seed, clock);
+        BloodPressureDataGenerator bloodPressureDataGenerator = new BloodPressureDataGenerator(patientRange, seed,
+                clock);
+        BloodLevelsDataGenerator bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientRange, seed, clock);
+        AlertGenerator alertGenerator = new AlertGenerator(patientRange, seed, clock);
+
+        scheduler.schedule(ecgDataGenerator, patientIds, 1, TimeUnit.SECONDS);
+        scheduler.schedule(bloodSaturationDataGenerator, patientIds, 1, TimeUnit.SECONDS);
+        scheduler.schedule(bloodPressureDataGenerator, patientIds, 1, TimeUnit.MINUTES);
+        scheduler.schedule(bloodLevelsDataGenerator, patientIds, 2, TimeUnit.MINUTES);
+        scheduler.schedule(alertGenerator, patientIds, 20, TimeUnit.SECONDS);
     }
 }
@@ -0,0 +1,170 @@
+package com.cardio_generator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cardio_generator.outputs.BinaryFrameDecoder;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The {@code ShardMerger} class combines the streams of several simulator shards into a
+ * single output.
+ * <p>
+ * Each shard runs its own {@code HealthDataSimulator} with {@code --shard i/n} and
+ * {@code --output tcp:<port>}. The merger connects to all of them as a TCP client and
+ * relays every record to one {@link OutputStrategy}, e.g. a single TCP or WebSocket
+ * server for downstream consumers. Since shards own disjoint patient ranges, the merged
+ * stream contains every patient exactly once. Lost connections are re-established
+ * automatically, so shards can be restarted independently.
+ * </p>
+ * <p>
+ * Shards may send text lines or, with {@code --tcp-format framed}, binary frames. The format is
+ * told apart by the first byte of each connection: a line starts with a digit, while the length
+ * prefix of a frame, at most {@code BinaryRecordFormat.MAX_FRAME_SIZE}, starts with a zero or one
+ * byte.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     ShardMerger merger = new ShardMerger(outputStrategy);
+ *     merger.addShard("host-a", 9001);
+ *     merger.addShard("host-b", 9001);
+ *     merger.start();
+ * </pre>
+ * </p>
+ */
+public class ShardMerger {
+
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private final OutputStrategy outputStrategy;
+    private final List<InetSocketAddress> shards = new ArrayList<>();
+    private final List<Thread> readers = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * Constructs a new {@code ShardMerger}.
+     *
+     * @param outputStrategy the strategy receiving the merged records
+     */
+    public ShardMerger(OutputStrategy outputStrategy) {
+        this.outputStrategy = outputStrategy;
+    }
+
+    /**
+     * Adds a shard whose TCP output should be merged.
+     *
+     * @param host the host running the shard
+     * @param port the port of the shard's TCP output
+     */
+    public void addShard(String host, int port) {
+        shards.add(InetSocketAddress.createUnresolved(host, port));
+    }
+
+    /**
+     * Starts one reader thread per shard.
+     */
+    public synchronized void start() {
+        running = true;
+        for (InetSocketAddress shard : shards) {
+            Thread reader = new Thread(() -> relay(shard), "shard-merger-" + describe(shard));
+            readers.add(reader);
+            reader.start();
+        }
+    }
+
+    /**
+     * Stops merging and closes the shard connections.
+     */
+    public synchronized void stop() {
+        running = false;
+        for (Thread reader : readers) {
+            reader.interrupt();
+        }
+    }
+
+    private void relay(InetSocketAddress shard) {
+        while (running) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(shard.getHostString(), shard.getPort()), CONNECT_TIMEOUT_MILLIS);
+                InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+                in.mark(1);
+                int first = in.read();
+                in.reset();
+                if (first >= 0 && first < ' ') {
+                    System.out.println("Merging framed shard " + describe(shard));
+                    relayFrames(in);
+                } else if (first >= 0) {
+                    System.out.println("Merging shard " + describe(shard));
+                    relayLines(in);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Connection to shard " + describe(shard) + " failed: " + e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static String describe(InetSocketAddress shard) {
+        return shard.getHostString() + ":" + shard.getPort();
+    }
+
+    private void relayLines(InputStream in) throws IOException {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while (running && (line = lines.readLine()) != null) {
+            relayLine(line);
+        }
+    }
+
+    private void relayFrames(InputStream in) throws IOException {
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder(outputStrategy::output);
+        byte[] bytes = new byte[64 * 1024];
+        int count;
+        while (running && (count = in.read(bytes)) >= 0) {
+            decoder.decode(ByteBuffer.wrap(bytes, 0, count));
+        }
+    }
+
+    // Parses a "patientId,timestamp,label,data" line of the TCP output and forwards it
+    private void relayLine(String line) {
+        int first = line.indexOf(',');
+        int second = line.indexOf(',', first + 1);
+        int third = line.indexOf(',', second + 1);
+        if (first < 0 || second < 0 || third < 0) {
+            System.err.println("Skipping malformed record: " + line);
+            return;
+        }
+        try {
+            int patientId = Integer.parseInt(line.substring(0, first));
+            long timestamp = Long.parseLong(line.substring(first + 1, second));
+            String label = line.substring(second + 1, third);
+            String data = line.substring(third + 1);
+            MeasurementKind kind = MeasurementKind.fromLabel(label);
+            if (kind != null) {
+                outputStrategy.output(patientId, timestamp, kind, kind.parse(data));
+            } else {
+                outputStrategy.output(patientId, timestamp, label, data);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping malformed record: " + line);
+        }
+    }
+}
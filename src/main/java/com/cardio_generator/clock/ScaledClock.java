@@ -0,0 +1,42 @@
+package com.cardio_generator.clock;
+
+/**
+ * The {@code ScaledClock} class is a {@link SimulationClock} running a fixed factor faster
+ * (or slower) than the wall clock. It starts at the current system time.
+ *
+ * <p>Example usage:
+ * <pre>
+ *     SimulationClock clock = new ScaledClock(10); // 10x real time
+ * </pre>
+ * </p>
+ */
+public class ScaledClock implements SimulationClock {
+
+    private final long originMillis;
+    private final long originNanos;
+    private final double speed;
+
+    /**
+     * Constructs a new {@code ScaledClock}.
+     *
+     * @param speed the number of simulated milliseconds per wall-clock millisecond
+     */
+    public ScaledClock(double speed) {
+        if (!(speed > 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Speed must be a positive number: " + speed);
+        }
+        this.originMillis = System.currentTimeMillis();
+        this.originNanos = System.nanoTime();
+        this.speed = speed;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return originMillis + (long) ((System.nanoTime() - originNanos) * speed / 1_000_000);
+    }
+
+    @Override
+    public double speed() {
+        return speed;
+    }
+}
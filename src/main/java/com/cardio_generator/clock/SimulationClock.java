@@ -0,0 +1,43 @@
+package com.cardio_generator.clock;
+
+/**
+ * The {@code SimulationClock} interface is the time source of the simulation.
+ * <p>
+ * Generators stamp their samples with {@link #currentTimeMillis()} and schedulers divide
+ * their periods by {@link #speed()}, so the same simulation can run in real time, faster
+ * than real time, or fully decoupled from the wall clock.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     SimulationClock clock = new ScaledClock(60); // one simulated minute per second
+ *     PatientDataGenerator generator = new ECGDataGenerator(100, seed, clock);
+ * </pre>
+ * </p>
+ *
+ * @see SystemClock
+ * @see ScaledClock
+ * @see VirtualClock
+ */
+public interface SimulationClock {
+    /**
+     * @return the current simulated time, in milliseconds since UNIX epoch
+     */
+    long currentTimeMillis();
+
+    /**
+     * Returns how many simulated milliseconds pass per wall-clock millisecond.
+     * A clock that is advanced explicitly, independent of the wall clock, returns
+     * {@link Double#POSITIVE_INFINITY}.
+     *
+     * @return the speed of the clock relative to the wall clock
+     */
+    double speed();
+
+    /**
+     * @return the clock following the system time
+     */
+    static SimulationClock system() {
+        return SystemClock.INSTANCE;
+    }
+}
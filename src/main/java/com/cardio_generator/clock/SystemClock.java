@@ -0,0 +1,23 @@
+package com.cardio_generator.clock;
+
+/**
+ * The {@code SystemClock} class is a {@link SimulationClock} that follows the system time.
+ * It is the default clock of the simulation.
+ */
+public final class SystemClock implements SimulationClock {
+
+    static final SystemClock INSTANCE = new SystemClock();
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public double speed() {
+        return 1;
+    }
+}
@@ -0,0 +1,44 @@
+package com.cardio_generator.clock;
+
+/**
+ * The {@code VirtualClock} class is a {@link SimulationClock} that only moves when it is
+ * advanced explicitly. It is used to run the simulation as fast as possible: the scheduler
+ * jumps the clock to the next due tick instead of waiting for it.
+ *
+ * @see com.cardio_generator.scheduling.VirtualTimeScheduler
+ */
+public class VirtualClock implements SimulationClock {
+
+    private volatile long currentTimeMillis;
+
+    /**
+     * Constructs a new {@code VirtualClock}.
+     *
+     * @param startMillis the initial time, in milliseconds since UNIX epoch
+     */
+    public VirtualClock(long startMillis) {
+        this.currentTimeMillis = startMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    @Override
+    public double speed() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Moves the clock to the given time. Virtual time never runs backwards.
+     *
+     * @param timeMillis the new time, in milliseconds since UNIX epoch
+     */
+    public void advanceTo(long timeMillis) {
+        if (timeMillis < currentTimeMillis) {
+            throw new IllegalArgumentException("Virtual time cannot run backwards");
+        }
+        currentTimeMillis = timeMillis;
+    }
+}
@@ -1,6 +1,8 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.outputs.MeasurementKind;
 import com.cardio_generator.outputs.OutputStrategy;
 
 /**
@@ -21,19 +23,46 @@ import com.cardio_generator.outputs.OutputStrategy;
  */
 public class AlertGenerator implements PatientDataGenerator {
 
-    public static final Random randomGenerator = new Random();
+    private final PatientRange patients;
+    private final SplittableRandom[] randoms;
+    private final SimulationClock clock;
     // Renamed AlertStates to alertStates to follow camelCase naming conventions.
     private boolean[] alertStates; // false = resolved, true = pressed
 
     /**
      * Constructs a new {@code AlertGenerator} for the specified number of patients.
-     * Initializes the internal alert states array using 1-based indexing.
+     * Initializes the internal alert states for the patients 1 to patientCount.
      *
      * @param patientCount the total number of patients for which alert simulation will be generated.
      */
     public AlertGenerator(int patientCount) {
+        this(patientCount, RandomStreams.randomSeed());
+    }
+
+    /**
+     * Constructs a new {@code AlertGenerator} whose alerts are reproducible for the given seed.
+     *
+     * @param patientCount the total number of patients for which alert simulation will be generated.
+     * @param seed         the global seed of the simulation.
+     */
+    public AlertGenerator(int patientCount, long seed) {
+        this(new PatientRange(1, patientCount), seed, SimulationClock.system());
+    }
+
+    /**
+     * Constructs a new {@code AlertGenerator} for a range of patients, e.g. one shard of a larger
+     * simulation. Only the alert states of the patients in the range are kept.
+     *
+     * @param patients the patients for which alert simulation will be generated.
+     * @param seed     the global seed of the simulation.
+     * @param clock    the clock stamping the generated data.
+     */
+    public AlertGenerator(PatientRange patients, long seed, SimulationClock clock) {
+        this.patients = patients;
+        this.clock = clock;
+        randoms = RandomStreams.forPatients(seed, "Alert", patients);
         // Corrected alertStates variable name
-        alertStates = new boolean[patientCount + 1];
+        alertStates = new boolean[patients.size()];
     }
 
     /**
@@ -49,26 +78,27 @@ public class AlertGenerator implements PatientDataGenerator {
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
+            int index = patients.indexOf(patientId);
             // Corrected alertStates variable name
-            if (alertStates[patientId]) {
-                if (randomGenerator.nextDouble() < 0.9) { // 90% chance to resolve
+            if (alertStates[index]) {
+                if (randoms[index].nextDouble() < 0.9) { // 90% chance to resolve
                     // Corrected alertStates variable name
-                    alertStates[patientId] = false;
+                    alertStates[index] = false;
                     // Output the alert
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "resolved");
+                    outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.ALERT, 0);
                 }
             } else {
                 // Renamed Lambda to lambda to follow lowercase naming for local variables.
                 double lambda = 0.1; // Average rate (alerts per period), adjust based on desired frequency
                 // Corrected lambda variable name
                 double p = -Math.expm1(-lambda); // Probability of at least one alert in the period
-                boolean alertTriggered = randomGenerator.nextDouble() < p;
+                boolean alertTriggered = randoms[index].nextDouble() < p;
 
                 if (alertTriggered) {
                     // Corrected alertStates variable name
-                    alertStates[patientId] = true;
+                    alertStates[index] = true;
                     // Output the alert
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "triggered");
+                    outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.ALERT, 1);
                 }
             }
         } catch (Exception e) {
@@ -76,4 +106,36 @@ public class AlertGenerator implements PatientDataGenerator {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Generates alert data for a range of patients into the given batch.
+     * Only state changes are added, as {@code 1} for a triggered and {@code 0} for a resolved alert.
+     *
+     * @param patientIds the patient identifiers
+     * @param from       the index of the first patient in {@code patientIds} (inclusive)
+     * @param to         the index of the last patient in {@code patientIds} (exclusive)
+     * @param batch      the batch receiving the generated alert changes
+     */
+    @Override
+    public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+        try {
+            double p = -Math.expm1(-0.1); // Probability of at least one alert in the period
+            for (int i = from; i < to; i++) {
+                int patientId = patientIds[i];
+                int index = patients.indexOf(patientId);
+                if (alertStates[index]) {
+                    if (randoms[index].nextDouble() < 0.9) { // 90% chance to resolve
+                        alertStates[index] = false;
+                        batch.add(patientId, MeasurementKind.ALERT, 0);
+                    }
+                } else if (randoms[index].nextDouble() < p) {
+                    alertStates[index] = true;
+                    batch.add(patientId, MeasurementKind.ALERT, 1);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating a batch of alert data");
+            e.printStackTrace();
+        }
+    }
 }
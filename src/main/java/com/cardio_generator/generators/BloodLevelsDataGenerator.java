@@ -1,23 +1,39 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.outputs.MeasurementKind;
 import com.cardio_generator.outputs.OutputStrategy;
 
 public class BloodLevelsDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRange patients;
+    private final SplittableRandom[] randoms;
+    private final SimulationClock clock;
     private final double[] baselineCholesterol;
     private final double[] baselineWhiteCells;
     private final double[] baselineRedCells;
 
     public BloodLevelsDataGenerator(int patientCount) {
+        this(patientCount, RandomStreams.randomSeed());
+    }
+
+    public BloodLevelsDataGenerator(int patientCount, long seed) {
+        this(new PatientRange(1, patientCount), seed, SimulationClock.system());
+    }
+
+    public BloodLevelsDataGenerator(PatientRange patients, long seed, SimulationClock clock) {
+        this.patients = patients;
+        this.clock = clock;
+        randoms = RandomStreams.forPatients(seed, "BloodLevels", patients);
         // Initialize arrays to store baseline values for each patient
-        baselineCholesterol = new double[patientCount + 1];
-        baselineWhiteCells = new double[patientCount + 1];
-        baselineRedCells = new double[patientCount + 1];
+        baselineCholesterol = new double[patients.size()];
+        baselineWhiteCells = new double[patients.size()];
+        baselineRedCells = new double[patients.size()];
 
         // Generate baseline values for each patient
-        for (int i = 1; i <= patientCount; i++) {
+        for (int i = 0; i < patients.size(); i++) {
+            SplittableRandom random = randoms[i];
             baselineCholesterol[i] = 150 + random.nextDouble() * 50; // Initial random baseline
             baselineWhiteCells[i] = 4 + random.nextDouble() * 6; // Initial random baseline
             baselineRedCells[i] = 4.5 + random.nextDouble() * 1.5; // Initial random baseline
@@ -27,19 +43,41 @@ public class BloodLevelsDataGenerator implements PatientDataGenerator {
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
+            int index = patients.indexOf(patientId);
+            SplittableRandom random = randoms[index];
             // Generate values around the baseline for realism
-            double cholesterol = baselineCholesterol[patientId] + (random.nextDouble() - 0.5) * 10; // Small variation
-            double whiteCells = baselineWhiteCells[patientId] + (random.nextDouble() - 0.5) * 1; // Small variation
-            double redCells = baselineRedCells[patientId] + (random.nextDouble() - 0.5) * 0.2; // Small variation
+            double cholesterol = baselineCholesterol[index] + (random.nextDouble() - 0.5) * 10; // Small variation
+            double whiteCells = baselineWhiteCells[index] + (random.nextDouble() - 0.5) * 1; // Small variation
+            double redCells = baselineRedCells[index] + (random.nextDouble() - 0.5) * 0.2; // Small variation
 
             // Output the generated values
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Cholesterol", Double.toString(cholesterol));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "WhiteBloodCells",
-                    Double.toString(whiteCells));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "RedBloodCells", Double.toString(redCells));
+            outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.CHOLESTEROL, cholesterol);
+            outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.WHITE_BLOOD_CELLS, whiteCells);
+            outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.RED_BLOOD_CELLS, redCells);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood levels data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    @Override
+    public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+        try {
+            for (int i = from; i < to; i++) {
+                int patientId = patientIds[i];
+                int index = patients.indexOf(patientId);
+                SplittableRandom random = randoms[index];
+                // Generate values around the baseline for realism
+                batch.add(patientId, MeasurementKind.CHOLESTEROL,
+                        baselineCholesterol[index] + (random.nextDouble() - 0.5) * 10);
+                batch.add(patientId, MeasurementKind.WHITE_BLOOD_CELLS,
+                        baselineWhiteCells[index] + (random.nextDouble() - 0.5) * 1);
+                batch.add(patientId, MeasurementKind.RED_BLOOD_CELLS,
+                        baselineRedCells[index] + (random.nextDouble() - 0.5) * 0.2);
+            }
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating a batch of blood levels data");
+            e.printStackTrace();
+        }
+    }
 }
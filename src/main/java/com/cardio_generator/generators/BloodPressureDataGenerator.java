@@ -1,46 +1,84 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.outputs.MeasurementKind;
 import com.cardio_generator.outputs.OutputStrategy;
 
 public class BloodPressureDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRange patients;
+    private final SplittableRandom[] randoms;
+    private final SimulationClock clock;
 
     private int[] lastSystolicValues;
     private int[] lastDiastolicValues;
 
     public BloodPressureDataGenerator(int patientCount) {
-        lastSystolicValues = new int[patientCount + 1];
-        lastDiastolicValues = new int[patientCount + 1];
+        this(patientCount, RandomStreams.randomSeed());
+    }
+
+    public BloodPressureDataGenerator(int patientCount, long seed) {
+        this(new PatientRange(1, patientCount), seed, SimulationClock.system());
+    }
+
+    public BloodPressureDataGenerator(PatientRange patients, long seed, SimulationClock clock) {
+        this.patients = patients;
+        this.clock = clock;
+        randoms = RandomStreams.forPatients(seed, "BloodPressure", patients);
+        lastSystolicValues = new int[patients.size()];
+        lastDiastolicValues = new int[patients.size()];
 
         // Initialize with baseline values for each patient
-        for (int i = 1; i <= patientCount; i++) {
-            lastSystolicValues[i] = 110 + random.nextInt(20); // Random baseline between 110 and 130
-            lastDiastolicValues[i] = 70 + random.nextInt(15); // Random baseline between 70 and 85
+        for (int i = 0; i < patients.size(); i++) {
+            lastSystolicValues[i] = 110 + randoms[i].nextInt(20); // Random baseline between 110 and 130
+            lastDiastolicValues[i] = 70 + randoms[i].nextInt(15); // Random baseline between 70 and 85
         }
     }
 
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
-            int systolicVariation = random.nextInt(5) - 2; // -2, -1, 0, 1, or 2
-            int diastolicVariation = random.nextInt(5) - 2;
-            int newSystolicValue = lastSystolicValues[patientId] + systolicVariation;
-            int newDiastolicValue = lastDiastolicValues[patientId] + diastolicVariation;
-            // Ensure the blood pressure stays within a realistic and safe range
-            newSystolicValue = Math.min(Math.max(newSystolicValue, 90), 180);
-            newDiastolicValue = Math.min(Math.max(newDiastolicValue, 60), 120);
-            lastSystolicValues[patientId] = newSystolicValue;
-            lastDiastolicValues[patientId] = newDiastolicValue;
-
-            outputStrategy.output(patientId, System.currentTimeMillis(), "SystolicPressure",
-                    Double.toString(newSystolicValue));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "DiastolicPressure",
-                    Double.toString(newDiastolicValue));
+            int index = patients.indexOf(patientId);
+            step(index);
+
+            outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.SYSTOLIC_PRESSURE,
+                    lastSystolicValues[index]);
+            outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.DIASTOLIC_PRESSURE,
+                    lastDiastolicValues[index]);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood pressure data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    @Override
+    public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+        try {
+            for (int i = from; i < to; i++) {
+                int patientId = patientIds[i];
+                int index = patients.indexOf(patientId);
+                step(index);
+                batch.add(patientId, MeasurementKind.SYSTOLIC_PRESSURE, lastSystolicValues[index]);
+                batch.add(patientId, MeasurementKind.DIASTOLIC_PRESSURE, lastDiastolicValues[index]);
+            }
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating a batch of blood pressure data");
+            e.printStackTrace();
+        }
+    }
+
+    // Applies a small random variation to the last blood pressure values of the patient
+    private void step(int index) {
+        SplittableRandom random = randoms[index];
+        int systolicVariation = random.nextInt(5) - 2; // -2, -1, 0, 1, or 2
+        int diastolicVariation = random.nextInt(5) - 2;
+        int newSystolicValue = lastSystolicValues[index] + systolicVariation;
+        int newDiastolicValue = lastDiastolicValues[index] + diastolicVariation;
+        // Ensure the blood pressure stays within a realistic and safe range
+        newSystolicValue = Math.min(Math.max(newSystolicValue, 90), 180);
+        newDiastolicValue = Math.min(Math.max(newDiastolicValue, 60), 120);
+        lastSystolicValues[index] = newSystolicValue;
+        lastDiastolicValues[index] = newDiastolicValue;
+    }
 }
@@ -1,6 +1,8 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.outputs.MeasurementKind;
 import com.cardio_generator.outputs.OutputStrategy;
 
 /**
@@ -22,7 +24,9 @@ import com.cardio_generator.outputs.OutputStrategy;
  * @see com.cardio_generator.generators.PatientDataGenerator
  */
 public class BloodSaturationDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRange patients;
+    private final SplittableRandom[] randoms;
+    private final SimulationClock clock;
     private int[] lastSaturationValues;
 
     /**
@@ -32,12 +36,37 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
      * @param patientCount the total number of patients for which simulation data will be generated.
      */
     public BloodSaturationDataGenerator(int patientCount) {
-        // Create an array using patientCount + 1 to use 1-based indexing for patient IDs
-        lastSaturationValues = new int[patientCount + 1];
+        this(patientCount, RandomStreams.randomSeed());
+    }
+
+    /**
+     * Constructs a new {@code BloodSaturationDataGenerator} whose values are reproducible for the given seed.
+     *
+     * @param patientCount the total number of patients for which simulation data will be generated.
+     * @param seed         the global seed of the simulation.
+     */
+    public BloodSaturationDataGenerator(int patientCount, long seed) {
+        this(new PatientRange(1, patientCount), seed, SimulationClock.system());
+    }
+
+    /**
+     * Constructs a new {@code BloodSaturationDataGenerator} for a range of patients, e.g. one shard of a
+     * larger simulation. Only the state of the patients in the range is kept.
+     *
+     * @param patients the patients for which simulation data will be generated.
+     * @param seed     the global seed of the simulation.
+     * @param clock    the clock stamping the generated data.
+     */
+    public BloodSaturationDataGenerator(PatientRange patients, long seed, SimulationClock clock) {
+        this.patients = patients;
+        this.clock = clock;
+        randoms = RandomStreams.forPatients(seed, "Saturation", patients);
+        // One entry per patient of the range, see PatientRange.indexOf
+        lastSaturationValues = new int[patients.size()];
 
         // Initialize with baseline saturation values for each patient
-        for (int i = 1; i <= patientCount; i++) {
-            lastSaturationValues[i] = 95 + random.nextInt(6); // Initializes with a value between 95 and 100
+        for (int i = 0; i < patients.size(); i++) {
+            lastSaturationValues[i] = 95 + randoms[i].nextInt(6); // Initializes with a value between 95 and 100
         }
     }
 
@@ -54,20 +83,46 @@ public class BloodSaturationDataGenerator implements PatientDataGenerator {
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
-            // Simulate blood saturation values
-            int variation = random.nextInt(3) - 1; // -1, 0, or 1 to simulate small fluctuations
-            int newSaturationValue = lastSaturationValues[patientId] + variation;
-
-            // Ensure the saturation stays within a realistic and healthy range
-            newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
-            lastSaturationValues[patientId] = newSaturationValue;
+            int newSaturationValue = nextSaturationValue(patients.indexOf(patientId));
 
-            // Output the new saturation value, appending a "%" sign.
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Saturation",
-                    Double.toString(newSaturationValue) + "%");
+            // Output the new saturation value; its text form carries a "%" sign.
+            outputStrategy.output(patientId, clock.currentTimeMillis(), MeasurementKind.SATURATION,
+                    newSaturationValue);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood saturation data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    /**
+     * Generates simulated blood saturation data for a range of patients into the given batch.
+     *
+     * @param patientIds the patient identifiers
+     * @param from       the index of the first patient in {@code patientIds} (inclusive)
+     * @param to         the index of the last patient in {@code patientIds} (exclusive)
+     * @param batch      the batch receiving the generated samples
+     */
+    @Override
+    public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+        try {
+            for (int i = from; i < to; i++) {
+                int patientId = patientIds[i];
+                batch.add(patientId, MeasurementKind.SATURATION, nextSaturationValue(patients.indexOf(patientId)));
+            }
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating a batch of blood saturation data");
+            e.printStackTrace();
+        }
+    }
+
+    private int nextSaturationValue(int index) {
+        // Simulate blood saturation values
+        int variation = randoms[index].nextInt(3) - 1; // -1, 0, or 1 to simulate small fluctuations
+        int newSaturationValue = lastSaturationValues[index] + variation;
+
+        // Ensure the saturation stays within a realistic and healthy range
+        newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
+        lastSaturationValues[index] = newSaturationValue;
+        return newSaturationValue;
+    }
 }
@@ -1,18 +1,33 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.outputs.MeasurementKind;
 import com.cardio_generator.outputs.OutputStrategy;
 
 public class ECGDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private final PatientRange patients;
+    private final SplittableRandom[] randoms;
+    private final SimulationClock clock;
     private double[] lastEcgValues;
     private static final double PI = Math.PI;
 
     public ECGDataGenerator(int patientCount) {
-        lastEcgValues = new double[patientCount + 1];
+        this(patientCount, RandomStreams.randomSeed());
+    }
+
+    public ECGDataGenerator(int patientCount, long seed) {
+        this(new PatientRange(1, patientCount), seed, SimulationClock.system());
+    }
+
+    public ECGDataGenerator(PatientRange patients, long seed, SimulationClock clock) {
+        this.patients = patients;
+        this.clock = clock;
+        randoms = RandomStreams.forPatients(seed, "ECG", patients);
+        lastEcgValues = new double[patients.size()];
         // Initialize the last ECG value for each patient
-        for (int i = 1; i <= patientCount; i++) {
+        for (int i = 0; i < patients.size(); i++) {
             lastEcgValues[i] = 0; // Initial ECG value can be set to 0
         }
     }
@@ -21,19 +36,37 @@ public class ECGDataGenerator implements PatientDataGenerator {
     public void generate(int patientId, OutputStrategy outputStrategy) {
         // TODO Check how realistic this data is and make it more realistic if necessary
         try {
-            double ecgValue = simulateEcgWaveform(patientId, lastEcgValues[patientId]);
-            outputStrategy.output(patientId, System.currentTimeMillis(), "ECG", Double.toString(ecgValue));
-            lastEcgValues[patientId] = ecgValue;
+            int index = patients.indexOf(patientId);
+            long timestamp = clock.currentTimeMillis();
+            double ecgValue = simulateEcgWaveform(randoms[index], timestamp / 1000.0);
+            outputStrategy.output(patientId, timestamp, MeasurementKind.ECG, ecgValue);
+            lastEcgValues[index] = ecgValue;
         } catch (Exception e) {
             System.err.println("An error occurred while generating ECG data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
 
-    private double simulateEcgWaveform(int patientId, double lastEcgValue) {
+    @Override
+    public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+        try {
+            double t = batch.getTimestamp() / 1000.0; // One time base for the whole tick
+            for (int i = from; i < to; i++) {
+                int patientId = patientIds[i];
+                int index = patients.indexOf(patientId);
+                double ecgValue = simulateEcgWaveform(randoms[index], t);
+                lastEcgValues[index] = ecgValue;
+                batch.add(patientId, MeasurementKind.ECG, ecgValue);
+            }
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating a batch of ECG data");
+            e.printStackTrace();
+        }
+    }
+
+    private double simulateEcgWaveform(SplittableRandom random, double t) {
         // Simplified ECG waveform generation based on sinusoids
         double hr = 60.0 + random.nextDouble() * 20.0; // Simulate heart rate variability between 60 and 80 bpm
-        double t = System.currentTimeMillis() / 1000.0; // Use system time to simulate continuous time
         double ecgFrequency = hr / 60.0; // Convert heart rate to Hz
 
         // Simulate different components of the ECG signal
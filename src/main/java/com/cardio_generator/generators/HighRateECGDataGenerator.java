@@ -0,0 +1,169 @@
+package com.cardio_generator.generators;
+
+import java.util.SplittableRandom;
+
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The {@code HighRateECGDataGenerator} class simulates an ECG monitor feed at a realistic
+ * sample rate (typically 250 to 500 Hz).
+ * <p>
+ * The waveform is synthesized from a precomputed lookup table of one heartbeat (P wave, QRS
+ * complex and T wave, each modelled as a Gaussian bump). Every patient walks through the
+ * template with its own phase and heart rate; the length of each beat varies slightly to
+ * simulate heart rate variability, and a small amount of noise is added to every sample.
+ * </p>
+ * <p>
+ * Each call produces one block of samples per patient, starting at the current time, which is
+ * passed on with {@link OutputStrategy#outputBlock}. The generator should therefore be scheduled
+ * once per block duration ({@code blockSize / sampleRateHz} seconds).
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     PatientDataGenerator generator = new HighRateECGDataGenerator(patients, seed, clock, 250, 250);
+ *     scheduler.schedule(generator, patientIds, 1, TimeUnit.SECONDS);
+ * </pre>
+ * </p>
+ *
+ * @see ECGDataGenerator
+ */
+public class HighRateECGDataGenerator implements PatientDataGenerator {
+
+    private static final int TEMPLATE_SIZE = 1024;
+    /** One heartbeat, normalized to an R peak of 1, indexed by phase within the beat. */
+    private static final double[] BEAT_TEMPLATE = buildBeatTemplate();
+    /** Relative beat-to-beat variation of the RR interval. */
+    private static final double HEART_RATE_VARIABILITY = 0.05;
+    private static final double NOISE = 0.02;
+
+    private final PatientRange patients;
+    private final SplittableRandom[] randoms;
+    private final SimulationClock clock;
+    private final int sampleRateHz;
+    private final int blockSize;
+    private final ThreadLocal<double[]> blockBuffers;
+
+    private final double[] phases; // position within the current beat, 0 to 1
+    private final double[] phaseSteps; // phase advance per sample for the current beat
+    private final double[] meanRrIntervals; // mean beat length in seconds
+    private final double[] amplitudes;
+
+    /**
+     * Constructs a new {@code HighRateECGDataGenerator}.
+     *
+     * @param patients     the patients for which ECG data will be generated
+     * @param seed         the global seed of the simulation
+     * @param clock        the clock stamping the generated data
+     * @param sampleRateHz the number of samples per second
+     * @param blockSize    the number of samples produced per patient and call
+     */
+    public HighRateECGDataGenerator(PatientRange patients, long seed, SimulationClock clock, int sampleRateHz,
+            int blockSize) {
+        if (sampleRateHz <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("Sample rate and block size must be positive");
+        }
+        this.patients = patients;
+        this.clock = clock;
+        this.sampleRateHz = sampleRateHz;
+        this.blockSize = blockSize;
+        this.blockBuffers = ThreadLocal.withInitial(() -> new double[blockSize]);
+        randoms = RandomStreams.forPatients(seed, "HighRateECG", patients);
+        phases = new double[patients.size()];
+        phaseSteps = new double[patients.size()];
+        meanRrIntervals = new double[patients.size()];
+        amplitudes = new double[patients.size()];
+
+        for (int i = 0; i < patients.size(); i++) {
+            SplittableRandom random = randoms[i];
+            double heartRate = 60.0 + random.nextDouble() * 20.0; // between 60 and 80 bpm
+            meanRrIntervals[i] = 60.0 / heartRate;
+            amplitudes[i] = 0.8 + random.nextDouble() * 0.4;
+            phases[i] = random.nextDouble(); // patients are not in sync
+            nextBeat(i);
+        }
+    }
+
+    @Override
+    public void generate(int patientId, OutputStrategy outputStrategy) {
+        try {
+            double[] block = blockBuffers.get();
+            synthesize(patients.indexOf(patientId), block, 0);
+            outputStrategy.outputBlock(patientId, clock.currentTimeMillis(), MeasurementKind.ECG, block, 0,
+                    blockSize, sampleRateHz);
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating high-rate ECG data for patient " + patientId);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+        try {
+            for (int i = from; i < to; i++) {
+                int patientId = patientIds[i];
+                int offset = batch.addBlock(patientId, MeasurementKind.ECG, blockSize, sampleRateHz);
+                synthesize(patients.indexOf(patientId), batch.getBlockSamples(), offset);
+            }
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating a batch of high-rate ECG data");
+            e.printStackTrace();
+        }
+    }
+
+    // Writes the next block of the patient's waveform into the buffer
+    private void synthesize(int index, double[] buffer, int offset) {
+        SplittableRandom random = randoms[index];
+        double phase = phases[index];
+        double phaseStep = phaseSteps[index];
+        double amplitude = amplitudes[index];
+        for (int i = 0; i < blockSize; i++) {
+            double position = phase * TEMPLATE_SIZE;
+            int sample = (int) position;
+            double fraction = position - sample;
+            double beat = BEAT_TEMPLATE[sample] + fraction * (BEAT_TEMPLATE[sample + 1] - BEAT_TEMPLATE[sample]);
+            buffer[offset + i] = amplitude * beat + (random.nextDouble() - 0.5) * NOISE;
+
+            phase += phaseStep;
+            if (phase >= 1) {
+                phase -= 1;
+                phases[index] = phase;
+                nextBeat(index);
+                phaseStep = phaseSteps[index];
+            }
+        }
+        phases[index] = phase;
+    }
+
+    // Draws the length of the patient's next beat
+    private void nextBeat(int index) {
+        double variation = (randoms[index].nextDouble() * 2 - 1) * HEART_RATE_VARIABILITY;
+        double rrInterval = meanRrIntervals[index] * (1 + variation);
+        phaseSteps[index] = 1.0 / (rrInterval * sampleRateHz);
+    }
+
+    private static double[] buildBeatTemplate() {
+        // Phase, width and amplitude of the P, Q, R, S and T waves within one beat
+        double[][] waves = {
+            {0.20, 0.025, 0.12},
+            {0.36, 0.008, -0.12},
+            {0.38, 0.010, 1.00},
+            {0.40, 0.008, -0.25},
+            {0.62, 0.040, 0.30},
+        };
+        // One extra entry so the interpolation never reads past the end
+        double[] template = new double[TEMPLATE_SIZE + 1];
+        for (int i = 0; i <= TEMPLATE_SIZE; i++) {
+            double phase = (double) i / TEMPLATE_SIZE;
+            double value = 0;
+            for (double[] wave : waves) {
+                double distance = (phase - wave[0]) / wave[1];
+                value += wave[2] * Math.exp(-0.5 * distance * distance);
+            }
+            template[i] = value;
+        }
+        return template;
+    }
+}
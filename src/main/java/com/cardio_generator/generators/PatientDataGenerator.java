@@ -16,6 +16,7 @@ import com.cardio_generator.outputs.OutputStrategy;
  * </p>
  *
  * @see com.cardio_generator.generators.ECGDataGenerator
+ * @see com.cardio_generator.generators.SampleBatch
  * @see com.cardio_generator.outputs.OutputStrategy
  */
 public interface PatientDataGenerator {
@@ -26,4 +27,20 @@ public interface PatientDataGenerator {
      * @param outputStrategy the strategy used to output the generated data
      */
     void generate(int patientId, OutputStrategy outputStrategy);
+
+    /**
+     * Generates simulated data for a range of patients in one pass and appends the samples to
+     * the given batch. All samples use the timestamp of the batch.
+     * <p>
+     * This is the bulk counterpart of {@link #generate(int, OutputStrategy)}: it is meant to be
+     * called once per tick for thousands of patients, so implementations must not allocate per
+     * sample.
+     * </p>
+     *
+     * @param patientIds the patient identifiers
+     * @param from       the index of the first patient in {@code patientIds} (inclusive)
+     * @param to         the index of the last patient in {@code patientIds} (exclusive)
+     * @param batch      the batch receiving the generated samples
+     */
+    void generate(int[] patientIds, int from, int to, SampleBatch batch);
 }
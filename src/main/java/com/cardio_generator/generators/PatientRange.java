@@ -0,0 +1,92 @@
+package com.cardio_generator.generators;
+
+/**
+ * The {@code PatientRange} class describes the contiguous block of patient ids a simulator
+ * process is responsible for.
+ * <p>
+ * Generators size their per-patient state to the range instead of to the total number of
+ * patients, so a process simulating one shard of a large population only keeps the state of
+ * its own patients. Patient ids stay global, so shards never produce overlapping ids.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     PatientRange shard = PatientRange.shard(100_000, 2, 4); // patients 50001 to 75000
+ *     PatientDataGenerator generator = new ECGDataGenerator(shard, seed, clock);
+ * </pre>
+ * </p>
+ */
+public final class PatientRange {
+
+    private final int firstId;
+    private final int lastId;
+
+    /**
+     * Constructs a new {@code PatientRange}.
+     *
+     * @param firstId the first patient id of the range (inclusive)
+     * @param lastId  the last patient id of the range (inclusive)
+     */
+    public PatientRange(int firstId, int lastId) {
+        if (firstId > lastId) {
+            throw new IllegalArgumentException("Empty patient range: " + firstId + "-" + lastId);
+        }
+        this.firstId = firstId;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Returns the slice of the patients 1 to {@code patientCount} owned by one of
+     * {@code shardCount} shards. Slices differ in size by at most one patient.
+     *
+     * @param patientCount the total number of patients
+     * @param shardIndex   the 0-based index of the shard
+     * @param shardCount   the number of shards
+     * @return the patient range of the shard
+     */
+    public static PatientRange shard(int patientCount, int shardIndex, int shardCount) {
+        if (shardCount <= 0 || shardIndex < 0 || shardIndex >= shardCount || shardCount > patientCount) {
+            throw new IllegalArgumentException("Invalid shard " + shardIndex + "/" + shardCount
+                    + " for " + patientCount + " patients");
+        }
+        int first = (int) ((long) patientCount * shardIndex / shardCount) + 1;
+        int last = (int) ((long) patientCount * (shardIndex + 1) / shardCount);
+        return new PatientRange(first, last);
+    }
+
+    /**
+     * @return the first patient id of the range
+     */
+    public int getFirstId() {
+        return firstId;
+    }
+
+    /**
+     * @return the last patient id of the range
+     */
+    public int getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return the number of patients in the range
+     */
+    public int size() {
+        return lastId - firstId + 1;
+    }
+
+    /**
+     * Maps a patient id to its index in the per-patient state arrays of a generator.
+     *
+     * @param patientId the patient id
+     * @return the 0-based index of the patient within the range
+     */
+    public int indexOf(int patientId) {
+        return patientId - firstId;
+    }
+
+    @Override
+    public String toString() {
+        return firstId + "-" + lastId;
+    }
+}
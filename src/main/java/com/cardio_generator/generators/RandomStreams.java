@@ -0,0 +1,61 @@
+package com.cardio_generator.generators;
+
+import java.util.SplittableRandom;
+
+/**
+ * The {@code RandomStreams} class creates the random number streams used by the generators.
+ * <p>
+ * Every patient of every generator gets its own {@link SplittableRandom}, derived from a
+ * global seed, the name of the stream and the patient id. Streams are never shared between
+ * threads, so there is no contention on a common seed, and a given seed reproduces exactly
+ * the same values for a patient no matter which thread or scheduler generates them.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     PatientRange patients = new PatientRange(1, 100);
+ *     SplittableRandom[] randoms = RandomStreams.forPatients(42L, "ECG", patients);
+ *     double noise = randoms[patients.indexOf(patientId)].nextDouble();
+ * </pre>
+ * </p>
+ */
+public final class RandomStreams {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private RandomStreams() {
+    }
+
+    /**
+     * @return a fresh, unpredictable seed for runs that do not ask for a specific one
+     */
+    public static long randomSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Creates one random stream per patient of the range, indexed by {@link PatientRange#indexOf(int)}.
+     * The stream of a patient only depends on the seed, the stream name and the patient id, so a
+     * patient gets the same values whether the population is simulated in one process or in shards.
+     *
+     * @param seed     the global seed of the simulation
+     * @param stream   the name of the stream, distinct per generator
+     * @param patients the patients to create streams for
+     * @return an array of {@code patients.size()} independent random streams
+     */
+    public static SplittableRandom[] forPatients(long seed, String stream, PatientRange patients) {
+        long streamSeed = mix64(seed ^ mix64(stream.hashCode()));
+        SplittableRandom[] randoms = new SplittableRandom[patients.size()];
+        for (int patientId = patients.getFirstId(); patientId <= patients.getLastId(); patientId++) {
+            randoms[patients.indexOf(patientId)] = new SplittableRandom(mix64(streamSeed + GOLDEN_GAMMA * patientId));
+        }
+        return randoms;
+    }
+
+    // Stafford's variant 13 of the 64-bit finalizer, as used by SplittableRandom itself
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,187 @@
+package com.cardio_generator.generators;
+
+import java.util.Arrays;
+
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The {@code SampleBatch} class is a reusable, columnar buffer for the samples of one
+ * generation tick.
+ * <p>
+ * All samples of a batch share a single timestamp. The columns grow on demand and are kept
+ * between ticks, so once a batch has reached its working size, filling and draining it does
+ * not allocate.
+ * </p>
+ * <p>
+ * Besides single samples, a batch can hold blocks of equally spaced samples (see
+ * {@link #addBlock(int, MeasurementKind, int, int)}) which start at the batch timestamp and
+ * are written as one block each.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     SampleBatch batch = new SampleBatch(1024);
+ *     batch.reset(System.currentTimeMillis());
+ *     generator.generate(patientIds, 0, patientIds.length, batch);
+ *     batch.drainTo(outputStrategy);
+ * </pre>
+ * </p>
+ *
+ * @see PatientDataGenerator#generate(int[], int, int, SampleBatch)
+ */
+public class SampleBatch {
+    private long timestamp;
+    private int size;
+    private int[] patientIds;
+    private MeasurementKind[] kinds;
+    private double[] values;
+
+    private int blockCount;
+    private int blockSampleCount;
+    private int[] blockPatientIds = new int[0];
+    private MeasurementKind[] blockKinds = new MeasurementKind[0];
+    private int[] blockOffsets = new int[0];
+    private int[] blockLengths = new int[0];
+    private int[] blockRates = new int[0];
+    private double[] blockSamples = new double[0];
+
+    /**
+     * Constructs a new, empty {@code SampleBatch}.
+     *
+     * @param initialCapacity the number of samples the batch can hold before growing
+     */
+    public SampleBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        patientIds = new int[capacity];
+        kinds = new MeasurementKind[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * Clears the batch and sets the timestamp shared by the samples of the next tick.
+     *
+     * @param timestamp the timestamp (in milliseconds since UNIX epoch) of the tick
+     */
+    public void reset(long timestamp) {
+        this.timestamp = timestamp;
+        this.size = 0;
+        this.blockCount = 0;
+        this.blockSampleCount = 0;
+    }
+
+    /**
+     * Appends a sample to the batch.
+     *
+     * @param patientId the patient the sample belongs to
+     * @param kind      the kind of measurement
+     * @param value     the measured value
+     */
+    public void add(int patientId, MeasurementKind kind, double value) {
+        if (size == patientIds.length) {
+            grow();
+        }
+        patientIds[size] = patientId;
+        kinds[size] = kind;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Reserves room for a block of equally spaced samples starting at the batch timestamp.
+     * The caller writes the samples into {@link #getBlockSamples()} starting at the returned offset.
+     *
+     * @param patientId    the patient the block belongs to
+     * @param kind         the kind of measurement
+     * @param length       the number of samples in the block
+     * @param sampleRateHz the number of samples per second
+     * @return the offset of the block in {@link #getBlockSamples()}
+     */
+    public int addBlock(int patientId, MeasurementKind kind, int length, int sampleRateHz) {
+        if (blockCount == blockPatientIds.length) {
+            int capacity = Math.max(16, blockCount * 2);
+            blockPatientIds = Arrays.copyOf(blockPatientIds, capacity);
+            blockKinds = Arrays.copyOf(blockKinds, capacity);
+            blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+            blockLengths = Arrays.copyOf(blockLengths, capacity);
+            blockRates = Arrays.copyOf(blockRates, capacity);
+        }
+        if (blockSampleCount + length > blockSamples.length) {
+            blockSamples = Arrays.copyOf(blockSamples, Math.max(blockSampleCount + length, blockSamples.length * 2));
+        }
+        int offset = blockSampleCount;
+        blockPatientIds[blockCount] = patientId;
+        blockKinds[blockCount] = kind;
+        blockOffsets[blockCount] = offset;
+        blockLengths[blockCount] = length;
+        blockRates[blockCount] = sampleRateHz;
+        blockCount++;
+        blockSampleCount += length;
+        return offset;
+    }
+
+    /**
+     * @return the buffer holding the samples of all blocks; only valid until the next {@code addBlock}
+     */
+    public double[] getBlockSamples() {
+        return blockSamples;
+    }
+
+    /**
+     * @return the number of blocks in the batch
+     */
+    public int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Writes all samples and blocks of the batch to the given output strategy and clears the batch.
+     *
+     * @param outputStrategy the strategy the samples are written to
+     */
+    public void drainTo(OutputStrategy outputStrategy) {
+        for (int i = 0; i < size; i++) {
+            outputStrategy.output(patientIds[i], timestamp, kinds[i], values[i]);
+        }
+        for (int b = 0; b < blockCount; b++) {
+            outputStrategy.outputBlock(blockPatientIds[b], timestamp, blockKinds[b], blockSamples, blockOffsets[b],
+                    blockLengths[b], blockRates[b]);
+        }
+        size = 0;
+        blockCount = 0;
+        blockSampleCount = 0;
+    }
+
+    /**
+     * @return the timestamp shared by all samples of the batch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the number of samples in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getPatientId(int index) {
+        return patientIds[index];
+    }
+
+    public MeasurementKind getKind(int index) {
+        return kinds[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    private void grow() {
+        int capacity = patientIds.length * 2;
+        patientIds = Arrays.copyOf(patientIds, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
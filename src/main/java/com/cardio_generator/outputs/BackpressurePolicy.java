@@ -0,0 +1,24 @@
+package com.cardio_generator.outputs;
+
+/**
+ * What a {@link RingBufferOutputStrategy} does when a producer finds its buffer full.
+ */
+public enum BackpressurePolicy {
+    /** The producer waits until the consumer has made room; nothing is lost. */
+    BLOCK,
+    /** The oldest record in the buffer is discarded to make room for the new one. */
+    DROP_OLDEST,
+    /** The new record is discarded; the buffered records are kept. */
+    DROP_NEWEST;
+
+    /**
+     * Parses a policy name as given on the command line, e.g. "drop-oldest".
+     *
+     * @param name the name of the policy, case insensitive, with '-' or '_' as separator
+     * @return the policy
+     * @throws IllegalArgumentException if the name is not a known policy
+     */
+    public static BackpressurePolicy fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,266 @@
+package com.cardio_generator.outputs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@code BinaryFileOutputStrategy} writes measurements to files in the compact
+ * {@link BinaryRecordFormat}, one file per kind of measurement (e.g. {@code ECG.bin}).
+ * <p>
+ * A record takes {@value BinaryRecordFormat#RECORD_SIZE} bytes instead of about 80 for a text
+ * line, and can be loaded without parsing (see {@code com.data_management.BinaryFileDataReader}).
+ * Like {@link FileOutputStrategy}, the files are kept open and written in group commits as
+ * configured by the {@link FileOutputOptions}; segmentation and compression are not supported.
+ * Existing files are appended to. A partial last record, e.g. left by a crash, is cut off first,
+ * so the records appended stay aligned; a file that is not a binary record file is not touched.
+ * </p>
+ * <p>
+ * Text records are stored if their label is a known {@link MeasurementKind} and their data can be
+ * parsed; other records cannot be represented and are skipped.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     OutputStrategy output = new BinaryFileOutputStrategy("/data/archive");
+ *     output.output(1, System.currentTimeMillis(), MeasurementKind.ECG, 0.42);
+ *     output.close();
+ * </pre>
+ * </p>
+ *
+ * @see BinaryRecordFormat
+ */
+public class BinaryFileOutputStrategy implements OutputStrategy {
+
+    private final Path baseDirectory;
+    private final FileOutputOptions options;
+    private final AtomicReferenceArray<KindWriter> writers = new AtomicReferenceArray<>(
+            MeasurementKind.values().length);
+    private final ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code BinaryFileOutputStrategy} with the default {@link FileOutputOptions}.
+     *
+     * @param baseDirectory the directory for the record files
+     */
+    public BinaryFileOutputStrategy(String baseDirectory) {
+        this(baseDirectory, new FileOutputOptions());
+    }
+
+    /**
+     * Constructs a new {@code BinaryFileOutputStrategy}.
+     *
+     * @param baseDirectory the directory for the record files
+     * @param options       the buffering and sync options
+     */
+    public BinaryFileOutputStrategy(String baseDirectory, FileOutputOptions options) {
+        this.baseDirectory = Paths.get(baseDirectory);
+        this.options = options;
+        try {
+            Files.createDirectories(this.baseDirectory);
+        } catch (IOException e) {
+            System.err.println("Error creating base directory: " + e.getMessage());
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "binary-output-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, options.getFlushIntervalMillis(),
+                options.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        MeasurementKind kind = MeasurementKind.fromLabel(label);
+        if (kind == null) {
+            return;
+        }
+        double value;
+        try {
+            value = kind.parse(data);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        output(patientId, timestamp, kind, value);
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        if (closed) {
+            return;
+        }
+        KindWriter writer = writerFor(kind);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.append(patientId, timestamp, kind, value);
+        } catch (IOException e) {
+            System.err.println("Error writing to file " + writer.path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes all buffered records and closes the files.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writers) {
+            for (int i = 0; i < writers.length(); i++) {
+                KindWriter writer = writers.get(i);
+                if (writer == null) {
+                    continue;
+                }
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing file " + writer.path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records of all kinds to their files.
+     */
+    public void flushAll() {
+        for (int i = 0; i < writers.length(); i++) {
+            KindWriter writer = writers.get(i);
+            if (writer == null) {
+                continue;
+            }
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + writer.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private KindWriter writerFor(MeasurementKind kind) {
+        KindWriter writer = writers.get(kind.ordinal());
+        if (writer != null) {
+            return writer;
+        }
+        synchronized (writers) {
+            writer = writers.get(kind.ordinal());
+            if (writer == null) {
+                Path path = baseDirectory.resolve(kind.label() + BinaryRecordFormat.EXTENSION);
+                try {
+                    writer = new KindWriter(path, options);
+                } catch (IOException e) {
+                    System.err.println("Error opening file " + path + ": " + e.getMessage());
+                    return null;
+                }
+                writers.set(kind.ordinal(), writer);
+            }
+            return writer;
+        }
+    }
+
+    /**
+     * The open file and the buffer of one kind of measurement.
+     */
+    private static final class KindWriter {
+        final Path path;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final FileOutputOptions.SyncPolicy syncPolicy;
+
+        KindWriter(Path path, FileOutputOptions options) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = ByteBuffer.allocate(Math.max(options.getFlushBytes(), BinaryRecordFormat.HEADER_SIZE
+                    + BinaryRecordFormat.RECORD_SIZE));
+            this.syncPolicy = options.getSyncPolicy();
+            try {
+                prepareForAppend();
+                channel.position(channel.size());
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // Writes the header of a new file, or cuts an existing one back to its last whole record
+        private void prepareForAppend() throws IOException {
+            long size = channel.size();
+            if (size < BinaryRecordFormat.HEADER_SIZE) {
+                if (size > 0) {
+                    System.err.println("Rewriting the partial header of " + path);
+                    channel.truncate(0);
+                }
+                BinaryRecordFormat.writeHeader(buffer);
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(BinaryRecordFormat.HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // Read the whole header
+            }
+            header.flip();
+            try {
+                BinaryRecordFormat.checkHeader(header);
+            } catch (IOException e) {
+                throw new IOException(path + " cannot be appended to: " + e.getMessage(), e);
+            }
+            long records = (size - BinaryRecordFormat.HEADER_SIZE) / BinaryRecordFormat.RECORD_SIZE;
+            long end = BinaryRecordFormat.HEADER_SIZE + records * BinaryRecordFormat.RECORD_SIZE;
+            if (end < size) {
+                System.err.println("Cutting off a partial record of " + (size - end) + " bytes at the end of "
+                        + path);
+                channel.truncate(end);
+            }
+        }
+
+        synchronized void append(int patientId, long timestamp, MeasurementKind kind, double value)
+                throws IOException {
+            if (buffer.remaining() < BinaryRecordFormat.RECORD_SIZE) {
+                flush();
+            }
+            BinaryRecordFormat.writeRecord(buffer, patientId, timestamp, kind, value);
+        }
+
+        synchronized void flush() throws IOException {
+            if (buffer.position() == 0) {
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            if (syncPolicy == FileOutputOptions.SyncPolicy.ON_FLUSH) {
+                channel.force(false);
+            }
+        }
+
+        synchronized void close() throws IOException {
+            flush();
+            if (syncPolicy != FileOutputOptions.SyncPolicy.NONE) {
+                channel.force(false);
+            }
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.cardio_generator.outputs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code BinaryFrameDecoder} turns a stream of length-prefixed frames of binary records
+ * (see {@link BinaryRecordFormat}) back into measurements.
+ * <p>
+ * Bytes can be passed in chunks of any size, as they arrive from the network; a frame split
+ * across chunks is kept until it is complete. Complete frames are decoded straight from the
+ * given buffer without creating objects per record.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     BinaryFrameDecoder decoder = new BinaryFrameDecoder(
+ *             (patientId, timestamp, kind, value) -> storage.addPatientData(patientId, value, kind.label(), timestamp));
+ *     while (channel.read(buffer) >= 0) {
+ *         buffer.flip();
+ *         decoder.decode(buffer);
+ *         buffer.clear();
+ *     }
+ * </pre>
+ * </p>
+ */
+public class BinaryFrameDecoder {
+
+    /**
+     * Receives the decoded records.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        /**
+         * Called for every decoded record.
+         *
+         * @param patientId the patient id
+         * @param timestamp the timestamp in milliseconds since UNIX epoch
+         * @param kind      the kind of measurement
+         * @param value     the value
+         */
+        void accept(int patientId, long timestamp, MeasurementKind kind, double value);
+    }
+
+    private final RecordConsumer consumer;
+    private ByteBuffer partial = ByteBuffer.allocate(64 * 1024); // Start of an incomplete frame
+    private long frameCount;
+    private long recordCount;
+
+    /**
+     * Constructs a new {@code BinaryFrameDecoder}.
+     *
+     * @param consumer receives the decoded records
+     */
+    public BinaryFrameDecoder(RecordConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Decodes all complete frames in the buffer, consuming its remaining bytes. Bytes of an
+     * incomplete frame are kept for the next call.
+     *
+     * @param input the received bytes, between position and limit
+     * @throws IOException if the stream contains an invalid frame or record
+     */
+    public void decode(ByteBuffer input) throws IOException {
+        if (partial.position() == 0) {
+            decodeFrames(input);
+            if (input.hasRemaining()) {
+                keep(input);
+            }
+            return;
+        }
+        keep(input);
+        partial.flip();
+        try {
+            decodeFrames(partial);
+        } finally {
+            partial.compact();
+        }
+    }
+
+    /**
+     * @return the number of frames decoded
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the number of records decoded
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // Decodes complete frames and leaves the position at the first incomplete one
+    private void decodeFrames(ByteBuffer buffer) throws IOException {
+        while (buffer.remaining() >= BinaryRecordFormat.FRAME_HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length < 0 || length > BinaryRecordFormat.MAX_FRAME_SIZE
+                    || length % BinaryRecordFormat.RECORD_SIZE != 0) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (buffer.remaining() < BinaryRecordFormat.FRAME_HEADER_SIZE + length) {
+                return;
+            }
+            int end = start + BinaryRecordFormat.FRAME_HEADER_SIZE + length;
+            for (int offset = start + BinaryRecordFormat.FRAME_HEADER_SIZE; offset < end;
+                    offset += BinaryRecordFormat.RECORD_SIZE) {
+                MeasurementKind kind = BinaryRecordFormat.kindOf(buffer.getShort(offset + 12));
+                if (kind == null) {
+                    throw new IOException("Unknown kind " + buffer.getShort(offset + 12));
+                }
+                consumer.accept(buffer.getInt(offset), buffer.getLong(offset + 4), kind,
+                        buffer.getDouble(offset + 14));
+                recordCount++;
+            }
+            frameCount++;
+            buffer.position(end);
+        }
+    }
+
+    private void keep(ByteBuffer input) {
+        if (partial.remaining() < input.remaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(partial.capacity() * 2,
+                    partial.position() + input.remaining()));
+            partial.flip();
+            larger.put(partial);
+            partial = larger;
+        }
+        partial.put(input);
+    }
+}
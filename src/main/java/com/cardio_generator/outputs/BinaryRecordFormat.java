@@ -0,0 +1,93 @@
+package com.cardio_generator.outputs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code BinaryRecordFormat} defines the compact fixed-width file format written by
+ * {@link BinaryFileOutputStrategy}.
+ * <p>
+ * A file starts with an 8 byte header: the magic number {@code "CDR1"} followed by the record
+ * size as an {@code int}. It is followed by records of {@value #RECORD_SIZE} bytes, all big-endian:
+ * </p>
+ * <pre>
+ *     int    patient id
+ *     long   timestamp in milliseconds since UNIX epoch
+ *     short  kind, the ordinal of the {@link MeasurementKind}
+ *     double value
+ * </pre>
+ * <p>
+ * Kinds are stored by ordinal, so new kinds may only be appended to {@link MeasurementKind}.
+ * </p>
+ * <p>
+ * On a stream (see {@link TcpOutputStrategy.Format#FRAMED}) records are sent in frames without a
+ * file header: an {@code int} with the length of the payload in bytes, followed by that many
+ * bytes of records. {@link BinaryFrameDecoder} reads such a stream.
+ * </p>
+ */
+public final class BinaryRecordFormat {
+
+    /** The first four bytes of every file: "CDR1". */
+    public static final int MAGIC = 0x43445231;
+    /** The size of the file header in bytes. */
+    public static final int HEADER_SIZE = 8;
+    /** The size of one record in bytes. */
+    public static final int RECORD_SIZE = 4 + 8 + 2 + 8;
+    /** The size of the length prefix of a frame in bytes. */
+    public static final int FRAME_HEADER_SIZE = 4;
+    /** The largest payload of a frame a decoder accepts. */
+    public static final int MAX_FRAME_SIZE = 16 << 20;
+    /** The extension of binary record files. */
+    public static final String EXTENSION = ".bin";
+
+    private static final MeasurementKind[] KINDS = MeasurementKind.values();
+
+    private BinaryRecordFormat() {
+    }
+
+    /**
+     * Writes the file header.
+     *
+     * @param buffer the buffer to write to, with big-endian byte order
+     */
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(RECORD_SIZE);
+    }
+
+    /**
+     * Checks the file header at the start of the buffer.
+     *
+     * @param buffer the buffer holding the file, with big-endian byte order
+     * @throws IOException if the buffer does not start with a valid header
+     */
+    public static void checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary record file");
+        }
+        if (buffer.getInt(4) != RECORD_SIZE) {
+            throw new IOException("Unsupported record size " + buffer.getInt(4));
+        }
+    }
+
+    /**
+     * Writes one record at the position of the buffer.
+     *
+     * @param buffer    the buffer to write to, with big-endian byte order
+     * @param patientId the patient id
+     * @param timestamp the timestamp in milliseconds since UNIX epoch
+     * @param kind      the kind of measurement
+     * @param value     the value
+     */
+    public static void writeRecord(ByteBuffer buffer, int patientId, long timestamp, MeasurementKind kind,
+            double value) {
+        buffer.putInt(patientId).putLong(timestamp).putShort((short) kind.ordinal()).putDouble(value);
+    }
+
+    /**
+     * @param kindCode the stored kind of a record
+     * @return the kind, or {@code null} if the code is unknown
+     */
+    public static MeasurementKind kindOf(int kindCode) {
+        return kindCode >= 0 && kindCode < KINDS.length ? KINDS[kindCode] : null;
+    }
+}
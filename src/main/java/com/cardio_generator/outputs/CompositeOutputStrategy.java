@@ -0,0 +1,155 @@
+package com.cardio_generator.outputs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code CompositeOutputStrategy} fans every record out to several outputs.
+ * <p>
+ * Each output gets its own lane: a {@link RingBufferOutputStrategy} with a dedicated thread.
+ * A slow output therefore only fills its own buffer and, depending on the
+ * {@link BackpressurePolicy}, loses its own records, without delaying the other outputs.
+ * Only {@link BackpressurePolicy#BLOCK} lets a full lane hold up the producers and thereby all
+ * other lanes. The policy can be chosen per output, e.g. so an archive never loses records
+ * while live outputs drop theirs.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     CompositeOutputStrategy outputs = new CompositeOutputStrategy(65536, BackpressurePolicy.DROP_OLDEST);
+ *     outputs.addOutput("file:/data", new FileOutputStrategy("/data"));
+ *     outputs.addOutput("websocket:8080", new WebSocketOutputStrategy(8080));
+ *     outputs.output(1, System.currentTimeMillis(), MeasurementKind.ECG, 0.42);
+ * </pre>
+ * </p>
+ *
+ * @see RingBufferOutputStrategy
+ */
+public class CompositeOutputStrategy implements OutputStrategy {
+
+    private final int laneCapacity;
+    private final BackpressurePolicy policy;
+    private final List<String> names = new ArrayList<>();
+    private final List<RingBufferOutputStrategy> lanes = new ArrayList<>();
+    private final List<Long> reportedDrops = new ArrayList<>(); // Dropped count of each lane at the last drop report
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Constructs a new {@code CompositeOutputStrategy} without outputs.
+     *
+     * @param laneCapacity the number of records buffered per output
+     * @param policy       what to do when the buffer of an output is full, unless given per output
+     */
+    public CompositeOutputStrategy(int laneCapacity, BackpressurePolicy policy) {
+        this.laneCapacity = laneCapacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Adds an output with its own buffer and writer thread. Outputs have to be added before
+     * the first record is written.
+     *
+     * @param name   the name of the output in the throughput report
+     * @param output the output
+     */
+    public void addOutput(String name, OutputStrategy output) {
+        addOutput(name, output, policy);
+    }
+
+    /**
+     * Adds an output with its own buffer, writer thread and backpressure policy. Outputs have to
+     * be added before the first record is written.
+     *
+     * @param name   the name of the output in the reports
+     * @param output the output
+     * @param policy what to do when the buffer of this output is full
+     */
+    public void addOutput(String name, OutputStrategy output, BackpressurePolicy policy) {
+        names.add(name);
+        lanes.add(new RingBufferOutputStrategy(output, laneCapacity, policy));
+        reportedDrops.add(0L);
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        for (int i = 0; i < lanes.size(); i++) {
+            lanes.get(i).output(patientId, timestamp, label, data);
+        }
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        for (int i = 0; i < lanes.size(); i++) {
+            lanes.get(i).output(patientId, timestamp, kind, value);
+        }
+    }
+
+    @Override
+    public void outputBlock(int patientId, long startTimestamp, MeasurementKind kind, double[] samples, int offset,
+            int length, int sampleRateHz) {
+        for (int i = 0; i < lanes.size(); i++) {
+            lanes.get(i).outputBlock(patientId, startTimestamp, kind, samples, offset, length, sampleRateHz);
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (int i = 0; i < lanes.size(); i++) {
+            lanes.get(i).flush();
+        }
+    }
+
+    /**
+     * Writes the records still buffered and closes all outputs.
+     */
+    @Override
+    public void close() {
+        for (RingBufferOutputStrategy lane : lanes) {
+            lane.close();
+        }
+    }
+
+    /**
+     * @return the buffered lane of every output, in the order they were added
+     */
+    public List<RingBufferOutputStrategy> getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Describes the records each output dropped since the previous call, so losses can be
+     * reported while the simulation runs.
+     *
+     * @return one line per output that dropped records since the previous call
+     */
+    public synchronized List<String> getDropReport() {
+        List<String> report = new ArrayList<>();
+        for (int i = 0; i < lanes.size(); i++) {
+            long dropped = lanes.get(i).getDroppedCount();
+            long newlyDropped = dropped - reportedDrops.get(i);
+            if (newlyDropped > 0) {
+                reportedDrops.set(i, dropped);
+                report.add(String.format("%s: dropped %d records (%d in total), the output is too slow",
+                        names.get(i), newlyDropped, dropped));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Describes the throughput of every output since this strategy was created.
+     *
+     * @return one line per output with the written and dropped records, the average rate and the queue depth
+     */
+    public List<String> getThroughputReport() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        List<String> report = new ArrayList<>();
+        for (int i = 0; i < lanes.size(); i++) {
+            RingBufferOutputStrategy lane = lanes.get(i);
+            report.add(String.format("%s: %d records written (%.0f/s), %d dropped, %d queued", names.get(i),
+                    lane.getDeliveredCount(), lane.getDeliveredCount() / seconds, lane.getDroppedCount(),
+                    lane.getQueueDepth()));
+        }
+        return report;
+    }
+}
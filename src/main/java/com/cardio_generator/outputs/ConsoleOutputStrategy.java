@@ -1,8 +1,165 @@
 package com.cardio_generator.outputs;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ConsoleOutputStrategy} prints every record as a
+ * "Patient ID: ..., Timestamp: ..., Label: ..., Data: ..." line to the console.
+ * <p>
+ * The generator threads do not print themselves: records are handed to a
+ * {@link RingBufferOutputStrategy}, whose single writer thread encodes them with a
+ * {@link RecordEncoder} into a reused buffer and writes it to the console in large chunks,
+ * at the end of every tick and at the latest after {@value #LINGER_MILLIS} ms. With a
+ * sampling interval of {@code n}, only every n-th record of every generator thread is
+ * printed, which keeps the console readable with many patients.
+ * </p>
+ */
 public class ConsoleOutputStrategy implements OutputStrategy {
+
+    /** The number of records that can wait for the writer thread. */
+    public static final int QUEUE_CAPACITY = 65536;
+    /** The longest time printed records stay buffered. */
+    public static final long LINGER_MILLIS = 100;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final int sampleEvery;
+    // Counted per thread, so the generator threads do not contend on a shared counter
+    private final ThreadLocal<long[]> received = ThreadLocal.withInitial(() -> new long[1]);
+    private final RingBufferOutputStrategy queue;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Constructs a {@code ConsoleOutputStrategy} printing every record to {@code System.out}.
+     */
+    public ConsoleOutputStrategy() {
+        this(System.out, 1);
+    }
+
+    /**
+     * Constructs a {@code ConsoleOutputStrategy} printing every n-th record to {@code System.out}.
+     *
+     * @param sampleEvery the sampling interval; 1 prints every record
+     */
+    public ConsoleOutputStrategy(int sampleEvery) {
+        this(System.out, sampleEvery);
+    }
+
+    /**
+     * Constructs a {@code ConsoleOutputStrategy} and starts its writer thread.
+     *
+     * @param out         the stream the records are printed to
+     * @param sampleEvery the sampling interval; 1 prints every record
+     */
+    public ConsoleOutputStrategy(OutputStream out, int sampleEvery) {
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive: " + sampleEvery);
+        }
+        this.sampleEvery = sampleEvery;
+        queue = new RingBufferOutputStrategy(new LineWriter(out), QUEUE_CAPACITY, BackpressurePolicy.BLOCK);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "console-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Only queues a marker, the writer thread does the writing
+        flusher.scheduleWithFixedDelay(queue::flush, LINGER_MILLIS, LINGER_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        System.out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", patientId, timestamp, label, data);
+        if (sampled()) {
+            queue.output(patientId, timestamp, label, data);
+        }
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        if (sampled()) {
+            queue.output(patientId, timestamp, kind, value);
+        }
+    }
+
+    @Override
+    public void flush() {
+        queue.flush();
+    }
+
+    /**
+     * Prints the queued records and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        queue.close();
+    }
+
+    private boolean sampled() {
+        return sampleEvery == 1 || received.get()[0]++ % sampleEvery == 0;
+    }
+
+    /**
+     * Formats the records on the writer thread and writes them in chunks of up to
+     * {@value #BUFFER_BYTES} bytes.
+     */
+    private static final class LineWriter implements OutputStrategy {
+        private final OutputStream out;
+        private final RecordEncoder encoder = new RecordEncoder(RecordEncoder.Layout.LABELED);
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+        LineWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            encoder.encode(patientId, timestamp, label, data);
+            append();
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+            encoder.encode(patientId, timestamp, kind, value);
+            append();
+        }
+
+        // Buffers the record in the encoder
+        private void append() {
+            if (encoder.length() > buffer.remaining()) {
+                flush();
+            }
+            if (encoder.length() > buffer.remaining()) {
+                write(encoder.bytes(), encoder.length()); // Longer than the whole buffer
+            } else {
+                encoder.writeTo(buffer);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (buffer.position() > 0) {
+                write(buffer.array(), buffer.position());
+                buffer.clear();
+            }
+        }
+
+        private void write(byte[] bytes, int length) {
+            try {
+                out.write(bytes, 0, length);
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("An error occurred while writing to the console.");
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
     }
 }
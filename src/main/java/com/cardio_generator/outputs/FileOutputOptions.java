@@ -0,0 +1,199 @@
+package com.cardio_generator.outputs;
+
+/**
+ * Tuning options of a {@link FileOutputStrategy}.
+ * <p>
+ * Records are collected in a per-label buffer and written to the file in groups: when the
+ * buffer holds {@link #getFlushBytes()} bytes, and at the latest every
+ * {@link #getFlushIntervalMillis()} milliseconds. The {@link SyncPolicy} decides whether
+ * written data is additionally forced to the storage device.
+ * </p>
+ * <p>
+ * By default each label is appended to a single file. Setting a segment size or duration
+ * switches to segmented mode: each label is written to numbered segment files that are closed
+ * when they reach the size or span of time, optionally compressed, and described by a {@link SegmentIndex}.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     FileOutputOptions options = new FileOutputOptions()
+ *             .flushBytes(256 * 1024)
+ *             .flushIntervalMillis(500)
+ *             .syncPolicy(FileOutputOptions.SyncPolicy.ON_FLUSH);
+ *     OutputStrategy output = new FileOutputStrategy("/data/output", options);
+ * </pre>
+ * </p>
+ */
+public class FileOutputOptions {
+
+    /**
+     * When written data is forced to the storage device with {@code fsync}.
+     */
+    public enum SyncPolicy {
+        /** Never; the operating system decides when to write its cache. */
+        NONE,
+        /** Once, when the output is closed. */
+        ON_CLOSE,
+        /** After every group commit; the safest and slowest option. */
+        ON_FLUSH;
+
+        /**
+         * Parses a policy name as given on the command line: "none", "close" or "flush".
+         *
+         * @param name the name of the policy
+         * @return the policy
+         * @throws IllegalArgumentException if the name is not a known policy
+         */
+        public static SyncPolicy fromName(String name) {
+            switch (name.trim().toLowerCase()) {
+                case "none":
+                    return NONE;
+                case "close":
+                    return ON_CLOSE;
+                case "flush":
+                    return ON_FLUSH;
+                default:
+                    throw new IllegalArgumentException("Unknown sync policy: " + name);
+            }
+        }
+    }
+
+    /**
+     * How closed segments are compressed.
+     */
+    public enum Compression {
+        /** Segments are kept as written. */
+        NONE,
+        /** Segments are gzip compressed in the background and get the extension {@code .gz}. */
+        GZIP;
+
+        /**
+         * Parses a compression name as given on the command line: "none" or "gzip".
+         *
+         * @param name the name of the compression
+         * @return the compression
+         * @throws IllegalArgumentException if the name is not a known compression
+         */
+        public static Compression fromName(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    private int flushBytes = 64 * 1024;
+    private long flushIntervalMillis = 1000;
+    private SyncPolicy syncPolicy = SyncPolicy.ON_CLOSE;
+    private long segmentBytes; // 0 = no size limit
+    private long segmentMillis; // 0 = no age limit
+    private Compression compression = Compression.NONE;
+
+    /**
+     * Sets the number of buffered bytes per label after which they are written to the file.
+     *
+     * @param flushBytes the size of the buffer of each label
+     * @return these options
+     */
+    public FileOutputOptions flushBytes(int flushBytes) {
+        if (flushBytes <= 0) {
+            throw new IllegalArgumentException("Flush size must be positive: " + flushBytes);
+        }
+        this.flushBytes = flushBytes;
+        return this;
+    }
+
+    /**
+     * Sets the longest time records stay in the buffer before they are written to the file.
+     *
+     * @param flushIntervalMillis the flush interval in milliseconds
+     * @return these options
+     */
+    public FileOutputOptions flushIntervalMillis(long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + flushIntervalMillis);
+        }
+        this.flushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Sets when written data is forced to the storage device.
+     *
+     * @param syncPolicy the sync policy
+     * @return these options
+     */
+    public FileOutputOptions syncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the size after which a segment is closed and the next one started. Enables segmented mode.
+     *
+     * @param segmentBytes the largest size of an uncompressed segment, 0 for no limit
+     * @return these options
+     */
+    public FileOutputOptions segmentBytes(long segmentBytes) {
+        if (segmentBytes < 0) {
+            throw new IllegalArgumentException("Segment size must not be negative: " + segmentBytes);
+        }
+        this.segmentBytes = segmentBytes;
+        return this;
+    }
+
+    /**
+     * Sets the span of data time after which a segment is closed and the next one started: a record
+     * whose timestamp lies this far after the first record of the segment starts a new segment.
+     * Enables segmented mode.
+     *
+     * @param segmentMillis the longest span of timestamps in a segment in milliseconds, 0 for no limit
+     * @return these options
+     */
+    public FileOutputOptions segmentMillis(long segmentMillis) {
+        if (segmentMillis < 0) {
+            throw new IllegalArgumentException("Segment duration must not be negative: " + segmentMillis);
+        }
+        this.segmentMillis = segmentMillis;
+        return this;
+    }
+
+    /**
+     * Sets how closed segments are compressed. Only used in segmented mode.
+     *
+     * @param compression the compression
+     * @return these options
+     */
+    public FileOutputOptions compression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @return whether labels are written to rolling segment files
+     */
+    public boolean isSegmented() {
+        return segmentBytes > 0 || segmentMillis > 0;
+    }
+
+    public int getFlushBytes() {
+        return flushBytes;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    public long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public long getSegmentMillis() {
+        return segmentMillis;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+}
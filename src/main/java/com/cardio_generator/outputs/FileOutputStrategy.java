@@ -1,24 +1,43 @@
 package com.cardio_generator.outputs;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * The {@code FileOutputStrategy} class implements the {@code OutputStrategy} interface
  * and provides functionality for writing health data output to files.
  * <p>
- * This strategy creates or appends to text files in a specified base directory.
- * For each label, it stores or retrieves the corresponding file path using an internal map.
+ * This strategy creates or appends to one text file per label in a specified base directory.
+ * Each file is opened once and kept open; records are collected in a per-label buffer and
+ * appended in groups (group commit), when the buffer is full and at the latest after the flush
+ * interval of the {@link FileOutputOptions}. {@link #close()} writes the remaining records and
+ * closes the files.
+ * </p>
+ * <p>
+ * In segmented mode (see {@link FileOutputOptions#segmentBytes(long)}) each label is written to
+ * numbered segments such as {@code ECG-000001.txt} instead of a single file. Closed segments are
+ * compressed on a background thread if requested, and each gets a {@link SegmentIndex}.
  * </p>
  *
  * <p>Example usage:
  * <pre>
  *   OutputStrategy outputStrategy = new FileOutputStrategy("/data/output");
  *   outputStrategy.output(123, System.currentTimeMillis(), "HeartRate", "72 bpm");
+ *   outputStrategy.close();
  * </pre>
  * </p>
  *
@@ -31,23 +50,57 @@ public class FileOutputStrategy implements OutputStrategy {
     // Changed variable name to camelCase.
     public final ConcurrentHashMap<String, String> fileMap = new ConcurrentHashMap<>();
 
+    private final FileOutputOptions options;
+    private final ConcurrentHashMap<String, LabelWriter> writers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService compressor; // Only used for compressed segments
+    private volatile boolean closed;
+
     /**
-     * Constructs a new {@code FileOutputStrategy} with the specified base directory.
+     * Constructs a new {@code FileOutputStrategy} with the specified base directory and the
+     * default {@link FileOutputOptions}.
      * The base directory is used as the root for all output files.
      *
      * @param baseDirectory the base directory for storing output files
      */
     public FileOutputStrategy(String baseDirectory) {
+        this(baseDirectory, new FileOutputOptions());
+    }
+
+    /**
+     * Constructs a new {@code FileOutputStrategy} with the specified base directory and options.
+     *
+     * @param baseDirectory the base directory for storing output files
+     * @param options       the buffering and sync options
+     */
+    public FileOutputStrategy(String baseDirectory, FileOutputOptions options) {
         //corected baseDirectory variable
         this.baseDirectory = baseDirectory;
+        this.options = options;
+        try {
+            Files.createDirectories(Paths.get(baseDirectory));
+        } catch (IOException e) {
+            System.err.println("Error creating base directory: " + e.getMessage());
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-output-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compressor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-output-compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, options.getFlushIntervalMillis(),
+                options.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Writes the specified data to a file determined by the label.
+     * Appends the specified data to the file determined by the label.
      * <p>
-     * This method creates the base directory if it does not exist, determines the file path
-     * based on the label (caching it for performance), and writes a formatted line containing
-     * the patient id, timestamp, label, and data to the file. The file is opened in append mode.
+     * The line contains the patient id, timestamp, label, and data. It is buffered and reaches
+     * the file with the next group commit.
      * </p>
      *
      * @param patientId the ID of the patient whose data is being written
@@ -57,26 +110,295 @@ public class FileOutputStrategy implements OutputStrategy {
      */
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
+        LabelWriter writer = writerFor(label);
+        if (writer == null) {
+            return;
+        }
         try {
-            // Create the directory
-            //corected baseDirectory variable
-            Files.createDirectories(Paths.get(baseDirectory));
+            writer.append(patientId, timestamp, label, data);
         } catch (IOException e) {
-            System.err.println("Error creating base directory: " + e.getMessage());
+            System.err.println("Error writing to file " + writer.path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends a numeric measurement to the file of its label, in the same form as
+     * {@link #output(int, long, String, String)} with {@link MeasurementKind#format(double)}
+     * would, but without building strings.
+     */
+    @Override
+    public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        LabelWriter writer = writerFor(kind.label());
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.append(patientId, timestamp, kind, value);
+        } catch (IOException e) {
+            System.err.println("Error writing to file " + writer.path + ": " + e.getMessage());
+        }
+    }
+
+    // Null if closed or the file could not be opened
+    private LabelWriter writerFor(String label) {
+        if (closed) {
+            return null;
+        }
+        LabelWriter writer = writers.get(label);
+        return writer != null ? writer : writers.computeIfAbsent(label, this::openWriter);
+    }
+
+    /**
+     * Writes all buffered records and closes the files.
+     */
+    @Override
+    public void close() {
+        if (closed) {
             return;
         }
-        // Set the filePath variable
-        //corected fileMapc and baseDirectory variable and changed variable name to camelCase.
-        String filePath = fileMap.computeIfAbsent(label, k -> Paths.get(baseDirectory, label + ".txt").toString());
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LabelWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing file " + writer.path + ": " + e.getMessage());
+            }
+        }
+        compressor.shutdown();
+        try {
+            compressor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the buffered records of all labels to their files.
+     */
+    public void flushAll() {
+        for (LabelWriter writer : writers.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + writer.path + ": " + e.getMessage());
+            }
+        }
+    }
 
-        // Write the data to the file
-        try (PrintWriter out = new PrintWriter(
-                 //corected filePath variable
-                Files.newBufferedWriter(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
-            out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", patientId, timestamp, label, data);
-        } catch (Exception e) {
+    private LabelWriter openWriter(String label) {
+        try {
+            return new LabelWriter(label);
+        } catch (IOException e) {
              //corected filePath variable
-            System.err.println("Error writing to file " + filePath + ": " + e.getMessage());
+            System.err.println("Error opening file for " + label + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Compresses a closed segment, then publishes its index
+    private void compress(Path segment, SegmentIndex index) {
+        Path compressed = segment.resolveSibling(segment.getFileName() + ".gz");
+        Path temporary = segment.resolveSibling(segment.getFileName() + ".gz.tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+                Files.copy(segment, out);
+            }
+            Files.move(temporary, compressed, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(segment);
+            index.write();
+        } catch (IOException e) {
+            System.err.println("Error compressing segment " + segment + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The open file and the buffer of one label. All methods lock the writer, so records of
+     * concurrent producers never interleave within a line.
+     * <p>
+     * In segmented mode the writer also tracks the range of the current segment, and closes it
+     * and opens the next one when it is full or old enough.
+     * </p>
+     */
+    private final class LabelWriter {
+        private final String label;
+        private final ByteBuffer buffer;
+        private final RecordEncoder encoder = new RecordEncoder(RecordEncoder.Layout.LABELED);
+        private final FileOutputOptions.SyncPolicy syncPolicy;
+        Path path;
+        private FileChannel channel;
+
+        // Current segment
+        private int segmentNumber;
+        private long segmentBytes;
+        private long recordCount;
+        private long minTimestamp;
+        private long maxTimestamp;
+        private int minPatientId;
+        private int maxPatientId;
+
+        LabelWriter(String label) throws IOException {
+            this.label = label;
+            this.buffer = ByteBuffer.allocate(options.getFlushBytes());
+            this.syncPolicy = options.getSyncPolicy();
+            if (options.isSegmented()) {
+                segmentNumber = lastSegmentNumber();
+                openSegment();
+            } else {
+                // Set the filePath variable
+                //corected fileMapc and baseDirectory variable and changed variable name to camelCase.
+                String filePath = fileMap.computeIfAbsent(label,
+                        k -> Paths.get(baseDirectory, label + ".txt").toString());
+                path = Paths.get(filePath);
+                channel = open(path);
+            }
+        }
+
+        synchronized void append(int patientId, long timestamp, String label, String data) throws IOException {
+            encoder.encode(patientId, timestamp, label, data);
+            appendEncoded(patientId, timestamp);
+        }
+
+        synchronized void append(int patientId, long timestamp, MeasurementKind kind, double value)
+                throws IOException {
+            encoder.encode(patientId, timestamp, kind, value);
+            appendEncoded(patientId, timestamp);
+        }
+
+        // Buffers the record in the encoder
+        private void appendEncoded(int patientId, long timestamp) throws IOException {
+            int length = encoder.length();
+            if (options.isSegmented()) {
+                if (recordCount > 0 && (isTooOld(timestamp)
+                        || (options.getSegmentBytes() > 0 && segmentBytes + length > options.getSegmentBytes()))) {
+                    rollSegment();
+                }
+                track(patientId, timestamp, length);
+            }
+            if (length > buffer.remaining()) {
+                flush();
+            }
+            if (length > buffer.remaining()) {
+                // Longer than the whole buffer
+                write(ByteBuffer.wrap(encoder.bytes(), 0, length));
+                return;
+            }
+            encoder.writeTo(buffer);
+        }
+
+        synchronized void flush() throws IOException {
+            if (buffer.position() == 0) {
+                return;
+            }
+            buffer.flip();
+            write(buffer);
+            buffer.clear();
+            if (syncPolicy == FileOutputOptions.SyncPolicy.ON_FLUSH) {
+                channel.force(false);
+            }
+        }
+
+        synchronized void close() throws IOException {
+            if (options.isSegmented()) {
+                closeSegment();
+                return;
+            }
+            flush();
+            if (syncPolicy != FileOutputOptions.SyncPolicy.NONE) {
+                channel.force(false);
+            }
+            channel.close();
+        }
+
+        private void rollSegment() throws IOException {
+            closeSegment();
+            openSegment();
+        }
+
+        private void openSegment() throws IOException {
+            segmentNumber++;
+            path = Paths.get(baseDirectory, String.format("%s-%06d.txt", label, segmentNumber));
+            fileMap.put(label, path.toString());
+            channel = open(path);
+            segmentBytes = 0;
+            recordCount = 0;
+            minTimestamp = Long.MAX_VALUE;
+            maxTimestamp = Long.MIN_VALUE;
+            minPatientId = Integer.MAX_VALUE;
+            maxPatientId = Integer.MIN_VALUE;
+        }
+
+        private void closeSegment() throws IOException {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                write(buffer);
+                buffer.clear();
+            }
+            if (syncPolicy != FileOutputOptions.SyncPolicy.NONE) {
+                channel.force(false);
+            }
+            channel.close();
+            if (recordCount == 0) {
+                Files.deleteIfExists(path);
+                return;
+            }
+            if (options.getCompression() == FileOutputOptions.Compression.GZIP) {
+                Path segment = path;
+                SegmentIndex index = new SegmentIndex(segment.resolveSibling(segment.getFileName() + ".gz"),
+                        recordCount, minTimestamp, maxTimestamp, minPatientId, maxPatientId);
+                compressor.submit(() -> compress(segment, index));
+            } else {
+                new SegmentIndex(path, recordCount, minTimestamp, maxTimestamp, minPatientId, maxPatientId).write();
+            }
+        }
+
+        private void track(int patientId, long timestamp, int length) {
+            segmentBytes += length;
+            recordCount++;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            minPatientId = Math.min(minPatientId, patientId);
+            maxPatientId = Math.max(maxPatientId, patientId);
+        }
+
+        // Segments are rolled by the time of the data, so they also cut accelerated runs into equal spans
+        private boolean isTooOld(long timestamp) {
+            return options.getSegmentMillis() > 0 && timestamp - minTimestamp >= options.getSegmentMillis();
+        }
+
+        // Continues the numbering of segments left by an earlier run
+        private int lastSegmentNumber() throws IOException {
+            int last = 0;
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(Paths.get(baseDirectory),
+                    label + "-[0-9]*")) {
+                for (Path segment : segments) {
+                    String name = segment.getFileName().toString();
+                    int dot = name.indexOf('.', label.length());
+                    try {
+                        last = Math.max(last, Integer.parseInt(name.substring(label.length() + 1,
+                                dot < 0 ? name.length() : dot)));
+                    } catch (NumberFormatException e) {
+                        // Not a segment of this label
+                    }
+                }
+            }
+            return last;
+        }
+
+        private FileChannel open(Path file) throws IOException {
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        private void write(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
         }
     }
-}
\ No newline at end of file
+}
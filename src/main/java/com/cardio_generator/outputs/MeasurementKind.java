@@ -0,0 +1,116 @@
+package com.cardio_generator.outputs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@code MeasurementKind} enum lists the kinds of measurements produced by the simulator.
+ * <p>
+ * Each kind carries the label used by the text based outputs (e.g. "SystolicPressure") and
+ * knows how its numeric value is rendered as text. Using the kind instead of a label string
+ * lets the generators pass samples around without building strings.
+ * </p>
+ *
+ * @see com.cardio_generator.generators.SampleBatch
+ */
+public enum MeasurementKind {
+    ECG("ECG"),
+    SATURATION("Saturation") {
+        @Override
+        public StringBuilder appendTo(StringBuilder text, double value) {
+            return RecordEncoder.appendDouble(text, value).append('%');
+        }
+
+        @Override
+        public double parse(String data) {
+            return super.parse(data.endsWith("%") ? data.substring(0, data.length() - 1) : data);
+        }
+    },
+    SYSTOLIC_PRESSURE("SystolicPressure"),
+    DIASTOLIC_PRESSURE("DiastolicPressure"),
+    CHOLESTEROL("Cholesterol"),
+    WHITE_BLOOD_CELLS("WhiteBloodCells"),
+    RED_BLOOD_CELLS("RedBloodCells"),
+    /** Alert state changes; a value of {@code 1} means triggered, {@code 0} means resolved. */
+    ALERT("Alert") {
+        @Override
+        public StringBuilder appendTo(StringBuilder text, double value) {
+            return text.append(value != 0 ? "triggered" : "resolved");
+        }
+
+        @Override
+        public double parse(String data) {
+            if (data.equals("triggered")) {
+                return 1;
+            }
+            if (data.equals("resolved")) {
+                return 0;
+            }
+            throw new NumberFormatException("Unknown alert state: " + data);
+        }
+    };
+
+    private static final Map<String, MeasurementKind> BY_LABEL = new HashMap<>();
+
+    static {
+        for (MeasurementKind kind : values()) {
+            BY_LABEL.put(kind.label, kind);
+        }
+    }
+
+    private final String label;
+
+    MeasurementKind(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return the label of this kind as written by the text outputs
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Renders a value of this kind the way the text outputs expect it.
+     *
+     * @param value the measured value
+     * @return the textual form of the value
+     */
+    public String format(double value) {
+        return appendTo(new StringBuilder(24), value).toString();
+    }
+
+    /**
+     * Appends the textual form of a value, as returned by {@link #format(double)}, without
+     * creating a string.
+     *
+     * @param text  the builder to append to
+     * @param value the measured value
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder text, double value) {
+        return RecordEncoder.appendDouble(text, value);
+    }
+
+    /**
+     * Reads a value of this kind from its textual form; the inverse of {@link #format(double)}.
+     *
+     * @param data the textual value, e.g. "97.0%"
+     * @return the numeric value
+     * @throws NumberFormatException if the text is not a valid value of this kind
+     */
+    public double parse(String data) {
+        return Double.parseDouble(data);
+    }
+
+    /**
+     * Looks up the kind for a label.
+     *
+     * @param label the label, e.g. "ECG"
+     * @return the matching kind, or {@code null} if the label is unknown
+     */
+    public static MeasurementKind fromLabel(String label) {
+        return BY_LABEL.get(label);
+    }
+}
@@ -13,9 +13,17 @@ package com.cardio_generator.outputs;
  * </pre>
  * </p>
  *
+ * <p>
+ * Numeric measurements can also be passed in their typed form through
+ * {@link #output(int, long, MeasurementKind, double)}, which does not require the generator
+ * to build a string. Strategies that can encode values directly (e.g. in a binary format)
+ * override it; all others get the text form through the default implementation.
+ * </p>
+ *
  * @see FileOutputStrategy
  * @see TcpOutputStrategy
  * @see WebSocketOutputStrategy
+ * @see MeasurementKind
  */
 public interface OutputStrategy {
     /**
@@ -27,4 +35,59 @@ public interface OutputStrategy {
      * @param data      the data to output, typically represented as a String
      */
     void output(int patientId, long timestamp, String label, String data);
+
+    /**
+     * Outputs a numeric measurement of the specified patient.
+     * <p>
+     * The default implementation renders the value as text with {@link MeasurementKind#format(double)}
+     * and passes it to {@link #output(int, long, String, String)}, so existing strategies receive
+     * exactly the same data as before.
+     * </p>
+     *
+     * @param patientId the unique identifier for the patient
+     * @param timestamp the timestamp (in milliseconds since UNIX epoch) when the data was recorded
+     * @param kind      the kind of measurement
+     * @param value     the measured value
+     */
+    default void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        output(patientId, timestamp, kind.label(), kind.format(value));
+    }
+
+    /**
+     * Outputs a block of equally spaced samples of one patient, e.g. one second of a high-rate
+     * ECG waveform.
+     * <p>
+     * The default implementation outputs every sample separately, with the timestamp of sample
+     * {@code i} being {@code startTimestamp + i * 1000 / sampleRateHz}. Strategies that can
+     * transport a whole block as a single frame override it.
+     * </p>
+     *
+     * @param patientId      the unique identifier for the patient
+     * @param startTimestamp the timestamp (in milliseconds since UNIX epoch) of the first sample
+     * @param kind           the kind of measurement
+     * @param samples        the array holding the samples
+     * @param offset         the index of the first sample in {@code samples}
+     * @param length         the number of samples
+     * @param sampleRateHz   the number of samples per second
+     */
+    default void outputBlock(int patientId, long startTimestamp, MeasurementKind kind, double[] samples, int offset,
+            int length, int sampleRateHz) {
+        for (int i = 0; i < length; i++) {
+            output(patientId, startTimestamp + i * 1000L / sampleRateHz, kind, samples[offset + i]);
+        }
+    }
+
+    /**
+     * Marks the end of a tick: all data generated for the tick has been output. Strategies that
+     * batch records (e.g. into network frames) send them now; the default implementation does nothing.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Writes any buffered data and releases the resources of the strategy. Called once when
+     * the simulation ends; the default implementation does nothing.
+     */
+    default void close() {
+    }
 }
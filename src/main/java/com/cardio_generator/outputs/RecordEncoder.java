@@ -0,0 +1,208 @@
+package com.cardio_generator.outputs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@code RecordEncoder} renders records in the text forms of the outputs and encodes them
+ * as UTF-8 bytes.
+ * <p>
+ * The record is built in a reused {@code StringBuilder}, whose {@code append} methods write
+ * ints and longs without allocating, and copied into a reused byte array; only records with
+ * non-ASCII characters take a slower path that allocates. Doubles are written by
+ * {@link #appendDouble(StringBuilder, double)}, exactly as {@link Double#toString(double)}
+ * would. An encoder is not thread-safe: each writer thread, or each lock-protected writer, uses
+ * its own.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     RecordEncoder encoder = new RecordEncoder(RecordEncoder.Layout.CSV);
+ *     int length = encoder.encode(1, System.currentTimeMillis(), MeasurementKind.ECG, 0.42);
+ *     channel.write(ByteBuffer.wrap(encoder.bytes(), 0, length));
+ * </pre>
+ * </p>
+ */
+public final class RecordEncoder {
+
+    /**
+     * The text forms of a record.
+     */
+    public enum Layout {
+        /** "patientId,timestamp,label,data" followed by a newline, as sent by the TCP output. */
+        CSV,
+        /** "patientId,timestamp,label,data" without a line end, as sent in WebSocket messages. */
+        MESSAGE,
+        /**
+         * "Patient ID: ..., Timestamp: ..., Label: ..., Data: ..." followed by the line separator
+         * of the platform, as written by the file and console outputs.
+         */
+        LABELED
+    }
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int MAX_FAST_DIGITS = 9; // Fraction digits of the fast path for doubles
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+
+    static {
+        double power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private final Layout layout;
+    private final StringBuilder text = new StringBuilder(128);
+    private byte[] bytes = new byte[256];
+    private int length;
+
+    /**
+     * @param layout the text form to produce
+     */
+    public RecordEncoder(Layout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Encodes a record with a textual value.
+     *
+     * @param patientId the unique identifier for the patient
+     * @param timestamp the timestamp (in milliseconds since UNIX epoch) when the data was recorded
+     * @param label     the label indicating the type of data
+     * @param data      the data
+     * @return the length of the encoded record in {@link #bytes()}
+     */
+    public int encode(int patientId, long timestamp, String label, String data) {
+        appendStart(patientId, timestamp, label).append(data);
+        return finish();
+    }
+
+    /**
+     * Encodes a numeric measurement, rendered as {@link MeasurementKind#format(double)} would.
+     *
+     * @param patientId the unique identifier for the patient
+     * @param timestamp the timestamp (in milliseconds since UNIX epoch) when the data was recorded
+     * @param kind      the kind of measurement
+     * @param value     the measured value
+     * @return the length of the encoded record in {@link #bytes()}
+     */
+    public int encode(int patientId, long timestamp, MeasurementKind kind, double value) {
+        kind.appendTo(appendStart(patientId, timestamp, kind.label()), value);
+        return finish();
+    }
+
+    /**
+     * @return the array holding the last encoded record from index 0; reused by the next call
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the length of the last encoded record in bytes
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Copies the last encoded record into a buffer.
+     *
+     * @param buffer the buffer, with at least {@link #length()} bytes remaining
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(bytes, 0, length);
+    }
+
+    /**
+     * @return the last encoded record as a string
+     */
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    /**
+     * Appends a double in the form of {@link Double#toString(double)}.
+     * <p>
+     * Values in plain notation with at most {@value #MAX_FAST_DIGITS} fraction digits, such as
+     * 97.0 or 0.125, are written digit by digit: the fewest fraction digits that read back as
+     * the same double are the shortest representation, which is what {@code Double.toString}
+     * prints. All other values are passed to {@code StringBuilder.append(double)}, which does not
+     * allocate before Java 19 but does on newer runtimes.
+     * </p>
+     *
+     * @param text  the builder to append to
+     * @param value the value
+     * @return the builder
+     */
+    public static StringBuilder appendDouble(StringBuilder text, double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude >= 1e-3 && magnitude < 1e7) { // Double.toString uses plain notation
+            for (int digits = 1; digits <= MAX_FAST_DIGITS; digits++) {
+                double scaled = magnitude * POWERS_OF_TEN[digits];
+                if (scaled >= 0x1p52) {
+                    break; // Units no longer exact
+                }
+                long units = Math.round(scaled);
+                if (units / POWERS_OF_TEN[digits] != magnitude) {
+                    continue;
+                }
+                long factor = (long) POWERS_OF_TEN[digits];
+                long fraction = units % factor;
+                if (value < 0) {
+                    text.append('-');
+                }
+                text.append(units / factor).append('.');
+                for (long leading = factor / 10; leading > 1 && fraction < leading; leading /= 10) {
+                    text.append('0');
+                }
+                if (fraction == 0) {
+                    return text.append('0'); // Only possible with one digit
+                }
+                return text.append(fraction);
+            }
+        }
+        return text.append(value);
+    }
+
+    private StringBuilder appendStart(int patientId, long timestamp, String label) {
+        text.setLength(0);
+        if (layout == Layout.LABELED) {
+            return text.append("Patient ID: ").append(patientId)
+                    .append(", Timestamp: ").append(timestamp)
+                    .append(", Label: ").append(label)
+                    .append(", Data: ");
+        }
+        return text.append(patientId).append(',').append(timestamp).append(',').append(label).append(',');
+    }
+
+    private int finish() {
+        if (layout == Layout.CSV) {
+            text.append('\n');
+        } else if (layout == Layout.LABELED) {
+            text.append(LINE_SEPARATOR);
+        }
+        int count = text.length();
+        if (bytes.length < count) {
+            bytes = new byte[Math.max(count, bytes.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Needs a real encoder
+                byte[] encoded = text.toString().getBytes(StandardCharsets.UTF_8);
+                if (bytes.length < encoded.length) {
+                    bytes = new byte[encoded.length];
+                }
+                System.arraycopy(encoded, 0, bytes, 0, encoded.length);
+                length = encoded.length;
+                return length;
+            }
+            bytes[i] = (byte) c;
+        }
+        length = count;
+        return length;
+    }
+}
@@ -0,0 +1,321 @@
+package com.cardio_generator.outputs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code RingBufferOutputStrategy} decouples the generator threads from a slow output.
+ * <p>
+ * Records are put into a bounded, lock-free ring buffer and written to the wrapped strategy by a
+ * single dedicated consumer thread, so a stalled file or socket no longer delays the scheduler.
+ * The buffer is stored column-wise (one array per field) and reused, so enqueuing a typed sample
+ * does not allocate. Each slot also keeps the array its last block was copied into, which only
+ * grows when a longer block arrives, so neither does enqueuing a block once the buffer has
+ * cycled.
+ * </p>
+ * <p>
+ * Producers claim a sequence number with a CAS on the tail, write the slot and then publish it by
+ * storing its sequence in {@code published}. The consumer takes the slot at the head once it is
+ * published, and commits it with a CAS on the head; with {@link BackpressurePolicy#DROP_OLDEST}
+ * producers may advance the head themselves, in which case the consumer's CAS fails and the record
+ * it read is discarded.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     RingBufferOutputStrategy buffered = new RingBufferOutputStrategy(new TcpOutputStrategy(9000), 65536,
+ *             BackpressurePolicy.DROP_OLDEST);
+ *     buffered.output(1, System.currentTimeMillis(), MeasurementKind.ECG, 0.42);
+ *     ...
+ *     buffered.close();
+ * </pre>
+ * </p>
+ *
+ * @see BackpressurePolicy
+ */
+public class RingBufferOutputStrategy implements OutputStrategy {
+
+    private static final byte TEXT = 0;
+    private static final byte TYPED = 1;
+    private static final byte BLOCK = 2;
+    private static final byte FLUSH = 3;
+
+    private final OutputStrategy delegate;
+    private final BackpressurePolicy policy;
+    private final int capacity;
+    private final int mask;
+
+    // Slot columns; a slot is only written by the producer that claimed it
+    private final byte[] types;
+    private final int[] patientIds;
+    private final long[] timestamps;
+    private final MeasurementKind[] kinds;
+    private final double[] values;
+    private final int[] sampleRates;
+    private final String[] labels;
+    private final String[] data;
+    private final double[][] blocks; // Reused per slot, longer than the block it holds
+    private final int[] blockLengths;
+    private final AtomicLongArray published; // Sequence of the record each slot holds
+
+    private final AtomicLong head = new AtomicLong(); // Next sequence to consume
+    private final AtomicLong tail = new AtomicLong(); // Next sequence to claim
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final Thread consumer;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code RingBufferOutputStrategy} and starts its consumer thread.
+     *
+     * @param delegate the strategy the records are written to
+     * @param capacity the number of records the buffer holds; rounded up to a power of two
+     * @param policy   what to do when the buffer is full
+     */
+    public RingBufferOutputStrategy(OutputStrategy delegate, int capacity, BackpressurePolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.delegate = delegate;
+        this.policy = policy;
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        types = new byte[this.capacity];
+        patientIds = new int[this.capacity];
+        timestamps = new long[this.capacity];
+        kinds = new MeasurementKind[this.capacity];
+        values = new double[this.capacity];
+        sampleRates = new int[this.capacity];
+        labels = new String[this.capacity];
+        data = new String[this.capacity];
+        blocks = new double[this.capacity][];
+        blockLengths = new int[this.capacity];
+        published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, i - this.capacity); // As if the previous lap had been consumed
+        }
+
+        consumer = new Thread(this::consume, "output-ring-buffer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        int slot = (int) sequence & mask;
+        types[slot] = TEXT;
+        patientIds[slot] = patientId;
+        timestamps[slot] = timestamp;
+        labels[slot] = label;
+        this.data[slot] = data;
+        published.set(slot, sequence);
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        int slot = (int) sequence & mask;
+        types[slot] = TYPED;
+        patientIds[slot] = patientId;
+        timestamps[slot] = timestamp;
+        kinds[slot] = kind;
+        values[slot] = value;
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Enqueues a block as a single record. The samples are copied, since the caller may reuse its array.
+     */
+    @Override
+    public void outputBlock(int patientId, long startTimestamp, MeasurementKind kind, double[] samples, int offset,
+            int length, int sampleRateHz) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        int slot = (int) sequence & mask;
+        types[slot] = BLOCK;
+        patientIds[slot] = patientId;
+        timestamps[slot] = startTimestamp;
+        kinds[slot] = kind;
+        sampleRates[slot] = sampleRateHz;
+        double[] block = blocks[slot];
+        if (block == null || block.length < length) {
+            block = new double[length];
+            blocks[slot] = block;
+        }
+        System.arraycopy(samples, offset, block, 0, length);
+        blockLengths[slot] = length;
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Enqueues the end of the tick, so the wrapped strategy is flushed after the records before it.
+     */
+    @Override
+    public void flush() {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        int slot = (int) sequence & mask;
+        types[slot] = FLUSH;
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Stops accepting records, writes the records still buffered and closes the wrapped strategy.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    /**
+     * @return the number of records waiting to be written
+     */
+    public long getQueueDepth() {
+        long depth = tail.get() - head.get();
+        return Math.max(0, Math.min(depth, capacity));
+    }
+
+    /**
+     * @return the number of records discarded because the buffer was full or already closed
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of records written to the wrapped strategy
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the number of records the buffer holds
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Claims the next free slot, returns -1 if the record has to be dropped
+    private long claim() {
+        int idle = 0;
+        while (true) {
+            if (closed) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+            long sequence = tail.get();
+            long first = head.get();
+            if (sequence - first >= capacity) {
+                if (policy == BackpressurePolicy.DROP_NEWEST) {
+                    dropped.incrementAndGet();
+                    return -1;
+                }
+                if (policy == BackpressurePolicy.DROP_OLDEST) {
+                    if (head.compareAndSet(first, first + 1)) {
+                        dropped.incrementAndGet();
+                    }
+                    continue;
+                }
+                idle = backOff(idle);
+                continue;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                // A dropped record of the previous lap may still be being written
+                int slot = (int) sequence & mask;
+                while (published.get(slot) != sequence - capacity) {
+                    idle = backOff(idle);
+                }
+                return sequence;
+            }
+        }
+    }
+
+    private void consume() {
+        int idle = 0;
+        double[] block = new double[0]; // Copy of the current block, the slot may be reused meanwhile
+        while (true) {
+            long sequence = head.get();
+            int slot = (int) sequence & mask;
+            if (published.get(slot) != sequence) {
+                if (closed && sequence >= tail.get()) {
+                    return;
+                }
+                idle = backOff(idle);
+                continue;
+            }
+            idle = 0;
+            byte type = types[slot];
+            int patientId = patientIds[slot];
+            long timestamp = timestamps[slot];
+            MeasurementKind kind = kinds[slot];
+            double value = values[slot];
+            int sampleRate = sampleRates[slot];
+            String label = labels[slot];
+            String text = data[slot];
+            int blockLength = 0;
+            if (type == BLOCK) {
+                // Copied before the commit; a producer that overwrites the slot meanwhile makes the CAS fail
+                double[] source = blocks[slot];
+                blockLength = Math.min(blockLengths[slot], source.length);
+                if (block.length < blockLength) {
+                    block = new double[blockLength];
+                }
+                System.arraycopy(source, 0, block, 0, blockLength);
+            }
+            if (!head.compareAndSet(sequence, sequence + 1)) {
+                continue; // Dropped by a producer while we were reading it
+            }
+            try {
+                if (type == TEXT) {
+                    delegate.output(patientId, timestamp, label, text);
+                } else if (type == TYPED) {
+                    delegate.output(patientId, timestamp, kind, value);
+                } else if (type == FLUSH) {
+                    delegate.flush();
+                    continue;
+                } else {
+                    delegate.outputBlock(patientId, timestamp, kind, block, 0, blockLength, sampleRate);
+                }
+                delivered.incrementAndGet();
+            } catch (Exception e) {
+                System.err.println("An error occurred while writing buffered output for patient " + patientId);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Retries at once for a while, then yields, then parks, so an idle buffer does not burn a core.
+    // No Thread.onSpinWait() hint in the first phase: it needs Java 9 and the build targets Java 8.
+    private static int backOff(int idle) {
+        if (idle >= 200) {
+            LockSupport.parkNanos(100_000L);
+        } else if (idle >= 100) {
+            Thread.yield();
+        }
+        return idle + 1;
+    }
+}
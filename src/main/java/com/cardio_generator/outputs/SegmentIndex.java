@@ -0,0 +1,190 @@
+package com.cardio_generator.outputs;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The {@code SegmentIndex} describes one closed segment file written by a segmented
+ * {@link FileOutputStrategy}: which file holds the records, how many there are, and the range of
+ * timestamps and patient ids they cover.
+ * <p>
+ * The index is stored next to the segment as a small {@code key=value} file with the same name
+ * and the extension {@code .idx}, e.g. {@code ECG-000003.idx} for {@code ECG-000003.txt.gz}. It
+ * is only written once the segment is complete, so readers can use it to skip segments outside a
+ * query window without opening them.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     for (SegmentIndex segment : SegmentIndex.find(directory, "ECG", from, to)) {
+ *         read(segment.getSegmentFile());
+ *     }
+ * </pre>
+ * </p>
+ */
+public class SegmentIndex {
+
+    /** The extension of index files. */
+    public static final String EXTENSION = ".idx";
+
+    private final Path segmentFile;
+    private final long recordCount;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int minPatientId;
+    private final int maxPatientId;
+
+    /**
+     * Constructs a new {@code SegmentIndex}.
+     *
+     * @param segmentFile  the file holding the records of the segment
+     * @param recordCount  the number of records in the segment
+     * @param minTimestamp the smallest timestamp in the segment
+     * @param maxTimestamp the largest timestamp in the segment
+     * @param minPatientId the smallest patient id in the segment
+     * @param maxPatientId the largest patient id in the segment
+     */
+    public SegmentIndex(Path segmentFile, long recordCount, long minTimestamp, long maxTimestamp, int minPatientId,
+            int maxPatientId) {
+        this.segmentFile = segmentFile;
+        this.recordCount = recordCount;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.minPatientId = minPatientId;
+        this.maxPatientId = maxPatientId;
+    }
+
+    /**
+     * Returns the path of the index file belonging to a segment, e.g. {@code ECG-000003.idx}
+     * for {@code ECG-000003.txt} and {@code ECG-000003.txt.gz}.
+     *
+     * @param segmentFile the segment file
+     * @return the path of its index file
+     */
+    public static Path indexFileOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        int dot = name.indexOf('.');
+        return segmentFile.resolveSibling((dot < 0 ? name : name.substring(0, dot)) + EXTENSION);
+    }
+
+    /**
+     * Writes this index next to its segment. The file is written under a temporary name and
+     * then renamed, so readers never see a partial index.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public void write() throws IOException {
+        Path indexFile = indexFileOf(segmentFile);
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write("file=" + segmentFile.getFileName() + "\n");
+            writer.write("records=" + recordCount + "\n");
+            writer.write("minTimestamp=" + minTimestamp + "\n");
+            writer.write("maxTimestamp=" + maxTimestamp + "\n");
+            writer.write("minPatientId=" + minPatientId + "\n");
+            writer.write("maxPatientId=" + maxPatientId + "\n");
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index file.
+     *
+     * @param indexFile the index file
+     * @return the index
+     * @throws IOException if the file cannot be read or is not a valid index
+     */
+    public static SegmentIndex read(Path indexFile) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            return new SegmentIndex(indexFile.resolveSibling(properties.getProperty("file")),
+                    Long.parseLong(properties.getProperty("records")),
+                    Long.parseLong(properties.getProperty("minTimestamp")),
+                    Long.parseLong(properties.getProperty("maxTimestamp")),
+                    Integer.parseInt(properties.getProperty("minPatientId")),
+                    Integer.parseInt(properties.getProperty("maxPatientId")));
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid segment index " + indexFile, e);
+        }
+    }
+
+    /**
+     * Finds the complete segments of a label that may contain records in the given time window,
+     * in the order they were written.
+     *
+     * @param directory the directory of the file output
+     * @param label     the label, e.g. "ECG"
+     * @param from      the start of the window (inclusive, in milliseconds since UNIX epoch)
+     * @param to        the end of the window (inclusive, in milliseconds since UNIX epoch)
+     * @return the matching segments
+     * @throws IOException if the directory or an index cannot be read
+     */
+    public static List<SegmentIndex> find(Path directory, String label, long from, long to) throws IOException {
+        List<SegmentIndex> segments = new ArrayList<>();
+        try (DirectoryStream<Path> indexFiles = Files.newDirectoryStream(directory,
+                label + "-[0-9]*" + EXTENSION)) {
+            for (Path indexFile : indexFiles) {
+                SegmentIndex segment = read(indexFile);
+                if (segment.overlaps(from, to)) {
+                    segments.add(segment);
+                }
+            }
+        }
+        segments.sort(Comparator.comparing(segment -> segment.getSegmentFile().getFileName().toString()));
+        return segments;
+    }
+
+    /**
+     * @param from the start of the window (inclusive)
+     * @param to   the end of the window (inclusive)
+     * @return whether the segment may contain records in the window
+     */
+    public boolean overlaps(long from, long to) {
+        return recordCount > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    /**
+     * @param patientId the patient id
+     * @return whether the segment may contain records of the patient
+     */
+    public boolean mayContainPatient(int patientId) {
+        return recordCount > 0 && patientId >= minPatientId && patientId <= maxPatientId;
+    }
+
+    public Path getSegmentFile() {
+        return segmentFile;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public int getMinPatientId() {
+        return minPatientId;
+    }
+
+    public int getMaxPatientId() {
+        return maxPatientId;
+    }
+}
@@ -0,0 +1,266 @@
+package com.cardio_generator.outputs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The {@code SubscriptionIndex} routes records to the subscribers interested in them.
+ * <p>
+ * A subscriber subscribes to topics: a patient id and a label, each of which may be a wildcard
+ * matching all patients or all labels. For every record, {@link #forEachSubscriber} looks up the
+ * subscribers of the four topics that match it and calls back each subscriber once, even if
+ * several of its topics match.
+ * </p>
+ * <p>
+ * Subscriptions change rarely compared to the rate of records, so changes rebuild an immutable
+ * lookup table which is then published; lookups never lock.
+ * </p>
+ *
+ * @param <T> the type of the subscribers, compared by identity
+ */
+public class SubscriptionIndex<T> {
+
+    /**
+     * A patient id and a label, either of which may be {@code null} to match all.
+     */
+    public static final class Topic {
+        private final Integer patientId;
+        private final String label;
+
+        /**
+         * @param patientId the patient id, {@code null} for all patients
+         * @param label     the label, {@code null} for all labels
+         */
+        public Topic(Integer patientId, String label) {
+            this.patientId = patientId;
+            this.label = label;
+        }
+
+        // Whether this topic, used as a pattern, covers the other topic
+        boolean covers(Topic other) {
+            return (patientId == null || patientId.equals(other.patientId))
+                    && (label == null || label.equals(other.label));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Topic)) {
+                return false;
+            }
+            Topic other = (Topic) o;
+            return Objects.equals(patientId, other.patientId) && Objects.equals(label, other.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patientId, label);
+        }
+
+        @Override
+        public String toString() {
+            return (patientId == null ? "*" : patientId.toString()) + "/" + (label == null ? "*" : label);
+        }
+    }
+
+    /** The published lookup table; replaced as a whole on every change. */
+    private static final class Routes<T> {
+        final Map<Integer, Map<String, List<T>>> byPatientAndLabel = new HashMap<>();
+        final Map<Integer, List<T>> byPatient = new HashMap<>();
+        final Map<String, List<T>> byLabel = new HashMap<>();
+        final List<T> all = new ArrayList<>();
+    }
+
+    private final Map<T, Set<Topic>> subscriptions = new IdentityHashMap<>();
+    private volatile Routes<T> routes = new Routes<>();
+    private final ThreadLocal<Map<T, Boolean>> visited = ThreadLocal.withInitial(IdentityHashMap::new);
+
+    /**
+     * Subscribes to a topic.
+     *
+     * @param subscriber the subscriber
+     * @param topic      the topic
+     */
+    public void subscribe(T subscriber, Topic topic) {
+        subscribe(subscriber, Collections.singletonList(topic));
+    }
+
+    /**
+     * Subscribes to several topics at once.
+     *
+     * @param subscriber the subscriber
+     * @param topics     the topics
+     */
+    public synchronized void subscribe(T subscriber, Collection<Topic> topics) {
+        if (subscriptions.computeIfAbsent(subscriber, s -> new LinkedHashSet<>()).addAll(topics)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Removes all subscriptions of the subscriber that the pattern covers, e.g. the pattern
+     * "patient 2, all labels" removes the subscriptions to patient 2 for any label.
+     *
+     * @param subscriber the subscriber
+     * @param pattern    the topics to unsubscribe from
+     */
+    public void unsubscribe(T subscriber, Topic pattern) {
+        unsubscribe(subscriber, Collections.singletonList(pattern));
+    }
+
+    /**
+     * Removes all subscriptions of the subscriber that any of the patterns covers.
+     *
+     * @param subscriber the subscriber
+     * @param patterns   the topics to unsubscribe from
+     */
+    public synchronized void unsubscribe(T subscriber, Collection<Topic> patterns) {
+        Set<Topic> topics = subscriptions.get(subscriber);
+        if (topics == null) {
+            return;
+        }
+        boolean changed = false;
+        for (Topic pattern : patterns) {
+            changed |= topics.removeIf(pattern::covers);
+        }
+        if (changed) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Removes all subscriptions of the subscriber, e.g. when it disconnects.
+     *
+     * @param subscriber the subscriber
+     */
+    public synchronized void remove(T subscriber) {
+        if (subscriptions.remove(subscriber) != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @param subscriber the subscriber
+     * @return the topics the subscriber is subscribed to
+     */
+    public synchronized Set<Topic> getTopics(T subscriber) {
+        Set<Topic> topics = subscriptions.get(subscriber);
+        return topics == null ? Collections.emptySet() : new LinkedHashSet<>(topics);
+    }
+
+    /**
+     * @return whether nobody is subscribed to anything
+     */
+    public boolean isEmpty() {
+        Routes<T> current = routes;
+        return current.all.isEmpty() && current.byLabel.isEmpty() && current.byPatient.isEmpty()
+                && current.byPatientAndLabel.isEmpty();
+    }
+
+    /**
+     * @param patientId the patient id of a record
+     * @param label     the label of a record
+     * @return whether anybody is interested in the record
+     */
+    public boolean hasSubscribers(int patientId, String label) {
+        Routes<T> current = routes;
+        if (!current.all.isEmpty() || current.byLabel.containsKey(label)) {
+            return true;
+        }
+        if (current.byPatient.isEmpty() && current.byPatientAndLabel.isEmpty()) {
+            return false;
+        }
+        Integer key = patientId;
+        Map<String, List<T>> labels = current.byPatientAndLabel.get(key);
+        return current.byPatient.containsKey(key) || (labels != null && labels.containsKey(label));
+    }
+
+    /**
+     * Calls the action once for every subscriber interested in a record.
+     *
+     * @param patientId the patient id of the record
+     * @param label     the label of the record
+     * @param action    the action to call
+     * @return the number of subscribers the action was called for
+     */
+    public int forEachSubscriber(int patientId, String label, Consumer<T> action) {
+        Routes<T> current = routes;
+        List<T> exact = null;
+        List<T> patient = null;
+        if (!current.byPatientAndLabel.isEmpty() || !current.byPatient.isEmpty()) {
+            Integer key = patientId;
+            Map<String, List<T>> labels = current.byPatientAndLabel.get(key);
+            exact = labels == null ? null : labels.get(label);
+            patient = current.byPatient.get(key);
+        }
+        List<T> byLabel = current.byLabel.get(label);
+        List<T> all = current.all;
+
+        int matches = (exact == null ? 0 : 1) + (patient == null ? 0 : 1) + (byLabel == null ? 0 : 1)
+                + (all.isEmpty() ? 0 : 1);
+        if (matches == 0) {
+            return 0;
+        }
+        if (matches == 1) {
+            // A single list has no duplicates
+            List<T> only = exact != null ? exact : patient != null ? patient : byLabel != null ? byLabel : all;
+            for (int i = 0; i < only.size(); i++) {
+                action.accept(only.get(i));
+            }
+            return only.size();
+        }
+        Map<T, Boolean> seen = visited.get();
+        seen.clear();
+        int count = 0;
+        count += visit(exact, seen, action);
+        count += visit(patient, seen, action);
+        count += visit(byLabel, seen, action);
+        count += visit(all, seen, action);
+        seen.clear();
+        return count;
+    }
+
+    private int visit(List<T> subscribers, Map<T, Boolean> seen, Consumer<T> action) {
+        if (subscribers == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < subscribers.size(); i++) {
+            T subscriber = subscribers.get(i);
+            if (seen.put(subscriber, Boolean.TRUE) == null) {
+                action.accept(subscriber);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Must hold the lock
+    private void rebuild() {
+        Routes<T> next = new Routes<>();
+        for (Map.Entry<T, Set<Topic>> entry : subscriptions.entrySet()) {
+            T subscriber = entry.getKey();
+            for (Topic topic : entry.getValue()) {
+                if (topic.patientId == null && topic.label == null) {
+                    next.all.add(subscriber);
+                } else if (topic.patientId == null) {
+                    next.byLabel.computeIfAbsent(topic.label, l -> new ArrayList<>()).add(subscriber);
+                } else if (topic.label == null) {
+                    next.byPatient.computeIfAbsent(topic.patientId, p -> new ArrayList<>()).add(subscriber);
+                } else {
+                    next.byPatientAndLabel.computeIfAbsent(topic.patientId, p -> new HashMap<>())
+                            .computeIfAbsent(topic.label, l -> new ArrayList<>()).add(subscriber);
+                }
+            }
+        }
+        routes = next;
+    }
+}
@@ -0,0 +1,235 @@
+package com.cardio_generator.outputs;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code UdpOutputStrategy} sends the records as UDP datagrams, usually to a multicast
+ * group, so any number of receivers on the host or LAN get the data at the cost of a single send.
+ * <p>
+ * Records are packed as binary records (see {@link BinaryRecordFormat}) into datagrams of at most
+ * {@value #MAX_DATAGRAM_SIZE} bytes, which fit into an Ethernet frame. A datagram is sent when it
+ * is full, at the end of every tick ({@link #flush()}), and at the latest after
+ * {@value #LINGER_MILLIS} ms. Each datagram starts with a header of
+ * {@value #DATAGRAM_HEADER_SIZE} bytes:
+ * </p>
+ * <pre>
+ *     int   magic       {@link #DATAGRAM_MAGIC}
+ *     int   session     random id of this sender, new for every run
+ *     long  sequence    number of the datagram, starting at 0
+ *     short records     number of records that follow; 0 marks the end of the stream
+ * </pre>
+ * <p>
+ * Receivers detect lost and reordered datagrams from gaps in the sequence; UDP does not
+ * retransmit, so lost records are gone. Records of unknown labels are not sent.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     UdpOutputStrategy udp = new UdpOutputStrategy("239.1.2.3", 9100, null);
+ *     udp.output(1, System.currentTimeMillis(), MeasurementKind.ECG, 0.42);
+ *     udp.close();
+ * </pre>
+ * </p>
+ *
+ * @see com.data_management.UdpDataReader
+ */
+public class UdpOutputStrategy implements OutputStrategy {
+
+    /** The first int of every datagram, "CDU1". */
+    public static final int DATAGRAM_MAGIC = 0x43445531;
+    /** The size of the datagram header in bytes. */
+    public static final int DATAGRAM_HEADER_SIZE = 18;
+    /** The largest datagram sent; fits into an Ethernet frame with the IP and UDP headers. */
+    public static final int MAX_DATAGRAM_SIZE = 1472;
+    /** The longest time records wait in an unsent datagram. */
+    public static final long LINGER_MILLIS = 100;
+    private static final int RECORDS_PER_DATAGRAM =
+            (MAX_DATAGRAM_SIZE - DATAGRAM_HEADER_SIZE) / BinaryRecordFormat.RECORD_SIZE;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress target;
+    private final int session = ThreadLocalRandom.current().nextInt();
+    private final ByteBuffer datagram = ByteBuffer.allocate(
+            DATAGRAM_HEADER_SIZE + RECORDS_PER_DATAGRAM * BinaryRecordFormat.RECORD_SIZE);
+    private final ScheduledExecutorService flusher;
+    private long sequence;
+    private long datagramStartMillis;
+    private long sentDatagrams;
+    private long failedDatagrams;
+    private boolean closed;
+
+    /**
+     * Constructs a new {@code UdpOutputStrategy}.
+     *
+     * @param address       the multicast group, or a unicast address
+     * @param port          the port the receivers listen on
+     * @param interfaceName the network interface to send multicast datagrams from, e.g. "eth0",
+     *                      or {@code null} for the default of the system
+     * @throws IOException if the socket cannot be opened or the interface does not exist
+     */
+    public UdpOutputStrategy(String address, int port, String interfaceName) throws IOException {
+        target = new InetSocketAddress(InetAddress.getByName(address), port);
+        channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        if (target.getAddress().isMulticastAddress()) {
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, 1); // Stay on the LAN
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true); // Receivers on this host
+            if (interfaceName != null) {
+                NetworkInterface networkInterface = NetworkInterface.getByName(interfaceName);
+                if (networkInterface == null) {
+                    channel.close();
+                    throw new IOException("Unknown network interface " + interfaceName);
+                }
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            }
+        }
+        datagram.position(DATAGRAM_HEADER_SIZE);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "udp-output-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::sendLingeringDatagram, LINGER_MILLIS, LINGER_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the record as a binary record if its label is a known {@link MeasurementKind};
+     * other records are skipped.
+     */
+    @Override
+    public void output(int patientId, long timestamp, String label, String data) {
+        MeasurementKind kind = MeasurementKind.fromLabel(label);
+        if (kind != null) {
+            try {
+                output(patientId, timestamp, kind, kind.parse(data));
+            } catch (NumberFormatException e) {
+                // Not representable as a binary record
+            }
+        }
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        synchronized (datagram) {
+            appendRecord(patientId, timestamp, kind, value);
+        }
+    }
+
+    @Override
+    public void outputBlock(int patientId, long startTimestamp, MeasurementKind kind, double[] samples, int offset,
+            int length, int sampleRateHz) {
+        synchronized (datagram) {
+            for (int i = 0; i < length; i++) {
+                appendRecord(patientId, startTimestamp + i * 1000L / sampleRateHz, kind, samples[offset + i]);
+            }
+        }
+    }
+
+    /**
+     * Sends the current datagram, so the records of the tick reach the receivers without waiting
+     * for it to fill up.
+     */
+    @Override
+    public void flush() {
+        synchronized (datagram) {
+            sendDatagram();
+        }
+    }
+
+    /**
+     * Sends the last records and a datagram marking the end of the stream, then closes the socket.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        synchronized (datagram) {
+            if (closed) {
+                return;
+            }
+            sendDatagram();
+            send(); // No records: end of stream
+            closed = true;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing the UDP socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of datagrams sent, including the end of stream
+     */
+    public long getSentDatagrams() {
+        synchronized (datagram) {
+            return sentDatagrams;
+        }
+    }
+
+    /**
+     * @return the number of datagrams that could not be sent, e.g. because the network is down
+     */
+    public long getFailedDatagrams() {
+        synchronized (datagram) {
+            return failedDatagrams;
+        }
+    }
+
+    // Must hold the datagram lock
+    private void appendRecord(int patientId, long timestamp, MeasurementKind kind, double value) {
+        if (closed) {
+            return;
+        }
+        if (datagram.position() == DATAGRAM_HEADER_SIZE) {
+            datagramStartMillis = System.currentTimeMillis();
+        }
+        BinaryRecordFormat.writeRecord(datagram, patientId, timestamp, kind, value);
+        if (!datagram.hasRemaining()) {
+            sendDatagram();
+        }
+    }
+
+    // Must hold the datagram lock
+    private void sendDatagram() {
+        if (!closed && datagram.position() > DATAGRAM_HEADER_SIZE) {
+            send();
+        }
+    }
+
+    // Must hold the datagram lock; sends the records collected so far, possibly none
+    private void send() {
+        int records = (datagram.position() - DATAGRAM_HEADER_SIZE) / BinaryRecordFormat.RECORD_SIZE;
+        datagram.putInt(0, DATAGRAM_MAGIC).putInt(4, session).putLong(8, sequence++).putShort(16, (short) records);
+        datagram.flip();
+        try {
+            channel.send(datagram, target);
+            sentDatagrams++;
+        } catch (IOException e) {
+            // The datagram is lost, as it could have been on the network
+            failedDatagrams++;
+        }
+        datagram.clear();
+        datagram.position(DATAGRAM_HEADER_SIZE);
+    }
+
+    // Sends a datagram that has waited too long for more records
+    private void sendLingeringDatagram() {
+        synchronized (datagram) {
+            if (datagram.position() > DATAGRAM_HEADER_SIZE
+                    && System.currentTimeMillis() - datagramStartMillis >= LINGER_MILLIS) {
+                sendDatagram();
+            }
+        }
+    }
+}
@@ -1,30 +1,436 @@
 package com.cardio_generator.outputs;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.java_websocket.server.WebSocketServer;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The {@code WebSocketOutputStrategy} sends the records to the connected WebSocket clients.
+ * <p>
+ * Clients can narrow down what they receive by sending subscription commands:
+ * </p>
+ * <pre>
+ *     subscribe &lt;patients&gt; [&lt;labels&gt;]     e.g. "subscribe 1-4 ECG,Saturation" or "subscribe 7"
+ *     unsubscribe [&lt;patients&gt; [&lt;labels&gt;]]  e.g. "unsubscribe 2", or "unsubscribe" for everything
+ *     list                                  replies with the current subscriptions
+ * </pre>
+ * <p>
+ * Patients are {@code *} or a comma-separated list of ids and ranges; labels are {@code *} (the
+ * default) or a comma-separated list. Commands are answered with a message starting with
+ * {@code ok:} or {@code error:}. A client that never sends a command receives all records; its
+ * first command replaces that with its explicit subscriptions. A command may name, and a client
+ * may have, at most {@value #MAX_TOPICS} subscriptions; commands over the limit are rejected
+ * and leave the subscriptions as they were.
+ * </p>
+ * <p>
+ * Clients with the same subscriptions form a group, and records are routed to groups through a
+ * {@link SubscriptionIndex}, so a message is only encoded if somebody is interested in it, and
+ * only once per group. With {@link Format#TEXT} every record is sent as a
+ * "patientId,timestamp,label,data" message. The batched formats collect the records of a tick
+ * per group and send them as a single message at the end of the tick ({@link #flush()}), or at
+ * the latest after {@value #BATCH_LINGER_MILLIS} ms:
+ * </p>
+ * <ul>
+ *     <li>{@link Format#BINARY}: a binary message of records as laid out in {@link BinaryRecordFormat};</li>
+ *     <li>{@link Format#JSON}: a text message with a JSON array of {@code [patientId,timestamp,"label",value]}
+ *     arrays.</li>
+ * </ul>
+ *
+ * @see SubscriptionIndex
+ */
 public class WebSocketOutputStrategy implements OutputStrategy {
 
+    /**
+     * The encoding of the messages sent to the clients.
+     */
+    public enum Format {
+        /** One text message per record. */
+        TEXT,
+        /** One binary message of fixed-width records per tick. */
+        BINARY,
+        /** One text message with a JSON array of records per tick. */
+        JSON;
+
+        /**
+         * Parses a format name as given on the command line: "text", "binary" or "json".
+         *
+         * @param name the name of the format
+         * @return the format
+         * @throws IllegalArgumentException if the name is not a known format
+         */
+        public static Format fromName(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    /** The longest time records wait in an unsent batch. */
+    public static final long BATCH_LINGER_MILLIS = 100;
+    /** The most subscriptions a client may have, and a single command may name. */
+    public static final int MAX_TOPICS = 100_000;
+    private static final ThreadLocal<RecordEncoder> MESSAGES =
+            ThreadLocal.withInitial(() -> new RecordEncoder(RecordEncoder.Layout.MESSAGE));
+    private static final SubscriptionIndex.Topic EVERYTHING = new SubscriptionIndex.Topic(null, null);
+
+    private final Format format;
+    private final SubscriptionIndex<Group> subscriptions = new SubscriptionIndex<>();
+    private final Map<Set<SubscriptionIndex.Topic>, Group> groups = new HashMap<>();
+    private final Map<WebSocket, Group> groupOfClient = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
     private WebSocketServer server;
 
     public WebSocketOutputStrategy(int port) {
+        this(port, Format.TEXT);
+    }
+
+    /**
+     * Constructs a new {@code WebSocketOutputStrategy} and starts the server.
+     *
+     * @param port   the port the server listens on
+     * @param format the encoding of the messages
+     */
+    public WebSocketOutputStrategy(int port, Format format) {
+        this.format = format;
         server = new SimpleWebSocketServer(new InetSocketAddress(port));
         System.out.println("WebSocket server created on port: " + port + ", listening for connections...");
         server.start();
+        if (format == Format.TEXT) {
+            flusher = null;
+        } else {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "websocket-batch-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, BATCH_LINGER_MILLIS, BATCH_LINGER_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public void output(int patientId, long timestamp, String label, String data) {
-        String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
-        // Broadcast the message to all connected clients
-        for (WebSocket conn : server.getConnections()) {
-            conn.send(message);
+        if (format == Format.BINARY) {
+            MeasurementKind kind = MeasurementKind.fromLabel(label);
+            if (kind != null) {
+                try {
+                    output(patientId, timestamp, kind, kind.parse(data));
+                } catch (NumberFormatException e) {
+                    // Not representable as a binary record
+                }
+            }
+            return;
+        }
+        if (!subscriptions.hasSubscribers(patientId, label)) {
+            return;
+        }
+        if (format == Format.JSON) {
+            subscriptions.forEachSubscriber(patientId, label, group -> group.appendJson(patientId, timestamp,
+                    label, data));
+            return;
+        }
+        RecordEncoder encoder = MESSAGES.get();
+        encoder.encode(patientId, timestamp, label, data);
+        broadcast(patientId, label, encoder.toString());
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+        if (!subscriptions.hasSubscribers(patientId, kind.label())) {
+            return;
+        }
+        if (format == Format.TEXT) {
+            RecordEncoder encoder = MESSAGES.get();
+            encoder.encode(patientId, timestamp, kind, value);
+            broadcast(patientId, kind.label(), encoder.toString());
+        } else if (format == Format.BINARY) {
+            subscriptions.forEachSubscriber(patientId, kind.label(),
+                    group -> group.appendBinary(patientId, timestamp, kind, value));
+        } else {
+            subscriptions.forEachSubscriber(patientId, kind.label(),
+                    group -> group.appendJson(patientId, timestamp, kind.label(), value));
+        }
+    }
+
+    // Sends the message to all interested clients
+    private void broadcast(int patientId, String label, String message) {
+        subscriptions.forEachSubscriber(patientId, label, group -> server.broadcast(message, group.members));
+    }
+
+    /**
+     * Sends the batch of every group to its clients. Does nothing for the text format.
+     */
+    @Override
+    public void flush() {
+        if (format == Format.TEXT) {
+            return;
+        }
+        List<Group> current;
+        synchronized (groups) {
+            current = new ArrayList<>(groups.values());
+        }
+        for (Group group : current) {
+            group.send();
+        }
+    }
+
+    /**
+     * Sends the last batches, stops the server and closes all connections.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+        }
+        try {
+            server.stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies a subscription command of a client.
+     *
+     * @param conn    the client
+     * @param command the command
+     * @return the reply to the client
+     */
+    String handleCommand(WebSocket conn, String command) {
+        String[] words = command.trim().split("\\s+");
+        String verb = words[0].toLowerCase();
+        Group group = groupOfClient.get(conn);
+        if (verb.equals("list")) {
+            return "ok: " + (group == null ? Collections.emptySet() : group.topics);
+        }
+        if (!verb.equals("subscribe") && !verb.equals("unsubscribe")) {
+            return "error: unknown command '" + words[0] + "'";
+        }
+        if (words.length > 3 || (verb.equals("subscribe") && words.length < 2)) {
+            return "error: usage: " + verb + " <patients> [<labels>]";
+        }
+        List<Integer> patients;
+        List<String> labels;
+        try {
+            patients = parsePatients(words.length > 1 ? words[1] : "*");
+            labels = parseLabels(words.length > 2 ? words[2] : "*");
+            if ((long) patients.size() * labels.size() > MAX_TOPICS) {
+                throw new IllegalArgumentException("a command may name at most " + MAX_TOPICS + " subscriptions");
+            }
+        } catch (IllegalArgumentException e) {
+            return "error: " + e.getMessage();
+        }
+
+        Set<SubscriptionIndex.Topic> topics = new LinkedHashSet<>();
+        if (group != null && conn.getAttachment() != null) {
+            // Only the explicit subscriptions; the first command replaces the implicit one
+            topics.addAll(group.topics);
+        }
+        for (Integer patientId : patients) {
+            for (String label : labels) {
+                SubscriptionIndex.Topic topic = new SubscriptionIndex.Topic(patientId, label);
+                if (verb.equals("subscribe")) {
+                    topics.add(topic);
+                } else {
+                    topics.removeIf(topic::covers);
+                }
+            }
+        }
+        if (topics.size() > MAX_TOPICS) {
+            return "error: a client may have at most " + MAX_TOPICS + " subscriptions";
+        }
+        conn.setAttachment(Boolean.TRUE);
+        join(conn, topics);
+        return "ok: " + topics.size() + " subscriptions";
+    }
+
+    // Moves the client into the group with the given subscriptions
+    private void join(WebSocket conn, Set<SubscriptionIndex.Topic> topics) {
+        synchronized (groups) {
+            leave(conn);
+            if (topics.isEmpty()) {
+                return;
+            }
+            Group group = groups.get(topics);
+            if (group == null) {
+                group = new Group(Collections.unmodifiableSet(new LinkedHashSet<>(topics)));
+                groups.put(group.topics, group);
+                subscriptions.subscribe(group, group.topics);
+            }
+            group.members.add(conn);
+            groupOfClient.put(conn, group);
+        }
+    }
+
+    private void leave(WebSocket conn) {
+        synchronized (groups) {
+            Group group = groupOfClient.remove(conn);
+            if (group == null) {
+                return;
+            }
+            group.members.remove(conn);
+            if (group.members.isEmpty()) {
+                groups.remove(group.topics);
+                subscriptions.remove(group);
+            }
+        }
+    }
+
+    // "*" is a list with the wildcard null
+    private static List<Integer> parsePatients(String spec) {
+        List<Integer> patients = new ArrayList<>();
+        if (spec.equals("*")) {
+            patients.add(null);
+            return patients;
+        }
+        for (String part : spec.split(",")) {
+            try {
+                int dash = part.indexOf('-', 1);
+                if (dash < 0) {
+                    if (patients.size() >= MAX_TOPICS) {
+                        throw new IllegalArgumentException("a command may name at most " + MAX_TOPICS + " patients");
+                    }
+                    patients.add(Integer.parseInt(part));
+                    continue;
+                }
+                int first = Integer.parseInt(part.substring(0, dash));
+                int last = Integer.parseInt(part.substring(dash + 1));
+                if (last < first) {
+                    throw new IllegalArgumentException("invalid patient range '" + part + "'");
+                }
+                // Checked before expanding, so no command makes us build a huge list
+                if ((long) last - first + 1 > MAX_TOPICS - patients.size()) {
+                    throw new IllegalArgumentException("a command may name at most " + MAX_TOPICS + " patients");
+                }
+                for (int id = first; id <= last; id++) {
+                    patients.add(id);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid patient id '" + part + "'");
+            }
+        }
+        return patients;
+    }
+
+    private static List<String> parseLabels(String spec) {
+        List<String> labels = new ArrayList<>();
+        if (spec.equals("*")) {
+            labels.add(null);
+            return labels;
+        }
+        for (String label : spec.split(",")) {
+            if (label.isEmpty()) {
+                throw new IllegalArgumentException("empty label");
+            }
+            labels.add(label);
+        }
+        return labels;
+    }
+
+    /**
+     * The clients sharing the same subscriptions, and the batch of records collected for them.
+     */
+    private final class Group {
+        final Set<SubscriptionIndex.Topic> topics;
+        final List<WebSocket> members = new CopyOnWriteArrayList<>();
+        private ByteBuffer binary; // Batch of the binary format
+        private StringBuilder json; // Batch of the JSON format
+
+        Group(Set<SubscriptionIndex.Topic> topics) {
+            this.topics = topics;
+        }
+
+        synchronized void appendBinary(int patientId, long timestamp, MeasurementKind kind, double value) {
+            if (binary == null) {
+                binary = ByteBuffer.allocate(64 * BinaryRecordFormat.RECORD_SIZE);
+            } else if (binary.remaining() < BinaryRecordFormat.RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(binary.capacity() * 2);
+                binary.flip();
+                binary = larger.put(binary);
+            }
+            BinaryRecordFormat.writeRecord(binary, patientId, timestamp, kind, value);
+        }
+
+        synchronized void appendJson(int patientId, long timestamp, String label, double value) {
+            startJsonRecord(patientId, timestamp, label);
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                json.append("null]");
+            } else {
+                json.append(value).append(']');
+            }
+        }
+
+        synchronized void appendJson(int patientId, long timestamp, String label, String data) {
+            startJsonRecord(patientId, timestamp, label);
+            appendJsonString(data);
+            json.append(']');
+        }
+
+        private void startJsonRecord(int patientId, long timestamp, String label) {
+            if (json == null) {
+                json = new StringBuilder(4096);
+            }
+            json.append(json.length() == 0 ? "[[" : ",[");
+            json.append(patientId).append(',').append(timestamp).append(',');
+            appendJsonString(label);
+            json.append(',');
+        }
+
+        private void appendJsonString(String text) {
+            json.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+            json.append('"');
+        }
+
+        // Encodes the batch once and sends the same message to every member
+        void send() {
+            byte[] records = null;
+            String array = null;
+            synchronized (this) {
+                if (binary != null && binary.position() > 0) {
+                    records = new byte[binary.position()];
+                    binary.flip();
+                    binary.get(records);
+                    binary.clear();
+                }
+                if (json != null && json.length() > 0) {
+                    array = json.append(']').toString();
+                    json.setLength(0);
+                }
+            }
+            if (records != null) {
+                server.broadcast(records, members);
+            }
+            if (array != null) {
+                server.broadcast(array, members);
+            }
         }
     }
 
-    private static class SimpleWebSocketServer extends WebSocketServer {
+    private class SimpleWebSocketServer extends WebSocketServer {
 
         public SimpleWebSocketServer(InetSocketAddress address) {
             super(address);
@@ -33,16 +439,24 @@ public class WebSocketOutputStrategy implements OutputStrategy {
         @Override
         public void onOpen(WebSocket conn, org.java_websocket.handshake.ClientHandshake handshake) {
             System.out.println("New connection: " + conn.getRemoteSocketAddress());
+            // Clients receive everything until they subscribe
+            join(conn, Collections.singleton(EVERYTHING));
         }
 
         @Override
         public void onClose(WebSocket conn, int code, String reason, boolean remote) {
             System.out.println("Closed connection: " + conn.getRemoteSocketAddress());
+            leave(conn);
         }
 
         @Override
         public void onMessage(WebSocket conn, String message) {
-            // Not used in this context
+            String reply = handleCommand(conn, message);
+            try {
+                conn.send(reply);
+            } catch (WebsocketNotConnectedException e) {
+                // Closing; the client leaves its group in onClose
+            }
         }
 
         @Override
@@ -0,0 +1,100 @@
+package com.cardio_generator.scheduling;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SampleBatch;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The {@code BatchedTickScheduler} drives every generator with a single periodic tick
+ * instead of one timer task per patient.
+ * <p>
+ * A tick fires once per unit of the generator's period (e.g. every second for a
+ * 20-second period) and sweeps all patients that are due in that tick. The due patients
+ * are split into contiguous chunks which are processed by a small worker pool, usually
+ * sized to the number of cores. The thread count therefore stays flat no matter how many
+ * patients are simulated.
+ * </p>
+ * <p>
+ * Each chunk is generated with the bulk {@link PatientDataGenerator#generate(int[], int, int, SampleBatch)}
+ * call into a {@link SampleBatch} owned by the chunk, using a single timestamp per tick.
+ * </p>
+ * <p>
+ * Like the per-patient scheduler, every patient starts after a random delay of up to
+ * {@value #MAX_INITIAL_DELAY} time units. The delay fixes the patient's phase within the
+ * period, so consecutive samples of the same patient are exactly one period apart.
+ * </p>
+ *
+ * @see FixedRateTaskScheduler
+ */
+public class BatchedTickScheduler implements PatientTaskScheduler {
+
+    /** Upper bound (exclusive) of the random initial delay, in units of the period. */
+    static final int MAX_INITIAL_DELAY = 5;
+
+    private final ScheduledThreadPoolExecutor ticker;
+    private final ExecutorService workers;
+    private final int parallelism;
+    private final OutputStrategy outputStrategy;
+    private final Random random;
+    private final SimulationClock clock;
+    private int sweepCount;
+
+    /**
+     * Constructs a new {@code BatchedTickScheduler}.
+     *
+     * @param outputStrategy the strategy the generated data is written to
+     * @param parallelism    the number of worker threads sweeping the patients
+     * @param random         the source for the random initial delays
+     * @param clock          the clock stamping the ticks; its speed scales the tick rate
+     */
+    public BatchedTickScheduler(OutputStrategy outputStrategy, int parallelism, Random random,
+            SimulationClock clock) {
+        this.ticker = new ScheduledThreadPoolExecutor(1);
+        this.workers = Executors.newFixedThreadPool(parallelism);
+        this.parallelism = parallelism;
+        this.outputStrategy = outputStrategy;
+        this.random = random;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void schedule(PatientDataGenerator generator, List<Integer> patientIds, long period,
+            TimeUnit timeUnit) {
+        if (period <= 0 || period > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported period: " + period);
+        }
+        GeneratorSweep sweep = new GeneratorSweep(generator, patientIds, (int) period, random, outputStrategy,
+                workers, parallelism);
+        // One ticking thread per generator, so a long sweep of one generator
+        // does not delay the ticks of the others.
+        ticker.setCorePoolSize(++sweepCount);
+        long tickNanos = Math.max(1, (long) (timeUnit.toNanos(1) / clock.speed()));
+        ticker.scheduleAtFixedRate(() -> tick(sweep), 0, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        ticker.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void tick(GeneratorSweep sweep) {
+        try {
+            sweep.tick(clock.currentTimeMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // An exception escaping the tick would silently cancel all future ticks.
+            System.err.println("An error occurred during a scheduler tick: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
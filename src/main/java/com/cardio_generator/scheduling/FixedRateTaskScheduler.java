@@ -0,0 +1,61 @@
+package com.cardio_generator.scheduling;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The {@code FixedRateTaskScheduler} registers one {@code scheduleAtFixedRate} task per
+ * patient and generator on a shared {@link ScheduledExecutorService}.
+ * <p>
+ * This is the original scheduling model of the simulator. It is simple, but the number of
+ * timer entries grows with the number of patients, so it is best suited for small runs.
+ * </p>
+ *
+ * @see BatchedTickScheduler
+ */
+public class FixedRateTaskScheduler implements PatientTaskScheduler {
+
+    private final ScheduledExecutorService scheduler;
+    private final OutputStrategy outputStrategy;
+    private final Random random;
+    private final double speed;
+
+    /**
+     * Constructs a new {@code FixedRateTaskScheduler}.
+     *
+     * @param outputStrategy the strategy the generated data is written to
+     * @param threadCount    the number of threads of the underlying scheduled executor
+     * @param random         the source for the random initial delays
+     * @param clock          the clock of the simulation; its speed scales the periods
+     */
+    public FixedRateTaskScheduler(OutputStrategy outputStrategy, int threadCount, Random random,
+            SimulationClock clock) {
+        this.scheduler = Executors.newScheduledThreadPool(threadCount);
+        this.outputStrategy = outputStrategy;
+        this.random = random;
+        this.speed = clock.speed();
+    }
+
+    @Override
+    public void schedule(PatientDataGenerator generator, List<Integer> patientIds, long period, TimeUnit timeUnit) {
+        long periodNanos = Math.max(1, (long) (timeUnit.toNanos(period) / speed));
+        for (int patientId : patientIds) {
+            long initialDelayNanos = (long) (timeUnit.toNanos(random.nextInt(BatchedTickScheduler.MAX_INITIAL_DELAY))
+                    / speed);
+            scheduler.scheduleAtFixedRate(() -> generator.generate(patientId, outputStrategy),
+                    initialDelayNanos, periodNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
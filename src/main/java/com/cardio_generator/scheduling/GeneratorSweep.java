@@ -0,0 +1,129 @@
+package com.cardio_generator.scheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SampleBatch;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The periodic sweep of a single generator over all of its patients, shared by the
+ * schedulers that tick generators instead of patients.
+ * <p>
+ * One call to {@link #tick(long)} stands for one unit of the generator's period. Patients
+ * are grouped into buckets by their phase within the period, so a tick only looks at the
+ * patients of one bucket. The due patients are split into contiguous chunks that are
+ * generated in parallel, each into its own {@link SampleBatch}.
+ * </p>
+ */
+class GeneratorSweep {
+
+    /** Smallest number of patients worth handing to a separate worker. */
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private final PatientDataGenerator generator;
+    private final OutputStrategy outputStrategy;
+    private final ExecutorService workers;
+    private final int[][] buckets;
+    private final int[][] startTicks;
+    private final int[] due;
+    private final List<SweepChunk> chunks = new ArrayList<>();
+    private long tick;
+
+    /**
+     * @param generator      the generator to sweep
+     * @param patientIds     the patients of the generator
+     * @param period         the period of the generator, in ticks
+     * @param random         the source for the random start tick of each patient
+     * @param outputStrategy the strategy the generated data is written to
+     * @param workers        the pool generating the chunks of a tick
+     * @param parallelism    the number of threads of the pool
+     */
+    GeneratorSweep(PatientDataGenerator generator, List<Integer> patientIds, int period, Random random,
+            OutputStrategy outputStrategy, ExecutorService workers, int parallelism) {
+        this.generator = generator;
+        this.outputStrategy = outputStrategy;
+        this.workers = workers;
+        this.due = new int[patientIds.size()];
+
+        int[] bucketSizes = new int[period];
+        int[] patientStarts = new int[patientIds.size()];
+        for (int i = 0; i < patientStarts.length; i++) {
+            patientStarts[i] = random.nextInt(BatchedTickScheduler.MAX_INITIAL_DELAY);
+            bucketSizes[patientStarts[i] % period]++;
+        }
+        buckets = new int[period][];
+        startTicks = new int[period][];
+        for (int b = 0; b < period; b++) {
+            buckets[b] = new int[bucketSizes[b]];
+            startTicks[b] = new int[bucketSizes[b]];
+        }
+        Arrays.fill(bucketSizes, 0);
+        for (int i = 0; i < patientStarts.length; i++) {
+            int b = patientStarts[i] % period;
+            buckets[b][bucketSizes[b]] = patientIds.get(i);
+            startTicks[b][bucketSizes[b]++] = patientStarts[i];
+        }
+
+        for (int c = 0; c < parallelism; c++) {
+            chunks.add(new SweepChunk());
+        }
+    }
+
+    /**
+     * Generates the data of all patients due in the next tick.
+     *
+     * @param timestamp the timestamp shared by all samples of the tick
+     * @throws InterruptedException if the thread is interrupted while waiting for the workers
+     */
+    void tick(long timestamp) throws InterruptedException {
+        int bucket = (int) (tick % buckets.length);
+        int[] patients = buckets[bucket];
+        int[] starts = startTicks[bucket];
+        int dueCount = 0;
+        for (int i = 0; i < patients.length; i++) {
+            if (starts[i] <= tick) {
+                due[dueCount++] = patients[i];
+            }
+        }
+        tick++;
+        if (dueCount == 0) {
+            return;
+        }
+
+        int chunkCount = Math.min(chunks.size(), (dueCount + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        int chunkSize = (dueCount + chunkCount - 1) / chunkCount;
+        for (int c = 0; c < chunkCount; c++) {
+            SweepChunk chunk = chunks.get(c);
+            chunk.from = Math.min(c * chunkSize, dueCount);
+            chunk.to = Math.min(chunk.from + chunkSize, dueCount);
+            chunk.timestamp = timestamp;
+        }
+        if (chunkCount == 1) {
+            chunks.get(0).call();
+        } else {
+            workers.invokeAll(chunks.subList(0, chunkCount));
+        }
+        outputStrategy.flush(); // The tick is complete
+    }
+
+    private class SweepChunk implements Callable<Void> {
+        private final SampleBatch batch = new SampleBatch(MIN_CHUNK_SIZE);
+        int from;
+        int to;
+        long timestamp;
+
+        @Override
+        public Void call() {
+            batch.reset(timestamp);
+            generator.generate(due, from, to, batch);
+            batch.drainTo(outputStrategy);
+            return null;
+        }
+    }
+}
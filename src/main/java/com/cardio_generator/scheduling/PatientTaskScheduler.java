@@ -0,0 +1,42 @@
+package com.cardio_generator.scheduling;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+
+/**
+ * The {@code PatientTaskScheduler} interface defines how the simulator drives its
+ * {@link PatientDataGenerator}s over time. Implementations decide how the periodic
+ * generation for every patient is mapped onto threads (one timer task per patient,
+ * one periodic sweep per generator, ...).
+ *
+ * <p>Example usage:
+ * <pre>
+ *     PatientTaskScheduler scheduler = new BatchedTickScheduler(outputStrategy, 8, new Random(),
+ *             SimulationClock.system());
+ *     scheduler.schedule(new ECGDataGenerator(100), patientIds, 1, TimeUnit.SECONDS);
+ * </pre>
+ * </p>
+ *
+ * @see FixedRateTaskScheduler
+ * @see BatchedTickScheduler
+ */
+public interface PatientTaskScheduler {
+    /**
+     * Starts generating data for every given patient at a fixed rate.
+     * Each patient starts after a small random delay, so that samples of different
+     * patients are spread over time instead of all arriving at once.
+     *
+     * @param generator  the generator producing the data
+     * @param patientIds the patients the generator should produce data for
+     * @param period     the period between two samples of the same patient
+     * @param timeUnit   the time unit of the period parameter
+     */
+    void schedule(PatientDataGenerator generator, List<Integer> patientIds, long period, TimeUnit timeUnit);
+
+    /**
+     * Stops all scheduled generation and releases the threads of this scheduler.
+     */
+    void shutdown();
+}
@@ -0,0 +1,152 @@
+package com.cardio_generator.scheduling;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The {@code VirtualThreadTaskScheduler} runs every patient stream (one patient of one
+ * generator) in its own sleep loop on a virtual thread.
+ * <p>
+ * A stream that blocks on a slow sink (e.g. {@code TcpOutputStrategy} or
+ * {@code FileOutputStrategy}) only parks its own virtual thread instead of pinning a
+ * platform thread, so the number of patients is not limited by the thread-per-task
+ * memory cost. Samples are taken at fixed-rate deadlines, so a late sample does not
+ * shift the following ones.
+ * </p>
+ * <p>
+ * Virtual threads require Java 21. The project is compiled for older releases, so the
+ * virtual thread factory is looked up at runtime; use {@link #isSupported()} before
+ * creating this scheduler, or {@link #createOrFallBack} to use platform threads where
+ * virtual threads are missing.
+ * </p>
+ *
+ * @see BatchedTickScheduler
+ * @see FixedRateTaskScheduler
+ */
+public class VirtualThreadTaskScheduler implements PatientTaskScheduler {
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+
+    private final OutputStrategy outputStrategy;
+    private final Random random;
+    private final double speed;
+    private final Set<Thread> streams = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new {@code VirtualThreadTaskScheduler}.
+     *
+     * @param outputStrategy the strategy the generated data is written to
+     * @param random         the source for the random initial delays
+     * @param clock          the clock of the simulation; its speed scales the periods
+     * @throws UnsupportedOperationException if the running JVM has no virtual threads
+     */
+    public VirtualThreadTaskScheduler(OutputStrategy outputStrategy, Random random, SimulationClock clock) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+        }
+        this.outputStrategy = outputStrategy;
+        this.random = random;
+        this.speed = clock.speed();
+
+        // Virtual threads are always daemon threads; keep the JVM alive until shutdown.
+        Thread keepAlive = new Thread(() -> {
+            try {
+                stopped.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "virtual-scheduler-keep-alive");
+        keepAlive.start();
+    }
+
+    /**
+     * Creates a {@code VirtualThreadTaskScheduler}, or, if the running JVM has no virtual
+     * threads, reports that and falls back to a {@link FixedRateTaskScheduler}.
+     *
+     * @param outputStrategy  the strategy the generated data is written to
+     * @param random          the source for the random initial delays
+     * @param clock           the clock of the simulation; its speed scales the periods
+     * @param platformThreads the number of threads of the fallback scheduler
+     * @return the scheduler
+     */
+    public static PatientTaskScheduler createOrFallBack(OutputStrategy outputStrategy, Random random,
+            SimulationClock clock, int platformThreads) {
+        if (isSupported()) {
+            return new VirtualThreadTaskScheduler(outputStrategy, random, clock);
+        }
+        System.err.println("Virtual threads require Java 21 or newer. Using the platform executor.");
+        return new FixedRateTaskScheduler(outputStrategy, platformThreads, random, clock);
+    }
+
+    /**
+     * @return {@code true} if the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    @Override
+    public void schedule(PatientDataGenerator generator, List<Integer> patientIds, long period, TimeUnit timeUnit) {
+        long periodNanos = Math.max(1, (long) (timeUnit.toNanos(period) / speed));
+        for (int patientId : patientIds) {
+            long initialDelayNanos = (long) (timeUnit.toNanos(random.nextInt(BatchedTickScheduler.MAX_INITIAL_DELAY))
+                    / speed);
+            Thread stream = VIRTUAL_THREAD_FACTORY.newThread(
+                    () -> runStream(generator, patientId, initialDelayNanos, periodNanos));
+            streams.add(stream);
+            stream.start();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        for (Thread stream : streams) {
+            stream.interrupt();
+        }
+        stopped.countDown();
+    }
+
+    private void runStream(PatientDataGenerator generator, int patientId, long initialDelayNanos, long periodNanos) {
+        try {
+            long deadline = System.nanoTime() + initialDelayNanos;
+            while (running) {
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                    if (Thread.interrupted()) {
+                        return;
+                    }
+                }
+                generator.generate(patientId, outputStrategy);
+                deadline += periodNanos;
+            }
+        } finally {
+            streams.remove(Thread.currentThread());
+        }
+    }
+
+    private static ThreadFactory lookupVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "patient-stream-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            // Older JVM, or Thread.ofVirtual() disabled as a preview feature (Java 19/20).
+            return null;
+        }
+    }
+}
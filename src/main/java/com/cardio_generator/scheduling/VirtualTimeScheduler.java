@@ -0,0 +1,124 @@
+package com.cardio_generator.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.cardio_generator.clock.VirtualClock;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * The {@code VirtualTimeScheduler} runs the simulation in virtual time, as fast as the
+ * output can absorb the data.
+ * <p>
+ * It sweeps the generators like the {@link BatchedTickScheduler}, but instead of waiting
+ * for the next tick it advances a {@link VirtualClock} straight to it. Ticks of different
+ * generators are processed in time order, so the produced data is the same as in a real
+ * time run; only the wall-clock time needed to produce it is shorter. This makes it
+ * possible to backfill days of data in minutes.
+ * </p>
+ * <p>
+ * Generators are registered with {@link #schedule} and the simulation is then driven by
+ * {@link #run(long)} on the calling thread.
+ * </p>
+ *
+ * <p>Example usage:
+ * <pre>
+ *     VirtualClock clock = new VirtualClock(System.currentTimeMillis());
+ *     VirtualTimeScheduler scheduler = new VirtualTimeScheduler(outputStrategy, 8, random, clock);
+ *     scheduler.schedule(new ECGDataGenerator(100, seed, clock), patientIds, 1, TimeUnit.SECONDS);
+ *     scheduler.run(TimeUnit.HOURS.toMillis(24));
+ * </pre>
+ * </p>
+ *
+ * @see BatchedTickScheduler
+ */
+public class VirtualTimeScheduler implements PatientTaskScheduler {
+
+    private final ExecutorService workers;
+    private final int parallelism;
+    private final OutputStrategy outputStrategy;
+    private final Random random;
+    private final VirtualClock clock;
+    private final List<Registration> registrations = new ArrayList<>();
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a new {@code VirtualTimeScheduler}.
+     *
+     * @param outputStrategy the strategy the generated data is written to
+     * @param parallelism    the number of worker threads sweeping the patients
+     * @param random         the source for the random initial delays
+     * @param clock          the virtual clock advanced by this scheduler
+     */
+    public VirtualTimeScheduler(OutputStrategy outputStrategy, int parallelism, Random random, VirtualClock clock) {
+        this.workers = Executors.newFixedThreadPool(parallelism);
+        this.parallelism = parallelism;
+        this.outputStrategy = outputStrategy;
+        this.random = random;
+        this.clock = clock;
+    }
+
+    /**
+     * Registers a generator. Generation starts when {@link #run(long)} is called.
+     */
+    @Override
+    public synchronized void schedule(PatientDataGenerator generator, List<Integer> patientIds, long period,
+            TimeUnit timeUnit) {
+        if (period <= 0 || period > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported period: " + period);
+        }
+        GeneratorSweep sweep = new GeneratorSweep(generator, patientIds, (int) period, random, outputStrategy,
+                workers, parallelism);
+        registrations.add(new Registration(sweep, timeUnit.toMillis(1), clock.currentTimeMillis()));
+    }
+
+    /**
+     * Runs the simulation until the given amount of virtual time has passed or until
+     * {@link #shutdown()} is called.
+     *
+     * @param durationMillis the virtual time to simulate, or {@code 0} to run until shutdown
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void run(long durationMillis) throws InterruptedException {
+        long endMillis = durationMillis > 0 ? clock.currentTimeMillis() + durationMillis : Long.MAX_VALUE;
+        while (!stopped) {
+            Registration next = null;
+            synchronized (this) {
+                for (Registration registration : registrations) {
+                    if (next == null || registration.nextTickMillis < next.nextTickMillis) {
+                        next = registration;
+                    }
+                }
+            }
+            if (next == null || next.nextTickMillis >= endMillis) {
+                return;
+            }
+            clock.advanceTo(next.nextTickMillis);
+            next.sweep.tick(next.nextTickMillis);
+            next.nextTickMillis += next.tickMillis;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        stopped = true;
+        workers.shutdownNow();
+    }
+
+    private static class Registration {
+        final GeneratorSweep sweep;
+        final long tickMillis;
+        long nextTickMillis;
+
+        Registration(GeneratorSweep sweep, long tickMillis, long nextTickMillis) {
+            this.sweep = sweep;
+            this.tickMillis = Math.max(1, tickMillis);
+            this.nextTickMillis = nextTickMillis;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.MeasurementKind;
+
+/**
+ * Reads the "*.bin" files produced by HealthDataSimulator (--output binary:&lt;dir&gt;).
+ * <p>
+ * The files are memory-mapped and decoded record by record straight from the mapping, so
+ * loading does not create a String per record: the record type passed to the storage is the
+ * constant label of the record's {@link MeasurementKind}. See {@link BinaryRecordFormat} for
+ * the layout of the files.
+ * </p>
+ */
+public class BinaryFileDataReader implements DataReader {
+
+    // Records stored at once
+    private static final int BATCH_RECORDS = 64 * 1024;
+    // Largest mapping, a multiple of the record size below 2 GB
+    private static final long MAX_MAPPING = (Integer.MAX_VALUE / BinaryRecordFormat.RECORD_SIZE)
+            * (long) BinaryRecordFormat.RECORD_SIZE;
+
+    private final Path dir;
+
+    public BinaryFileDataReader(String outputDir) {
+        this.dir = Paths.get(outputDir);
+    }
+
+    @Override
+    public void readData(DataStorage storage) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + BinaryRecordFormat.EXTENSION)) {
+            for (Path file : files) {
+                readFile(file, storage);
+            }
+        }
+    }
+
+    /**
+     * Reads all records of one file into the storage. A partially written last record is ignored.
+     *
+     * @param file    the file to read
+     * @param storage the storage where the records will be stored
+     * @throws IOException if the file cannot be read or is not a binary record file
+     */
+    public void readFile(Path file, DataStorage storage) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            BinaryRecordFormat.checkHeader(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(size, BinaryRecordFormat.HEADER_SIZE)));
+            long records = (size - BinaryRecordFormat.HEADER_SIZE) / BinaryRecordFormat.RECORD_SIZE;
+            long end = BinaryRecordFormat.HEADER_SIZE + records * BinaryRecordFormat.RECORD_SIZE;
+            for (long position = BinaryRecordFormat.HEADER_SIZE; position < end; position += MAX_MAPPING) {
+                long length = Math.min(MAX_MAPPING, end - position);
+                readRecords(channel.map(FileChannel.MapMode.READ_ONLY, position, length), storage, file);
+            }
+        }
+    }
+
+    private void readRecords(MappedByteBuffer buffer, DataStorage storage, Path file) throws IOException {
+        RecordColumns columns = new RecordColumns(BATCH_RECORDS);
+        int limit = buffer.limit();
+        for (int offset = 0; offset < limit; offset += BinaryRecordFormat.RECORD_SIZE) {
+            int patientId = buffer.getInt(offset);
+            long timestamp = buffer.getLong(offset + 4);
+            MeasurementKind kind = BinaryRecordFormat.kindOf(buffer.getShort(offset + 12));
+            double value = buffer.getDouble(offset + 14);
+            if (kind == null) {
+                throw new IOException("Unknown kind " + buffer.getShort(offset + 12) + " in " + file);
+            }
+            columns.add(patientId, timestamp, kind.label(), value);
+            if (columns.size == BATCH_RECORDS) {
+                columns.storeIn(storage);
+                columns.clear();
+            }
+        }
+        columns.storeIn(storage);
+    }
+}
@@ -1,16 +1,18 @@
 package com.data_management;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import com.alerts.AlertGenerator;
 
 /**
  * Manages storage and retrieval of patient data within a healthcare monitoring
  * system.
  * This class serves as a repository for all patient records, organized by
- * patient IDs.
+ * patient IDs. Data may be added from several threads, e.g. by readers running
+ * in the background.
  */
 public class DataStorage {
     private static volatile DataStorage instance;
@@ -20,10 +22,19 @@ public class DataStorage {
      * Constructs a new instance of DataStorage, initializing the underlying storage
      * structure.
      */
+    private DataStorage() {
+        this.patientMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the single instance of DataStorage, creating it on first use.
+     *
+     * @return the shared DataStorage instance
+     */
     public static DataStorage getInstance() {
         if (instance == null) {
             synchronized(DataStorage.class) {
-                if (instance == null) instance = DataStorage.getInstance();
+                if (instance == null) instance = new DataStorage();
             }
         }
         return instance;
@@ -43,12 +54,78 @@ public class DataStorage {
      *                         milliseconds since the Unix epoch
      */
     public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
-        Patient patient = patientMap.get(patientId);
-        if (patient == null) {
-            patient = new Patient(patientId);
-            patientMap.put(patientId, patient);
+        patientMap.computeIfAbsent(patientId, Patient::new).addRecord(measurementValue, recordType, timestamp);
+    }
+
+    /**
+     * Adds a batch of records given as parallel arrays, as the data readers collect them.
+     * The records are grouped by patient, so each patient of the batch is looked up once and
+     * receives its records in one step; the records of a patient keep their order.
+     *
+     * @param patientIds  the patient of each record
+     * @param timestamps  the time of each record, in milliseconds since the Unix epoch
+     * @param recordTypes the type of each record, e.g., "ECG"
+     * @param values      the measurement value of each record
+     * @param offset      the index of the first record in the arrays
+     * @param length      the number of records
+     * @throws IndexOutOfBoundsException if an array holds fewer than {@code offset + length} entries
+     */
+    public void addPatientData(int[] patientIds, long[] timestamps, String[] recordTypes, double[] values,
+            int offset, int length) {
+        int end = offset + length;
+        if (offset < 0 || length < 0 || end > patientIds.length || end > timestamps.length
+                || end > recordTypes.length || end > values.length) {
+            throw new IndexOutOfBoundsException("Records " + offset + " to " + end + " out of bounds");
+        }
+        int[] order = groupByPatient(patientIds, offset, length);
+        int start = 0;
+        while (start < length) {
+            int patientId = patientIds[order[start]];
+            int stop = start + 1;
+            while (stop < length && patientIds[order[stop]] == patientId) {
+                stop++;
+            }
+            patientMap.computeIfAbsent(patientId, Patient::new)
+                    .addRecords(order, start, stop, timestamps, recordTypes, values);
+            start = stop;
+        }
+    }
+
+    /*
+     * The indices of the records grouped by patient, the patients in order of appearance and the
+     * records of each patient in their order. A small hash table numbers the patients, and a
+     * counting sort places the records, so grouping takes linear time.
+     */
+    private static int[] groupByPatient(int[] patientIds, int offset, int length) {
+        int slots = Integer.highestOneBit(Math.max(length, 1) * 2 - 1) * 2; // Power of two, at most half full
+        int shift = 32 - Integer.numberOfTrailingZeros(slots); // At least 1, as there are at least 2 slots
+        int[] slotPatients = new int[slots];
+        int[] slotGroups = new int[slots];
+        Arrays.fill(slotGroups, -1);
+        int[] groupOf = new int[length];
+        int[] groupStarts = new int[length + 1];
+        int groups = 0;
+        for (int i = 0; i < length; i++) {
+            int patientId = patientIds[offset + i];
+            int slot = (patientId * 0x9E3779B9) >>> shift; // The high bits, where the multiply mixes best
+            while (slotGroups[slot] >= 0 && slotPatients[slot] != patientId) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            if (slotGroups[slot] < 0) {
+                slotPatients[slot] = patientId;
+                slotGroups[slot] = groups++;
+            }
+            groupOf[i] = slotGroups[slot];
+            groupStarts[groupOf[i] + 1]++;
+        }
+        for (int group = 0; group < groups; group++) {
+            groupStarts[group + 1] += groupStarts[group];
+        }
+        int[] order = new int[length];
+        for (int i = 0; i < length; i++) {
+            order[groupStarts[groupOf[i]]++] = offset + i;
         }
-        patient.addRecord(measurementValue, recordType, timestamp);
+        return order;
     }
 
     /**
@@ -1,40 +1,462 @@
 package com.data_management;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.stream.Stream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 /**
- * Reads “*.csv” files produced by HealthDataSimulator (--output file:<dir>)
- * CSV format: patientId,timestamp,recordType,value
+ * Reads the directory written by HealthDataSimulator with {@code --output file:<dir>}: the
+ * {@code <label>.txt} files of the file output, or, when it writes segments, the numbered
+ * {@code <label>-000001.txt} segments and their compressed {@code <label>-000001.txt.gz} form.
+ * Their lines are "Patient ID: ..., Timestamp: ..., Label: ..., Data: ...". Files named
+ * {@code *.csv} with "patientId,timestamp,recordType,value" lines, such as a capture of the TCP
+ * output, are read as well.
+ * <p>
+ * Each file is split into line-aligned chunks of about {@value #CHUNK_BYTES} bytes, which are
+ * memory-mapped and parsed in parallel on a fork/join pool. The parser works on the bytes of
+ * the mapping: numbers are read digit by digit, and record types are matched against the types
+ * seen before, so a line usually produces no garbage. The parsed chunks are stored in file
+ * order while the next ones are still being parsed. Compressed segments cannot be mapped; they
+ * are decompressed into a reused buffer and parsed on the calling thread. A compressed segment
+ * is skipped while its uncompressed file is still there, as both hold the same records.
+ * </p>
+ * <p>
+ * {@link #follow(DataStorage, Path, long)} keeps reading while the simulator is writing: it
+ * remembers how far each file has been read, and stores only the complete lines appended since.
+ * When a segment is compressed, the rest of it is read from the compressed file. The offsets can
+ * be checkpointed to a file, so a restarted reader resumes where it stopped.
+ * </p>
  */
-public class FileDataReader implements DataReader {
+public class FileDataReader implements DataReader, Closeable {
+
+    /** The size of the chunks the files are split into. */
+    public static final int CHUNK_BYTES = 8 * 1024 * 1024;
+    /** The longest line accepted. */
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    /** The size of the buffer compressed segments are decompressed into. */
+    private static final int INFLATED_BYTES = 1024 * 1024;
+    /** The offset of a compressed segment that has been read completely. */
+    private static final long COMPLETE = -1;
 
     private final Path dir;
+    private final int parallelism;
+    private volatile boolean closed;
+    private volatile WatchService watcher;
 
     public FileDataReader(String outputDir) {
+        this(outputDir, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param outputDir   the directory written by the file output
+     * @param parallelism the number of threads parsing chunks; 1 parses on the calling thread
+     */
+    public FileDataReader(String outputDir, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
         this.dir = Paths.get(outputDir);
+        this.parallelism = parallelism;
     }
 
     @Override
     public void readData(DataStorage storage) throws IOException {
-        try (Stream<Path> files = Files.list(dir).filter(p -> p.toString().endsWith(".csv"))) {
-            files.forEach(path -> {
-                try {
-                    Files.lines(path).forEach(line -> parseLine(line, storage));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            Set<Path> read = new HashSet<>();
+            for (Path file : dataFiles()) {
+                if (!isCompressed(file)) {
+                    try {
+                        readFile(file, storage, pool);
+                        read.add(file);
+                    } catch (NoSuchFileException e) {
+                        // Compressed since listed
+                    }
+                } else if (!read.contains(uncompressedOf(file)) && !Files.exists(uncompressedOf(file))) {
+                    readCompressed(file, 0, storage);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Reads the files continuously, storing the lines appended to them as they are written,
+     * until {@link #close()} is called or the thread is interrupted.
+     * <p>
+     * The directory is watched with a {@link WatchService}, and polled every
+     * {@code pollIntervalMillis} in case the file system does not report changes. Only complete
+     * lines are read; a line still being written is read once its newline arrives. A file that
+     * becomes shorter than its offset is assumed to be new, and read from the start. Once a
+     * segment has been compressed and its uncompressed file deleted, the compressed segment is
+     * read from the offset the uncompressed file had reached, and then marked as complete.
+     * </p>
+     *
+     * @param storage            the storage where the records will be stored
+     * @param checkpointFile     the file the offsets are saved to after every change and loaded
+     *                           from at the start, or {@code null} to start from the beginning
+     * @param pollIntervalMillis the longest time between two checks for new data
+     * @throws IOException if a file cannot be read or contains an invalid line
+     */
+    public void follow(DataStorage storage, Path checkpointFile, long pollIntervalMillis) throws IOException {
+        Map<String, Long> offsets = checkpointFile != null && Files.exists(checkpointFile)
+                ? readCheckpoint(checkpointFile) : new HashMap<>();
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            watcher = dir.getFileSystem().newWatchService();
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            watcher = null; // Polling only
+        }
+        try {
+            while (!closed) {
+                if (readAppendedLines(storage, pool, offsets) && checkpointFile != null) {
+                    writeCheckpoint(checkpointFile, offsets);
                 }
-            });
+                if (!awaitChanges(pollIntervalMillis)) {
+                    break;
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            WatchService service = watcher;
+            if (service != null) {
+                service.close();
+            }
+        }
+    }
+
+    /**
+     * Stops a running {@link #follow(DataStorage, Path, long)}.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService service = watcher;
+        if (service != null) {
+            service.close(); // Wakes up the waiting reader
         }
     }
 
-    private void parseLine(String csv, DataStorage storage) {
-        String[] parts = csv.split(",");
-        int patientId        = Integer.parseInt(parts[0]);
-        long timestamp       = Long.parseLong(parts[1]);
-        String recordType    = parts[2];
-        double measurement   = Double.parseDouble(parts[3]);
-        storage.addPatientData(patientId, measurement, recordType, timestamp);
+    // Reads the complete lines added since the offsets; true if an offset changed
+    private boolean readAppendedLines(DataStorage storage, ForkJoinPool pool, Map<String, Long> offsets)
+            throws IOException {
+        boolean changed = false;
+        for (Path file : dataFiles()) {
+            if (isCompressed(file)) {
+                changed |= readCompressedSegment(file, storage, offsets);
+                continue;
+            }
+            String name = file.getFileName().toString();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long offset = offsets.getOrDefault(name, 0L);
+                if (offset == COMPLETE || size < offset) {
+                    offset = 0; // Truncated or replaced
+                    changed = true;
+                }
+                long end = endOfLastLine(channel, offset, size);
+                if (end > offset) {
+                    readRange(channel, offset, end, file, storage, pool);
+                    offset = end;
+                    changed = true;
+                }
+                offsets.put(name, offset);
+            } catch (NoSuchFileException e) {
+                // Deleted since listed. If it was compressed, read the rest now, before the next segment
+                Path compressed = file.resolveSibling(name + ".gz");
+                if (Files.exists(compressed)) {
+                    changed |= readCompressedSegment(compressed, storage, offsets);
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Reads what was not read of a segment before it was compressed; true if anything was read
+    private static boolean readCompressedSegment(Path file, DataStorage storage, Map<String, Long> offsets)
+            throws IOException {
+        Path segment = uncompressedOf(file);
+        String name = segment.getFileName().toString(); // Keeps the offset of the uncompressed file
+        long offset = offsets.getOrDefault(name, 0L);
+        if (offset == COMPLETE || Files.exists(segment)) {
+            return false; // Done, or still read from the uncompressed file
+        }
+        readCompressed(file, offset, storage);
+        offsets.put(name, COMPLETE);
+        return true;
+    }
+
+    // False if the reader was stopped
+    private boolean awaitChanges(long pollIntervalMillis) {
+        try {
+            WatchService service = watcher;
+            if (service == null) {
+                Thread.sleep(pollIntervalMillis);
+                return !closed;
+            }
+            WatchKey key = service.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+            if (key != null) {
+                key.pollEvents(); // Which files changed does not matter, all are checked
+                key.reset();
+            }
+            return !closed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        }
+    }
+
+    // The position after the last newline between offset and size, or offset if there is none
+    private static long endOfLastLine(FileChannel channel, long offset, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(MAX_LINE_BYTES);
+        long blockEnd = size;
+        while (blockEnd > offset) {
+            long blockStart = Math.max(offset, blockEnd - MAX_LINE_BYTES);
+            probe.clear();
+            probe.limit((int) (blockEnd - blockStart));
+            while (probe.hasRemaining() && channel.read(probe, blockStart + probe.position()) >= 0) {
+                // Read the whole block
+            }
+            for (int i = probe.position() - 1; i >= 0; i--) {
+                if (probe.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return offset;
+    }
+
+    private static Map<String, Long> readCheckpoint(Path checkpointFile) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, Long> offsets = new HashMap<>();
+        try {
+            for (String name : properties.stringPropertyNames()) {
+                offsets.put(name, Long.parseLong(properties.getProperty(name)));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid checkpoint " + checkpointFile, e);
+        }
+        return offsets;
+    }
+
+    // Replaces the checkpoint atomically, so a crash leaves the old or the new offsets
+    private static void writeCheckpoint(Path checkpointFile, Map<String, Long> offsets) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> offset : offsets.entrySet()) {
+            properties.setProperty(offset.getKey(), Long.toString(offset.getValue()));
+        }
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Bytes of each file read by FileDataReader");
+        }
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // The files of the file output and the CSV files, sorted by name, so segments are read in order
+    private List<Path> dataFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.{csv,txt,txt.gz}")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    // ECG-000001.txt for ECG-000001.txt.gz
+    private static Path uncompressedOf(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - ".gz".length()));
+    }
+
+    // Stores the lines of a compressed segment after the first skip bytes, which end a line
+    private static void readCompressed(Path file, long skip, DataStorage storage) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 64 * 1024)) {
+            for (long skipped = 0; skipped < skip; ) {
+                long count = in.skip(skip - skipped);
+                if (count <= 0) {
+                    if (in.read() < 0) {
+                        throw new IOException(file + " is shorter than the " + skip + " bytes already read");
+                    }
+                    count = 1;
+                }
+                skipped += count;
+            }
+            byte[] bytes = new byte[INFLATED_BYTES];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long start = skip; // Position of bytes[0] in the uncompressed segment
+            int filled = 0;
+            int read = 0;
+            while (read >= 0) {
+                read = in.read(bytes, filled, bytes.length - filled);
+                if (read > 0 && (filled += read) < bytes.length) {
+                    continue; // Parse full buffers only
+                }
+                int end = filled; // At the end of the segment, the last line may lack its newline
+                if (read >= 0) {
+                    while (end > 0 && bytes[end - 1] != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IOException("Line longer than " + MAX_LINE_BYTES + " bytes at byte " + start
+                                + " of " + file);
+                    }
+                }
+                parseLines(buffer, end, start, file).storeIn(storage);
+                System.arraycopy(bytes, end, bytes, 0, filled - end);
+                filled -= end;
+                start += end;
+            }
+        }
+    }
+
+    private void readFile(Path file, DataStorage storage, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readRange(channel, 0, channel.size(), file, storage, pool);
+        }
+    }
+
+    // Stores the lines between two offsets; from is the start of a line
+    private void readRange(FileChannel channel, long from, long to, Path file, DataStorage storage,
+            ForkJoinPool pool) throws IOException {
+        long[] bounds = chunkBounds(channel, from, to, file);
+        if (pool == null) {
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                parseChunk(channel, bounds[i], bounds[i + 1], file).storeIn(storage);
+            }
+            return;
+        }
+        // Keep a few chunks ahead of the storing thread, so memory use stays bounded
+        Deque<Future<RecordColumns>> pending = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next + 1 < bounds.length || !pending.isEmpty()) {
+                while (next + 1 < bounds.length && pending.size() < 2 * parallelism) {
+                    long start = bounds[next];
+                    long end = bounds[++next];
+                    pending.add(pool.submit(() -> parseChunk(channel, start, end, file)));
+                }
+                pending.poll().get().storeIn(storage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error reading " + file, e.getCause());
+        } finally {
+            for (Future<RecordColumns> chunk : pending) {
+                chunk.cancel(true);
+            }
+        }
+    }
+
+    // Start offsets of the chunks plus the end; every chunk but the first starts after a newline
+    private static long[] chunkBounds(FileChannel channel, long from, long size, Path file) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(from);
+        ByteBuffer probe = ByteBuffer.allocate(MAX_LINE_BYTES);
+        long position = from + CHUNK_BYTES;
+        while (position < size) {
+            probe.clear();
+            probe.limit((int) Math.min(MAX_LINE_BYTES, size - position));
+            int read = Math.max(0, channel.read(probe, position));
+            int newline = -1;
+            for (int i = 0; i < read && newline < 0; i++) {
+                if (probe.get(i) == '\n') {
+                    newline = i;
+                }
+            }
+            if (newline < 0) {
+                if (position + read < size) {
+                    throw new IOException("Line longer than " + MAX_LINE_BYTES + " bytes at byte " + position
+                            + " of " + file);
+                }
+                break; // The last line is part of the previous chunk
+            }
+            long start = position + newline + 1;
+            if (start < size) {
+                bounds.add(start);
+            }
+            position = start + CHUNK_BYTES;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static RecordColumns parseChunk(FileChannel channel, long start, long end, Path file) throws IOException {
+        if (end == start) {
+            return new RecordColumns(16);
+        }
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        return parseLines(bytes, bytes.limit(), start, file);
+    }
+
+    // Parses the lines in the first limit bytes of a buffer, which begin at byte start of the file
+    private static RecordColumns parseLines(ByteBuffer bytes, int limit, long start, Path file) throws IOException {
+        RecordColumns chunk = new RecordColumns(limit / 24 + 16); // Typical line length
+        RecordLineParser parser = new RecordLineParser(bytes);
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && bytes.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && bytes.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            if (contentEnd > lineStart && !parser.parse(lineStart, contentEnd, chunk)) {
+                throw new IOException("Invalid line at byte " + (start + lineStart) + " of " + file + ": "
+                        + RecordLineParser.text(bytes, lineStart, contentEnd));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
     }
 }
@@ -8,10 +8,11 @@ import java.util.List;
  * This class stores patient-specific data, allowing for the addition and
  * retrieval
  * of medical records based on specified criteria.
+ * Records may be added while other threads retrieve them.
  */
 public class Patient {
     private int patientId;
-    private List<PatientRecord> patientRecords;
+    private final ArrayList<PatientRecord> patientRecords; // Guarded by this
 
     /**
      * Constructs a new Patient with a specified ID.
@@ -37,7 +38,29 @@ public class Patient {
      */
     public void addRecord(double measurementValue, String recordType, long timestamp) {
         PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp);
-        this.patientRecords.add(record);
+        synchronized (this) {
+            this.patientRecords.add(record);
+        }
+    }
+
+    /**
+     * Adds the records at the given indices of parallel arrays, in that order, under a single
+     * lock and growing the list at most once.
+     *
+     * @param indices      the indices of this patient's records in the arrays
+     * @param from         the first entry of {@code indices} to use
+     * @param to           the entry of {@code indices} after the last one to use
+     * @param timestamps   the timestamps of the records
+     * @param recordTypes  the types of the records
+     * @param values       the measurement values of the records
+     */
+    synchronized void addRecords(int[] indices, int from, int to, long[] timestamps, String[] recordTypes,
+            double[] values) {
+        patientRecords.ensureCapacity(patientRecords.size() + to - from);
+        for (int i = from; i < to; i++) {
+            int index = indices[i];
+            patientRecords.add(new PatientRecord(patientId, values[index], recordTypes[index], timestamps[index]));
+        }
     }
 
     /**
@@ -51,7 +74,7 @@ public class Patient {
      * @return a list of PatientRecord objects that fall within the specified time
      *         range
      */
-    public List<PatientRecord> getRecords(long startTime, long endTime) {
+    public synchronized List<PatientRecord> getRecords(long startTime, long endTime) {
     // Defensive copy to avoid exposing internal list
     return patientRecords.stream()
             .filter(r -> r.getTimestamp() >= startTime && r.getTimestamp() <= endTime)
@@ -0,0 +1,46 @@
+package com.data_management;
+
+import java.util.Arrays;
+
+/**
+ * Records held column by column, as parsed by the readers before they are stored. Grows as
+ * needed; {@link #clear()} empties it for reuse.
+ */
+final class RecordColumns {
+    int size;
+    int[] patientIds;
+    long[] timestamps;
+    String[] recordTypes;
+    double[] values;
+
+    RecordColumns(int capacity) {
+        patientIds = new int[capacity];
+        timestamps = new long[capacity];
+        recordTypes = new String[capacity];
+        values = new double[capacity];
+    }
+
+    void add(int patientId, long timestamp, String recordType, double value) {
+        if (size == patientIds.length) {
+            int capacity = size * 2;
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            recordTypes = Arrays.copyOf(recordTypes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        patientIds[size] = patientId;
+        timestamps[size] = timestamp;
+        recordTypes[size] = recordType;
+        values[size] = value;
+        size++;
+    }
+
+    void clear() {
+        Arrays.fill(recordTypes, 0, size, null);
+        size = 0;
+    }
+
+    void storeIn(DataStorage storage) {
+        storage.addPatientData(patientIds, timestamps, recordTypes, values, 0, size);
+    }
+}
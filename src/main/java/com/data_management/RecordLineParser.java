@@ -0,0 +1,209 @@
+package com.data_management;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cardio_generator.outputs.MeasurementKind;
+
+/**
+ * Parses "patientId,timestamp,recordType,value" lines, and the "Patient ID: ..., Timestamp: ...,
+ * Label: ..., Data: ..." lines of the file output, from the bytes of a buffer, heap, direct or
+ * mapped, without creating a String per field. Numbers are read digit by digit, and record
+ * types are matched against the labels of the {@link MeasurementKind}s and the first
+ * {@value #MAX_CACHED_TYPES} other types seen, so a peer sending ever new labels cannot make the
+ * parser grow or slow down. A value that is not a plain number, such as "97.0%" or "triggered",
+ * is read by the {@link MeasurementKind} of its record type. Not thread-safe; each buffer gets
+ * its own.
+ */
+final class RecordLineParser {
+    private static final double[] POWERS_OF_TEN = new double[23]; // Exact as doubles
+    // The text before the patient id, timestamp, record type and value of each layout
+    private static final String[] CSV_FIELDS = {"", ",", ",", ","};
+    private static final String[] LABELED_FIELDS = {"Patient ID: ", ", Timestamp: ", ", Label: ", ", Data: "};
+    private static final String[] KIND_LABELS = new String[MeasurementKind.values().length];
+    /** The most other record types remembered; any further ones get a new string per line. */
+    private static final int MAX_CACHED_TYPES = 32;
+
+    static {
+        double power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+        for (MeasurementKind kind : MeasurementKind.values()) {
+            KIND_LABELS[kind.ordinal()] = kind.label();
+        }
+    }
+
+    private final ByteBuffer bytes;
+    private final List<String> recordTypes = new ArrayList<>(); // Other types seen so far, reused for every line
+    private int position; // Next byte of the current line
+    private int end; // End of the current line
+    private boolean invalid; // Set by parseDouble
+
+    RecordLineParser(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Parses the line between two indices of the buffer, without its line end, and adds the
+     * record to the columns.
+     *
+     * @return false if the line is malformed
+     */
+    boolean parse(int start, int end, RecordColumns into) {
+        this.position = start;
+        this.end = end;
+        String[] fields = skip(LABELED_FIELDS[0]) ? LABELED_FIELDS : CSV_FIELDS;
+        long patientId = parseLong();
+        if (patientId < Integer.MIN_VALUE || patientId > Integer.MAX_VALUE || !skip(fields[1])) {
+            return false;
+        }
+        long timestamp = parseLong();
+        if (timestamp == Long.MIN_VALUE || !skip(fields[2])) {
+            return false;
+        }
+        String recordType = parseRecordType();
+        if (recordType == null || !skip(fields[3])) {
+            return false;
+        }
+        double value = parseDouble(recordType);
+        if (invalid) {
+            return false;
+        }
+        into.add((int) patientId, timestamp, recordType, value);
+        return true;
+    }
+
+    /**
+     * @return the bytes between two indices of a buffer as a string, e.g. for an error message
+     */
+    static String text(ByteBuffer buffer, int start, int end) {
+        byte[] text = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            text[i - start] = buffer.get(i);
+        }
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    // Moves past the text if the line continues with it
+    private boolean skip(String text) {
+        if (text.length() > end - position || !matches(text, position, position + text.length())) {
+            return false;
+        }
+        position += text.length();
+        return true;
+    }
+
+    // Long.MIN_VALUE if there is no valid number up to the next comma
+    private long parseLong() {
+        boolean negative = position < end && bytes.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+        int digitsStart = position;
+        long value = 0;
+        while (position < end) {
+            int digit = bytes.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                return Long.MIN_VALUE; // Overflow
+            }
+            value = value * 10 + digit;
+            position++;
+        }
+        return position == digitsStart ? Long.MIN_VALUE : negative ? -value : value;
+    }
+
+    private String parseRecordType() {
+        int start = position;
+        while (position < end && bytes.get(position) != ',') {
+            position++;
+        }
+        if (position == start) {
+            return null;
+        }
+        for (String label : KIND_LABELS) {
+            if (matches(label, start, position)) {
+                return label;
+            }
+        }
+        for (int i = 0; i < recordTypes.size(); i++) {
+            if (matches(recordTypes.get(i), start, position)) {
+                return recordTypes.get(i);
+            }
+        }
+        String recordType = text(bytes, start, position);
+        if (recordTypes.size() < MAX_CACHED_TYPES) {
+            recordTypes.add(recordType);
+        }
+        return recordType;
+    }
+
+    private boolean matches(String text, int start, int stop) {
+        if (text.length() != stop - start) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != bytes.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Plain decimals with up to 15 significant digits and 22 fraction digits are computed as
+     * digits / 10^fractionDigits, a single correctly rounded division of exact doubles, which
+     * gives the same result as Double.parseDouble. Anything else (exponents, more digits,
+     * "NaN", "97.0%") is parsed from a string by the kind of the record type.
+     */
+    private double parseDouble(String recordType) {
+        invalid = false;
+        int start = position;
+        boolean negative = position < end && bytes.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+        long digits = 0;
+        int significantDigits = 0;
+        int fractionDigits = -1; // -1 until the decimal point
+        boolean fast = true;
+        while (position < end && fast) {
+            byte c = bytes.get(position);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (digits != 0 || c != '0') {
+                    significantDigits++;
+                }
+                digits = digits * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                fast = significantDigits <= 15 && fractionDigits <= 22;
+            } else {
+                fast = false;
+            }
+            position++;
+        }
+        int digitCount = position - start - (negative ? 1 : 0) - (fractionDigits >= 0 ? 1 : 0);
+        if (fast && digitCount > 0) {
+            double value = fractionDigits > 0 ? digits / POWERS_OF_TEN[fractionDigits] : digits;
+            return negative ? -value : value;
+        }
+        position = end;
+        MeasurementKind kind = MeasurementKind.fromLabel(recordType);
+        String data = text(bytes, start, end);
+        try {
+            return kind != null ? kind.parse(data) : Double.parseDouble(data);
+        } catch (NumberFormatException e) {
+            invalid = true;
+            return Double.NaN;
+        }
+    }
+}
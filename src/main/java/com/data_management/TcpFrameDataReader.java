@@ -0,0 +1,45 @@
+package com.data_management;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import com.cardio_generator.outputs.BinaryFrameDecoder;
+
+/**
+ * Reads the framed binary stream of HealthDataSimulator
+ * (--output tcp:&lt;port&gt; --tcp-format framed) into the data storage.
+ * <p>
+ * {@link #readData(DataStorage)} connects to the simulator and stores records until the
+ * simulator closes the connection. Frames are decoded with {@link BinaryFrameDecoder}, which
+ * does not create a String per record, and the records of each read are stored as one batch.
+ * </p>
+ */
+public class TcpFrameDataReader implements DataReader {
+
+    private final String host;
+    private final int port;
+
+    public TcpFrameDataReader(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void readData(DataStorage storage) throws IOException {
+        RecordColumns columns = new RecordColumns(4096);
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder(
+                (patientId, timestamp, kind, value) -> columns.add(patientId, timestamp, kind.label(), value));
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                decoder.decode(buffer);
+                buffer.clear();
+                columns.storeIn(storage); // The records of every read are stored together
+                columns.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.data_management;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the line streams of one or more HealthDataSimulator instances (--output tcp:&lt;port&gt;),
+ * for example the shards of a large simulation, into the data storage.
+ * <p>
+ * {@link #readData(DataStorage)} connects to all endpoints and reads them on the calling thread
+ * with a {@link Selector} until every simulator has closed its connection, or until
+ * {@link #close()} is called. Each connection reads into its own direct buffer, from which the
+ * "patientId,timestamp,label,data" lines are parsed in place, without a String per field. The
+ * parsed records are handed in batches of up to {@value #BATCH_RECORDS} to a dedicated
+ * ingestion thread that stores them, so reading continues while the storage is busy. When the
+ * ingestion thread falls {@value #QUEUED_BATCHES} batches behind, reading pauses and TCP flow
+ * control slows the simulators down to the rate the storage can take.
+ * </p>
+ * <p>
+ * An endpoint that cannot be reached or fails is reported and dropped; the others continue.
+ * Malformed lines are skipped and counted.
+ * </p>
+ *
+ * @see com.cardio_generator.outputs.TcpOutputStrategy
+ */
+public class TcpLineDataReader implements DataReader, Closeable {
+
+    /** The most records handed to the ingestion thread at once. */
+    public static final int BATCH_RECORDS = 4096;
+    /** The most batches waiting for the ingestion thread. */
+    public static final int QUEUED_BATCHES = 16;
+    private static final int BUFFER_BYTES = 64 * 1024; // Also the longest line accepted
+    private static final RecordColumns END = new RecordColumns(1);
+
+    private final List<InetSocketAddress> endpoints;
+    private final BlockingQueue<RecordColumns> filled = new ArrayBlockingQueue<>(QUEUED_BATCHES + 1);
+    private final BlockingQueue<RecordColumns> spare = new ArrayBlockingQueue<>(QUEUED_BATCHES + 2);
+    private volatile Selector selector;
+    private volatile boolean closed;
+
+    // Statistics
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong skippedLines = new AtomicLong();
+    private volatile int openConnections;
+
+    /**
+     * Constructs a reader for the given simulators.
+     *
+     * @param endpoints the addresses of the TCP outputs, e.g. {@code new InetSocketAddress("localhost", 8080)}
+     */
+    public TcpLineDataReader(InetSocketAddress... endpoints) {
+        this(Arrays.asList(endpoints));
+    }
+
+    /**
+     * Constructs a reader for the given simulators.
+     *
+     * @param endpoints the addresses of the TCP outputs
+     */
+    public TcpLineDataReader(List<InetSocketAddress> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("No endpoints");
+        }
+        this.endpoints = new ArrayList<>(endpoints);
+    }
+
+    @Override
+    public void readData(DataStorage storage) throws IOException {
+        Thread ingestion = new Thread(() -> ingest(storage), "tcp-reader-ingestion");
+        ingestion.start();
+        List<Connection> connections = new ArrayList<>();
+        try (Selector readiness = Selector.open()) {
+            selector = readiness;
+            for (InetSocketAddress endpoint : endpoints) {
+                Connection connection = new Connection(endpoint);
+                connections.add(connection);
+                try {
+                    connection.channel.configureBlocking(false);
+                    if (connection.channel.connect(endpoint)) {
+                        connection.channel.register(readiness, SelectionKey.OP_READ, connection);
+                    } else {
+                        connection.channel.register(readiness, SelectionKey.OP_CONNECT, connection);
+                    }
+                } catch (IOException e) {
+                    connection.fail(e);
+                }
+            }
+            RecordColumns batch = nextBatch();
+            while (openConnections > 0 && !closed) {
+                readiness.select();
+                Iterator<SelectionKey> keys = readiness.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            connection.channel.finishConnect();
+                            key.interestOps(SelectionKey.OP_READ);
+                        } else if (key.isReadable()) {
+                            batch = connection.read(batch);
+                        }
+                    } catch (IOException e) {
+                        connection.fail(e);
+                    }
+                }
+                if (batch.size > 0) {
+                    batch = handOff(batch); // Store what this round brought in without waiting for more
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while handing records to the storage", e);
+        } finally {
+            selector = null;
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            try {
+                filled.put(END);
+                ingestion.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops a running {@link #readData(DataStorage)}; the records read so far are still stored.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Selector readiness = selector;
+        if (readiness != null) {
+            readiness.wakeup();
+        }
+    }
+
+    /**
+     * @return the number of records stored
+     */
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    /**
+     * @return the number of malformed lines that were skipped
+     */
+    public long getSkippedLines() {
+        return skippedLines.get();
+    }
+
+    /**
+     * @return the number of endpoints being read, including those still connecting
+     */
+    public int getOpenConnections() {
+        return openConnections;
+    }
+
+    // Runs on the ingestion thread until END arrives
+    private void ingest(DataStorage storage) {
+        try {
+            for (RecordColumns batch = filled.take(); batch != END; batch = filled.take()) {
+                batch.storeIn(storage);
+                recordCount.addAndGet(batch.size);
+                batch.clear();
+                spare.offer(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Blocks while the ingestion thread is QUEUED_BATCHES behind
+    private RecordColumns handOff(RecordColumns batch) throws InterruptedException {
+        filled.put(batch);
+        return nextBatch();
+    }
+
+    private RecordColumns nextBatch() {
+        RecordColumns batch = spare.poll();
+        return batch != null ? batch : new RecordColumns(BATCH_RECORDS);
+    }
+
+    /** A connection to one simulator and the bytes read from it that do not form a line yet. */
+    private final class Connection {
+        final InetSocketAddress endpoint;
+        final SocketChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final RecordLineParser parser = new RecordLineParser(buffer);
+        boolean open = true;
+
+        Connection(InetSocketAddress endpoint) throws IOException {
+            this.endpoint = endpoint;
+            this.channel = SocketChannel.open();
+            openConnections++;
+        }
+
+        // Parses the complete lines read, handing off full batches; returns the batch to continue
+        RecordColumns read(RecordColumns batch) throws IOException, InterruptedException {
+            int count = channel.read(buffer);
+            boolean ended = count < 0;
+            buffer.flip();
+            int limit = buffer.limit();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    batch = parseLine(lineStart, i, batch);
+                    lineStart = i + 1;
+                }
+            }
+            if (ended) {
+                batch = parseLine(lineStart, limit, batch); // A last line without a line end
+                close();
+                return batch;
+            }
+            buffer.position(lineStart);
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Line longer than " + BUFFER_BYTES + " bytes");
+            }
+            return batch;
+        }
+
+        private RecordColumns parseLine(int start, int end, RecordColumns batch) throws InterruptedException {
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > start && !parser.parse(start, end, batch)) {
+                skippedLines.incrementAndGet();
+            }
+            return batch.size >= BATCH_RECORDS ? handOff(batch) : batch;
+        }
+
+        void fail(IOException e) {
+            if (open && !closed) {
+                System.err.println("Error reading from " + endpoint + ": " + e.getMessage());
+            }
+            close();
+        }
+
+        void close() {
+            if (!open) {
+                return;
+            }
+            open = false;
+            openConnections--;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the connection to " + endpoint + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.data_management;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.UdpOutputStrategy;
+
+/**
+ * Reads the datagrams of HealthDataSimulator (--output udp:&lt;group&gt;:&lt;port&gt;) into the
+ * data storage.
+ * <p>
+ * The reader joins the multicast group (or, for a unicast address, just listens on the port)
+ * and stores records until every sender it has heard from has ended its stream, or until
+ * {@link #close()} is called from another thread. The sequence of a sender starts at the first
+ * datagram received from it, so a reader joining a running stream does not count the earlier
+ * ones as lost. Gaps in the sequence are counted as lost datagrams; a datagram arriving after a
+ * later one is still stored and no longer counted as lost. The sequences of the last
+ * {@value #WINDOW} datagrams of each sender are remembered, so duplicates are dropped; so are
+ * datagrams arriving later than that, as they cannot be told apart from duplicates.
+ * </p>
+ * <p>
+ * Anybody can send to the group, so datagrams that are not from the simulator or not valid,
+ * such as a wrong length or an unknown kind of measurement, are skipped and counted.
+ * </p>
+ *
+ * @see UdpOutputStrategy
+ */
+public class UdpDataReader implements DataReader, Closeable {
+
+    /** The number of recent sequences remembered per sender to detect duplicates. */
+    public static final int WINDOW = 64;
+
+    private final InetAddress address;
+    private final int port;
+    private final String interfaceName;
+    private volatile DatagramChannel channel;
+    private volatile boolean closed;
+
+    // Only updated by the reading thread
+    private volatile long receivedDatagrams;
+    private volatile long lostDatagrams;
+    private volatile long reorderedDatagrams;
+    private volatile long duplicateDatagrams;
+    private volatile long invalidDatagrams;
+    private volatile long recordCount;
+
+    /**
+     * Constructs a new {@code UdpDataReader}.
+     *
+     * @param address       the multicast group, or the unicast address the simulator sends to
+     * @param port          the port
+     * @param interfaceName the network interface to join the group on, e.g. "eth0", or
+     *                      {@code null} for the first multicast capable interface that is up
+     * @throws IOException if the address cannot be resolved
+     */
+    public UdpDataReader(String address, int port, String interfaceName) throws IOException {
+        this.address = InetAddress.getByName(address);
+        this.port = port;
+        this.interfaceName = interfaceName;
+    }
+
+    @Override
+    public void readData(DataStorage storage) throws IOException {
+        Map<Integer, Sender> senders = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        RecordColumns columns = new RecordColumns(UdpOutputStrategy.MAX_DATAGRAM_SIZE / BinaryRecordFormat.RECORD_SIZE);
+        try (DatagramChannel datagrams = DatagramChannel.open(StandardProtocolFamily.INET)) {
+            channel = datagrams;
+            datagrams.setOption(StandardSocketOptions.SO_REUSEADDR, true); // Several readers on one host
+            datagrams.bind(new InetSocketAddress(port));
+            if (address.isMulticastAddress()) {
+                datagrams.join(address, multicastInterface());
+            }
+            if (closed) {
+                return;
+            }
+            int ended = 0;
+            while (senders.isEmpty() || ended < senders.size()) {
+                buffer.clear();
+                datagrams.receive(buffer);
+                buffer.flip();
+                if (buffer.remaining() < UdpOutputStrategy.DATAGRAM_HEADER_SIZE
+                        || buffer.getInt(0) != UdpOutputStrategy.DATAGRAM_MAGIC) {
+                    invalidDatagrams++; // Not ours
+                    continue;
+                }
+                int session = buffer.getInt(4);
+                long sequence = buffer.getLong(8);
+                int records = buffer.getShort(16);
+                if (records < 0 || buffer.remaining() != UdpOutputStrategy.DATAGRAM_HEADER_SIZE
+                        + records * BinaryRecordFormat.RECORD_SIZE || !parseRecords(buffer, columns)) {
+                    invalidDatagrams++;
+                    columns.clear();
+                    continue;
+                }
+                receivedDatagrams++;
+                Sender sender = senders.computeIfAbsent(session, id -> new Sender(sequence));
+                if (!track(sender, sequence)) {
+                    columns.clear(); // Already stored
+                    continue;
+                }
+                if (records == 0) {
+                    if (!sender.ended) {
+                        sender.ended = true;
+                        ended++;
+                    }
+                    continue;
+                }
+                columns.storeIn(storage);
+                columns.clear();
+                recordCount += records;
+            }
+        } catch (AsynchronousCloseException e) {
+            // Stopped by close()
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Stops a running {@link #readData(DataStorage)}.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        DatagramChannel datagrams = channel;
+        if (datagrams != null) {
+            datagrams.close();
+        }
+    }
+
+    /**
+     * @return the number of datagrams received, including the ends of stream
+     */
+    public long getReceivedDatagrams() {
+        return receivedDatagrams;
+    }
+
+    /**
+     * @return the number of datagrams missing from the sequences of the senders
+     */
+    public long getLostDatagrams() {
+        return lostDatagrams;
+    }
+
+    /**
+     * @return the number of datagrams that arrived after a later one of the same sender
+     */
+    public long getReorderedDatagrams() {
+        return reorderedDatagrams;
+    }
+
+    /**
+     * @return the number of datagrams dropped as duplicates, or as too late to tell
+     */
+    public long getDuplicateDatagrams() {
+        return duplicateDatagrams;
+    }
+
+    /**
+     * @return the number of datagrams skipped because they were not valid simulator datagrams
+     */
+    public long getInvalidDatagrams() {
+        return invalidDatagrams;
+    }
+
+    /**
+     * @return the number of records stored
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // Adds the records of a datagram to the columns; false if one has an unknown kind
+    private static boolean parseRecords(ByteBuffer buffer, RecordColumns columns) {
+        for (int offset = UdpOutputStrategy.DATAGRAM_HEADER_SIZE; offset < buffer.limit();
+                offset += BinaryRecordFormat.RECORD_SIZE) {
+            MeasurementKind kind = BinaryRecordFormat.kindOf(buffer.getShort(offset + 12));
+            if (kind == null) {
+                return false;
+            }
+            columns.add(buffer.getInt(offset), buffer.getLong(offset + 4), kind.label(),
+                    buffer.getDouble(offset + 14));
+        }
+        return true;
+    }
+
+    // False if the datagram was received before, or is too late to tell
+    private boolean track(Sender sender, long sequence) {
+        if (sequence >= sender.nextSequence) {
+            long shift = sequence - sender.nextSequence + 1;
+            lostDatagrams += shift - 1;
+            sender.received = shift >= WINDOW ? 1 : sender.received << shift | 1;
+            sender.nextSequence = sequence + 1;
+            return true;
+        }
+        long age = sender.nextSequence - 1 - sequence; // 0 for the latest
+        if (age >= WINDOW || (sender.received & 1L << age) != 0) {
+            duplicateDatagrams++;
+            return false;
+        }
+        sender.received |= 1L << age;
+        reorderedDatagrams++;
+        if (sequence > sender.firstSequence) {
+            lostDatagrams--; // Counted as lost when the later datagram arrived
+        }
+        return true;
+    }
+
+    private NetworkInterface multicastInterface() throws IOException {
+        if (interfaceName != null) {
+            NetworkInterface networkInterface = NetworkInterface.getByName(interfaceName);
+            if (networkInterface == null) {
+                throw new IOException("Unknown network interface " + interfaceName);
+            }
+            return networkInterface;
+        }
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface candidate = interfaces.nextElement();
+                if (candidate.isUp() && candidate.supportsMulticast() && !candidate.isLoopback()) {
+                    return candidate;
+                }
+            }
+        } catch (SocketException e) {
+            throw new IOException("Cannot list the network interfaces", e);
+        }
+        throw new IOException("No network interface supports multicast; specify one");
+    }
+
+    /** The state of one simulator run sending to the group. */
+    private static final class Sender {
+        final long firstSequence; // The first one received, not necessarily the first one sent
+        long nextSequence;
+        long received; // Bit i is set if nextSequence - 1 - i was received
+        boolean ended;
+
+        Sender(long firstSequence) {
+            this.firstSequence = firstSequence;
+            this.nextSequence = firstSequence;
+        }
+    }
+}
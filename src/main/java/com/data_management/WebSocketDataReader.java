@@ -0,0 +1,475 @@
+package com.data_management;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.MeasurementKind;
+
+/**
+ * Reads the live stream of HealthDataSimulator (--output websocket:&lt;port&gt;) into the data
+ * storage.
+ * <p>
+ * {@link #readData(DataStorage)} connects to the simulator and stores records until
+ * {@link #close()} is called, reconnecting with a growing delay whenever the connection is lost
+ * or cannot be opened. All three message formats of the WebSocket output are understood: text
+ * records, JSON arrays and binary records.
+ * </p>
+ * <p>
+ * Messages are parsed on the I/O thread of the connection into reused batches of columns, which
+ * are handed to the thread calling {@code readData} when they are full, or at the latest after
+ * {@value #BATCH_LINGER_MILLIS} ms. The storing thread therefore never holds up the socket for
+ * longer than it takes to swap a batch. The number of messages per second and the time from
+ * receiving a record to storing it are exposed for monitoring.
+ * </p>
+ *
+ * @see com.cardio_generator.outputs.WebSocketOutputStrategy
+ */
+public class WebSocketDataReader implements DataReader, Closeable {
+
+    /** The most records in a batch. */
+    public static final int BATCH_SIZE = 4096;
+    /** The longest time a received record waits before it is stored. */
+    public static final long BATCH_LINGER_MILLIS = 50;
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 100;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 5_000;
+    private static final int SPARE_BATCHES = 8;
+
+    private final URI uri;
+    private final String subscription;
+    private final BlockingQueue<Batch> filled = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Batch> spare = new ArrayBlockingQueue<>(SPARE_BATCHES);
+    private final Object batchLock = new Object();
+    private Batch current; // Being filled by the I/O thread; guarded by batchLock
+    private volatile Client client;
+    private volatile boolean closed;
+
+    // Statistics
+    private final AtomicLong messageCount = new AtomicLong();
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong connectionCount = new AtomicLong();
+    private volatile long lagMillis;
+    private volatile double messagesPerSecond;
+    private long rateWindowStart = System.currentTimeMillis(); // Only used by the I/O thread
+    private long rateWindowMessages;
+
+    /**
+     * Constructs a reader that receives all records.
+     *
+     * @param uri the address of the simulator, e.g. "ws://localhost:8080"
+     * @throws URISyntaxException if the address is not a valid URI
+     */
+    public WebSocketDataReader(String uri) throws URISyntaxException {
+        this(uri, null);
+    }
+
+    /**
+     * Constructs a reader that sends a subscription command after every connect, e.g.
+     * "subscribe 1-10 ECG".
+     *
+     * @param uri          the address of the simulator, e.g. "ws://localhost:8080"
+     * @param subscription the command, or {@code null} to receive all records
+     * @throws URISyntaxException if the address is not a valid URI
+     */
+    public WebSocketDataReader(String uri, String subscription) throws URISyntaxException {
+        this.uri = new URI(uri);
+        this.subscription = subscription;
+    }
+
+    @Override
+    public void readData(DataStorage storage) {
+        long reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+        try {
+            while (!closed) {
+                Client connection = new Client(uri);
+                client = connection;
+                if (closed) {
+                    break;
+                }
+                if (connection.connectBlocking(5, TimeUnit.SECONDS)) {
+                    connectionCount.incrementAndGet();
+                    reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+                    while (connection.isOpen() && !closed) {
+                        storeBatches(storage);
+                    }
+                } else {
+                    connection.close();
+                }
+                storeBatches(storage); // What arrived before the connection was lost
+                if (!closed) {
+                    Thread.sleep(reconnectDelay);
+                    reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Client connection = client;
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Stops a running {@link #readData(DataStorage)} and closes the connection.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Client connection = client;
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return the number of messages received
+     */
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    /**
+     * @return the number of records stored
+     */
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    /**
+     * @return the number of records that were skipped because they could not be parsed
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * @return the number of successful connects, so 1 + the number of reconnects
+     */
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * @return the messages received per second, measured over the last full second
+     */
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * @return the time the oldest record of the last stored batch waited between its arrival
+     *         and being stored, in milliseconds
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    // Stores the batches handed off so far, and takes over a lingering partial batch
+    private void storeBatches(DataStorage storage) throws InterruptedException {
+        Batch batch = filled.poll(BATCH_LINGER_MILLIS / 2, TimeUnit.MILLISECONDS);
+        if (batch == null) {
+            synchronized (batchLock) {
+                if (current != null && current.size > 0
+                        && System.nanoTime() - current.firstReceivedNanos >= BATCH_LINGER_MILLIS * 1_000_000) {
+                    batch = current;
+                    current = null;
+                }
+            }
+        }
+        while (batch != null) {
+            storage.addPatientData(batch.patientIds, batch.timestamps, batch.recordTypes, batch.values, 0,
+                    batch.size);
+            recordCount.addAndGet(batch.size);
+            lagMillis = (System.nanoTime() - batch.firstReceivedNanos) / 1_000_000;
+            batch.clear();
+            spare.offer(batch);
+            batch = filled.poll();
+        }
+    }
+
+    // Called on the I/O thread
+    private void add(int patientId, long timestamp, String recordType, double value) {
+        synchronized (batchLock) {
+            if (current == null) {
+                current = spare.poll();
+                if (current == null) {
+                    current = new Batch(); // The storing thread is behind
+                }
+            }
+            if (current.size == 0) {
+                current.firstReceivedNanos = System.nanoTime();
+            }
+            current.add(patientId, timestamp, recordType, value);
+            if (current.size == BATCH_SIZE) {
+                filled.add(current);
+                current = null;
+            }
+        }
+    }
+
+    // Called on the I/O thread for every message
+    private void countMessage() {
+        messageCount.incrementAndGet();
+        rateWindowMessages++;
+        long now = System.currentTimeMillis();
+        if (now - rateWindowStart >= 1_000) {
+            messagesPerSecond = rateWindowMessages * 1_000.0 / (now - rateWindowStart);
+            rateWindowStart = now;
+            rateWindowMessages = 0;
+        }
+    }
+
+    // "patientId,timestamp,label,data"
+    private void parseTextRecord(String message) {
+        int first = message.indexOf(',');
+        int second = first < 0 ? -1 : message.indexOf(',', first + 1);
+        int third = second < 0 ? -1 : message.indexOf(',', second + 1);
+        if (third < 0) {
+            skippedCount.incrementAndGet();
+            return;
+        }
+        try {
+            int patientId = (int) parseLong(message, 0, first);
+            long timestamp = parseLong(message, first + 1, second);
+            String label = message.substring(second + 1, third);
+            add(patientId, timestamp, recordType(label), parseValue(label, message.substring(third + 1)));
+        } catch (NumberFormatException e) {
+            skippedCount.incrementAndGet();
+        }
+    }
+
+    // [[patientId,timestamp,"label",value],...] as sent by the JSON format
+    private void parseJsonArray(String message) {
+        JsonCursor cursor = new JsonCursor(message);
+        try {
+            cursor.expect('[');
+            if (cursor.peek() == ']') {
+                return;
+            }
+            do {
+                cursor.expect('[');
+                int patientId = (int) cursor.number();
+                cursor.expect(',');
+                long timestamp = (long) cursor.number();
+                cursor.expect(',');
+                String label = cursor.string();
+                cursor.expect(',');
+                double value;
+                if (cursor.peek() == '"') {
+                    value = parseValue(label, cursor.string());
+                } else if (cursor.peek() == 'n') {
+                    cursor.literal("null");
+                    value = Double.NaN;
+                } else {
+                    value = cursor.number();
+                }
+                cursor.expect(']');
+                add(patientId, timestamp, recordType(label), value);
+            } while (cursor.next() == ',');
+        } catch (IllegalArgumentException e) {
+            skippedCount.incrementAndGet();
+        }
+    }
+
+    // Records as laid out by BinaryRecordFormat, without a header
+    private void parseBinaryRecords(ByteBuffer message) {
+        int start = message.position();
+        int end = message.limit() - (message.remaining() % BinaryRecordFormat.RECORD_SIZE);
+        for (int offset = start; offset < end; offset += BinaryRecordFormat.RECORD_SIZE) {
+            MeasurementKind kind = BinaryRecordFormat.kindOf(message.getShort(offset + 12));
+            if (kind == null) {
+                skippedCount.incrementAndGet();
+                continue;
+            }
+            add(message.getInt(offset), message.getLong(offset + 4), kind.label(), message.getDouble(offset + 14));
+        }
+    }
+
+    // Digits between two commas, without cutting out a substring first
+    private static long parseLong(String text, int from, int to) {
+        boolean negative = from < to && text.charAt(from) == '-';
+        int start = negative ? from + 1 : from;
+        if (start == to || to - start > 18) {
+            throw new NumberFormatException("Invalid number " + text.substring(from, to));
+        }
+        long value = 0;
+        for (int i = start; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number " + text.substring(from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // The constant label of a known kind, so records do not keep the message alive
+    private static String recordType(String label) {
+        MeasurementKind kind = MeasurementKind.fromLabel(label);
+        return kind != null ? kind.label() : label;
+    }
+
+    private static double parseValue(String label, String data) {
+        MeasurementKind kind = MeasurementKind.fromLabel(label);
+        return kind != null ? kind.parse(data) : Double.parseDouble(data);
+    }
+
+    /** Records received and not yet stored, column by column. */
+    private static final class Batch {
+        final int[] patientIds = new int[BATCH_SIZE];
+        final long[] timestamps = new long[BATCH_SIZE];
+        final String[] recordTypes = new String[BATCH_SIZE];
+        final double[] values = new double[BATCH_SIZE];
+        int size;
+        long firstReceivedNanos;
+
+        void add(int patientId, long timestamp, String recordType, double value) {
+            patientIds[size] = patientId;
+            timestamps[size] = timestamp;
+            recordTypes[size] = recordType;
+            values[size] = value;
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(recordTypes, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /** Just enough of a JSON reader for the arrays of the WebSocket output. */
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        char peek() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end");
+            }
+            return text.charAt(position);
+        }
+
+        char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        void expect(char expected) {
+            if (next() != expected) {
+                throw new IllegalArgumentException("Expected " + expected + " at " + (position - 1));
+            }
+        }
+
+        void literal(String literal) {
+            if (!text.startsWith(literal, position)) {
+                throw new IllegalArgumentException("Expected " + literal + " at " + position);
+            }
+            position += literal.length();
+        }
+
+        double number() {
+            skipWhitespace();
+            int start = position;
+            while (position < text.length() && "+-.eE0123456789".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            return Double.parseDouble(text.substring(start, position)); // NumberFormatException is an IAE
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c == '\\') {
+                    char escaped = text.charAt(position++);
+                    if (escaped == 'u') {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    } else {
+                        value.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    private final class Client extends WebSocketClient {
+
+        Client(URI uri) {
+            super(uri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            if (subscription != null) {
+                send(subscription);
+            }
+        }
+
+        @Override
+        public void onMessage(String message) {
+            if (message.startsWith("ok:") || message.startsWith("error:")) {
+                return; // Reply to a command
+            }
+            countMessage();
+            if (message.startsWith("[")) {
+                parseJsonArray(message);
+            } else {
+                parseTextRecord(message);
+            }
+        }
+
+        @Override
+        public void onMessage(ByteBuffer message) {
+            countMessage();
+            parseBinaryRecords(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            // readData notices that the connection is gone and reconnects
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            if (!closed) {
+                System.err.println("WebSocket connection to " + uri + " failed: " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SampleBatch;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.scheduling.BatchedTickScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchedTickSchedulerTest {
+
+    @Test
+    void everyPatientIsSweptOncePerPeriod() throws InterruptedException {
+        int patientCount = 5_000;
+        AtomicIntegerArray counts = new AtomicIntegerArray(patientCount + 1);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= patientCount; i++) {
+            ids.add(i);
+        }
+
+        BatchedTickScheduler scheduler = new BatchedTickScheduler((id, ts, label, data) -> { }, 4, new Random(1),
+                SimulationClock.system());
+        scheduler.schedule(new CountingGenerator(counts), ids, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(300);
+        scheduler.shutdown();
+
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int i = 1; i <= patientCount; i++) {
+            min = Math.min(min, counts.get(i));
+            max = Math.max(max, counts.get(i));
+        }
+        assertEquals(0, counts.get(0), "Patient ids are 1-based");
+        assertTrue(min > 0, "Every patient should have been generated");
+        assertTrue(max - min <= 1, "All patients should be generated at the same rate");
+    }
+
+    private static class CountingGenerator implements PatientDataGenerator {
+        private final AtomicIntegerArray counts;
+
+        CountingGenerator(AtomicIntegerArray counts) {
+            this.counts = counts;
+        }
+
+        @Override
+        public void generate(int patientId, OutputStrategy outputStrategy) {
+            counts.incrementAndGet(patientId);
+        }
+
+        @Override
+        public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+            for (int i = from; i < to; i++) {
+                counts.incrementAndGet(patientIds[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.BinaryFrameDecoder;
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.MeasurementKind;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFrameDecoderTest {
+
+    private static ByteBuffer frames(int frameCount, int recordsPerFrame) {
+        ByteBuffer stream = ByteBuffer.allocate(frameCount
+                * (BinaryRecordFormat.FRAME_HEADER_SIZE + recordsPerFrame * BinaryRecordFormat.RECORD_SIZE));
+        int patientId = 0;
+        for (int f = 0; f < frameCount; f++) {
+            stream.putInt(recordsPerFrame * BinaryRecordFormat.RECORD_SIZE);
+            for (int r = 0; r < recordsPerFrame; r++) {
+                BinaryRecordFormat.writeRecord(stream, patientId, 1_000L + patientId, MeasurementKind.ECG,
+                        patientId / 10.0);
+                patientId++;
+            }
+        }
+        stream.flip();
+        return stream;
+    }
+
+    @Test
+    void decodesFramesSplitAcrossChunks() throws IOException {
+        List<Integer> patientIds = new ArrayList<>();
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder((patientId, timestamp, kind, value) -> {
+            assertEquals(1_000L + patientId, timestamp);
+            assertEquals(MeasurementKind.ECG, kind);
+            assertEquals(patientId / 10.0, value);
+            patientIds.add(patientId);
+        });
+
+        ByteBuffer stream = frames(5, 7);
+        // Feed odd sized chunks, so frames and records are cut everywhere
+        while (stream.hasRemaining()) {
+            ByteBuffer chunk = stream.slice();
+            chunk.limit(Math.min(13, chunk.remaining()));
+            stream.position(stream.position() + chunk.limit());
+            decoder.decode(chunk);
+        }
+
+        assertEquals(35, patientIds.size());
+        for (int i = 0; i < 35; i++) {
+            assertEquals(i, patientIds.get(i));
+        }
+        assertEquals(5, decoder.getFrameCount());
+    }
+
+    @Test
+    void rejectsInvalidFrameLength() {
+        BinaryFrameDecoder decoder = new BinaryFrameDecoder((patientId, timestamp, kind, value) -> { });
+        ByteBuffer stream = ByteBuffer.allocate(4).putInt(5);
+        stream.flip();
+        assertThrows(IOException.class, () -> decoder.decode(stream));
+    }
+}
@@ -0,0 +1,75 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.BackpressurePolicy;
+import com.cardio_generator.outputs.CompositeOutputStrategy;
+import com.cardio_generator.outputs.MeasurementKind;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompositeOutputStrategyTest {
+
+    @Test
+    void slowOutputDoesNotHoldUpTheOthers() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fast = new AtomicInteger();
+        AtomicInteger slow = new AtomicInteger();
+        CompositeOutputStrategy composite = new CompositeOutputStrategy(1024, BackpressurePolicy.BLOCK);
+        composite.addOutput("fast", (patientId, timestamp, label, data) -> fast.incrementAndGet());
+        composite.addOutput("slow", (patientId, timestamp, label, data) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slow.incrementAndGet();
+        });
+
+        for (int i = 0; i < 1_000; i++) {
+            composite.output(i, i, MeasurementKind.SATURATION, 97);
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (fast.get() < 1_000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1_000, fast.get(), "The fast output should receive every record");
+        assertEquals(0, slow.get());
+        assertEquals(999, composite.getLanes().get(1).getQueueDepth());
+
+        release.countDown();
+        composite.close();
+        assertEquals(1_000, slow.get());
+        assertEquals(2, composite.getThroughputReport().size());
+        assertTrue(composite.getThroughputReport().get(0).startsWith("fast: 1000 records written"));
+    }
+
+    @Test
+    void lanesKeepTheirOwnPolicyAndReportDropsOnce() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger archived = new AtomicInteger();
+        CompositeOutputStrategy composite = new CompositeOutputStrategy(16, BackpressurePolicy.BLOCK);
+        composite.addOutput("archive", (patientId, timestamp, label, data) -> archived.incrementAndGet());
+        composite.addOutput("live", (patientId, timestamp, label, data) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, BackpressurePolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 1_000; i++) {
+            composite.output(i, i, MeasurementKind.SATURATION, 97);
+        }
+        assertEquals(1, composite.getDropReport().size());
+        assertTrue(composite.getDropReport().isEmpty(), "Drops should only be reported once");
+
+        release.countDown();
+        composite.close();
+        assertEquals(1_000, archived.get(), "The blocking lane should not lose records");
+        assertTrue(composite.getLanes().get(1).getDroppedCount() > 0);
+    }
+}
@@ -0,0 +1,87 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.ConsoleOutputStrategy;
+import com.cardio_generator.outputs.MeasurementKind;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsoleOutputStrategyTest {
+
+    @Test
+    void printsTheSameLinesAsBefore() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleOutputStrategy console = new ConsoleOutputStrategy(out, 1);
+        console.output(1, 1_000L, "Alert", "triggered");
+        console.output(2, 2_000L, MeasurementKind.SATURATION, 97);
+        console.close();
+
+        String expected = String.format("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", 1, 1_000L, "Alert",
+                "triggered")
+                + String.format("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", 2, 2_000L, "Saturation",
+                "97.0%");
+        assertEquals(expected, out.toString());
+    }
+
+    @Test
+    void printsOnlyEveryNthRecordWhenSampling() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleOutputStrategy console = new ConsoleOutputStrategy(out, 10);
+        for (int i = 0; i < 100_000; i++) {
+            console.output(i, i, MeasurementKind.ECG, 0.5);
+        }
+        console.close();
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(10_000, lines.length);
+        assertEquals("Patient ID: 0, Timestamp: 0, Label: ECG, Data: 0.5", lines[0]);
+        assertEquals("Patient ID: 99990, Timestamp: 99990, Label: ECG, Data: 0.5", lines[9_999]);
+    }
+
+    @Test
+    void samplesTheRecordsOfEveryThreadSeparately() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleOutputStrategy console = new ConsoleOutputStrategy(out, 10);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int patientId = t + 1;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    console.output(patientId, i, MeasurementKind.ECG, 0.5);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        console.close();
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(400, lines.length);
+        for (int patientId = 1; patientId <= 4; patientId++) {
+            String prefix = "Patient ID: " + patientId + ",";
+            assertEquals(100, Arrays.stream(lines).filter(line -> line.startsWith(prefix)).count());
+        }
+    }
+
+    @Test
+    void printsBufferedLinesWithoutAnExplicitFlush() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleOutputStrategy console = new ConsoleOutputStrategy(out, 1);
+        try {
+            console.output(3, 3_000L, MeasurementKind.ECG, 0.25);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (out.size() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(out.toString().startsWith("Patient ID: 3, Timestamp: 3000, Label: ECG, Data: 0.25"));
+        } finally {
+            console.close();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.cardio_generator.outputs.FileOutputOptions;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.SegmentIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOutputStrategyTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesOneFilePerLabelInTheExistingFormat() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString());
+        output.output(1, 1000L, "ECG", "0.5");
+        output.output(2, 2000L, MeasurementKind.SATURATION, 97);
+        output.close();
+
+        assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: ECG, Data: 0.5"),
+                Files.readAllLines(directory.resolve("ECG.txt")));
+        assertEquals(List.of("Patient ID: 2, Timestamp: 2000, Label: Saturation, Data: 97.0%"),
+                Files.readAllLines(directory.resolve("Saturation.txt")));
+        assertEquals(directory.resolve("ECG.txt").toString(), output.fileMap.get("ECG"));
+    }
+
+    @Test
+    void bufferedRecordsAreWrittenAfterTheFlushInterval() throws Exception {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString(),
+                new FileOutputOptions().flushIntervalMillis(50));
+        output.output(1, 1000L, "ECG", "0.5");
+
+        Path file = directory.resolve("ECG.txt");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.size(file) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, Files.readAllLines(file).size());
+        output.close();
+    }
+
+    @Test
+    void concurrentWritersProduceWholeLines() throws Exception {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString(),
+                new FileOutputOptions().flushBytes(1024).syncPolicy(FileOutputOptions.SyncPolicy.NONE));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int patientId = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    output.output(patientId, i, "ECG", "0.123456789");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        output.close();
+
+        List<String> lines = Files.readAllLines(directory.resolve("ECG.txt"));
+        assertEquals(20_000, lines.size());
+        for (String line : lines) {
+            assertTrue(line.matches("Patient ID: \\d, Timestamp: \\d+, Label: ECG, Data: 0\\.123456789"), line);
+        }
+    }
+
+    @Test
+    void segmentsAreRolledByDataTimeAndIndexed() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString(),
+                new FileOutputOptions().segmentMillis(60_000));
+        for (int minute = 0; minute < 3; minute++) {
+            for (int patientId = 1; patientId <= 5; patientId++) {
+                output.output(patientId + minute * 10, minute * 60_000L + patientId, "ECG", "0.5");
+            }
+        }
+        output.close();
+
+        List<SegmentIndex> segments = SegmentIndex.find(directory, "ECG", Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(3, segments.size());
+        SegmentIndex second = segments.get(1);
+        assertEquals(directory.resolve("ECG-000002.txt"), second.getSegmentFile());
+        assertEquals(5, second.getRecordCount());
+        assertEquals(60_001L, second.getMinTimestamp());
+        assertEquals(60_005L, second.getMaxTimestamp());
+        assertEquals(11, second.getMinPatientId());
+        assertEquals(15, second.getMaxPatientId());
+        assertEquals(5, Files.readAllLines(second.getSegmentFile()).size());
+
+        List<SegmentIndex> window = SegmentIndex.find(directory, "ECG", 60_003L, 90_000L);
+        assertEquals(1, window.size(), "Only the second segment overlaps the window");
+        assertEquals(second.getSegmentFile(), window.get(0).getSegmentFile());
+    }
+
+    @Test
+    void closedSegmentsAreCompressedAndNumberingContinues() throws IOException {
+        FileOutputOptions options = new FileOutputOptions().segmentBytes(1_000)
+                .compression(FileOutputOptions.Compression.GZIP);
+        FileOutputStrategy output = new FileOutputStrategy(directory.toString(), options);
+        for (int i = 0; i < 100; i++) {
+            output.output(1, i, "Saturation", "97.0%");
+        }
+        output.close();
+
+        List<SegmentIndex> segments = SegmentIndex.find(directory, "Saturation", 0, Long.MAX_VALUE);
+        assertTrue(segments.size() > 1);
+        long records = 0;
+        for (SegmentIndex segment : segments) {
+            assertTrue(segment.getSegmentFile().toString().endsWith(".txt.gz"));
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segment.getSegmentFile())), StandardCharsets.UTF_8))) {
+                assertEquals(segment.getRecordCount(), reader.lines().count());
+            }
+            records += segment.getRecordCount();
+        }
+        assertEquals(100, records);
+        assertFalse(Files.exists(directory.resolve("Saturation-000001.txt")), "Compressed segments are removed");
+
+        FileOutputStrategy restarted = new FileOutputStrategy(directory.toString(), options);
+        restarted.output(1, 100, "Saturation", "97.0%");
+        restarted.close();
+        assertEquals(segments.size() + 1, SegmentIndex.find(directory, "Saturation", 0, Long.MAX_VALUE).size());
+    }
+}
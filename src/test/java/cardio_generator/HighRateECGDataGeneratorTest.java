@@ -0,0 +1,90 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.clock.VirtualClock;
+import com.cardio_generator.generators.HighRateECGDataGenerator;
+import com.cardio_generator.generators.PatientRange;
+import com.cardio_generator.generators.SampleBatch;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.OutputStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HighRateECGDataGeneratorTest {
+
+    private static final int RATE = 250;
+
+    @Test
+    void generatesOneBlockPerPatient() {
+        List<double[]> blocks = new ArrayList<>();
+        OutputStrategy output = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+                fail("Blocks should not be split into single samples");
+            }
+
+            @Override
+            public void outputBlock(int patientId, long startTimestamp, MeasurementKind kind, double[] samples,
+                    int offset, int length, int sampleRateHz) {
+                assertEquals(MeasurementKind.ECG, kind);
+                assertEquals(1000L, startTimestamp);
+                assertEquals(RATE, sampleRateHz);
+                double[] block = new double[length];
+                System.arraycopy(samples, offset, block, 0, length);
+                blocks.add(block);
+            }
+        };
+
+        HighRateECGDataGenerator generator = new HighRateECGDataGenerator(new PatientRange(1, 3), 7L,
+                new VirtualClock(1000L), RATE, RATE);
+        generator.generate(2, output);
+
+        assertEquals(1, blocks.size());
+        assertEquals(RATE, blocks.get(0).length);
+        // A one second block at 60-80 bpm contains an R peak
+        double max = Double.NEGATIVE_INFINITY;
+        for (double sample : blocks.get(0)) {
+            max = Math.max(max, sample);
+        }
+        assertTrue(max > 0.6, "Expected an R peak but the maximum was " + max);
+    }
+
+    @Test
+    void batchBlocksAreExpandedWithSampleTimestamps() {
+        SampleBatch batch = new SampleBatch(16);
+        batch.reset(5000L);
+        new HighRateECGDataGenerator(new PatientRange(1, 10), 7L, new VirtualClock(0L), RATE, RATE)
+                .generate(new int[] {3, 4}, 0, 2, batch);
+        assertEquals(2, batch.blockCount());
+
+        List<Long> timestamps = new ArrayList<>();
+        batch.drainTo((patientId, timestamp, label, data) -> {
+            assertEquals("ECG", label);
+            timestamps.add(timestamp);
+        });
+
+        assertEquals(2 * RATE, timestamps.size());
+        assertEquals(5000L, timestamps.get(0));
+        assertEquals(5004L, timestamps.get(1));
+        assertEquals(5996L, timestamps.get(RATE - 1));
+        assertEquals(0, batch.blockCount(), "Draining should clear the blocks");
+    }
+
+    @Test
+    void sameSeedProducesTheSameWaveform() {
+        SampleBatch first = new SampleBatch(16);
+        SampleBatch second = new SampleBatch(16);
+        new HighRateECGDataGenerator(new PatientRange(1, 5), 42L, new VirtualClock(0L), RATE, RATE)
+                .generate(new int[] {5}, 0, 1, first);
+        new HighRateECGDataGenerator(new PatientRange(1, 5), 42L, new VirtualClock(0L), RATE, RATE)
+                .generate(new int[] {5}, 0, 1, second);
+
+        for (int i = 0; i < RATE; i++) {
+            assertEquals(first.getBlockSamples()[i], second.getBlockSamples()[i]);
+        }
+    }
+}
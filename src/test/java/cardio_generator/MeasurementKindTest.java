@@ -0,0 +1,37 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.OutputStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeasurementKindTest {
+
+    @Test
+    void typedOutputFallsBackToTheTextForm() {
+        List<String> lines = new ArrayList<>();
+        OutputStrategy text = (patientId, timestamp, label, data) -> lines.add(label + "=" + data);
+
+        text.output(1, 0L, MeasurementKind.SATURATION, 97);
+        text.output(1, 0L, MeasurementKind.SYSTOLIC_PRESSURE, 120);
+        text.output(1, 0L, MeasurementKind.ALERT, 0);
+
+        assertEquals(List.of("Saturation=97.0%", "SystolicPressure=120.0", "Alert=resolved"), lines);
+    }
+
+    @Test
+    void parseIsTheInverseOfFormat() {
+        for (MeasurementKind kind : MeasurementKind.values()) {
+            double value = kind == MeasurementKind.ALERT ? 1 : 98.25;
+            assertEquals(value, kind.parse(kind.format(value)), kind.label());
+            assertSame(kind, MeasurementKind.fromLabel(kind.label()));
+        }
+        assertNull(MeasurementKind.fromLabel("HeartRate"));
+        assertThrows(NumberFormatException.class, () -> MeasurementKind.ALERT.parse("pressed"));
+    }
+}
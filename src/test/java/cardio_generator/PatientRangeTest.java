@@ -0,0 +1,38 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.generators.PatientRange;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientRangeTest {
+
+    @Test
+    void shardsAreDisjointAndCoverAllPatients() {
+        int patientCount = 103;
+        int shardCount = 4;
+        int expectedFirst = 1;
+        for (int i = 0; i < shardCount; i++) {
+            PatientRange shard = PatientRange.shard(patientCount, i, shardCount);
+            assertEquals(expectedFirst, shard.getFirstId());
+            assertTrue(shard.size() == 25 || shard.size() == 26);
+            expectedFirst = shard.getLastId() + 1;
+        }
+        assertEquals(patientCount + 1, expectedFirst);
+    }
+
+    @Test
+    void indexIsRelativeToTheFirstPatient() {
+        PatientRange range = new PatientRange(501, 600);
+        assertEquals(100, range.size());
+        assertEquals(0, range.indexOf(501));
+        assertEquals(99, range.indexOf(600));
+    }
+
+    @Test
+    void invalidShardIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PatientRange.shard(10, 4, 4));
+        assertThrows(IllegalArgumentException.class, () -> new PatientRange(5, 4));
+    }
+}
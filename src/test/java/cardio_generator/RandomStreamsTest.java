@@ -0,0 +1,75 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.PatientRange;
+import com.cardio_generator.generators.RandomStreams;
+import com.cardio_generator.generators.SampleBatch;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamsTest {
+
+    private static double[] ecgValues(long seed, int[] patientIds) {
+        ECGDataGenerator generator = new ECGDataGenerator(100, seed);
+        SampleBatch batch = new SampleBatch(patientIds.length);
+        batch.reset(1_000L);
+        generator.generate(patientIds, 0, patientIds.length, batch);
+        double[] values = new double[batch.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = batch.getValue(i);
+        }
+        return values;
+    }
+
+    @Test
+    void sameSeedReproducesTheSameValues() {
+        int[] ids = {1, 2, 3, 50, 100};
+        assertArrayEquals(ecgValues(7L, ids), ecgValues(7L, ids));
+        assertFalse(Arrays.equals(ecgValues(7L, ids), ecgValues(8L, ids)));
+    }
+
+    @Test
+    void patientValuesDoNotDependOnGenerationOrder() {
+        double[] forward = ecgValues(11L, new int[] {1, 2, 3});
+        double[] backward = ecgValues(11L, new int[] {3, 2, 1});
+        assertEquals(forward[0], backward[2]);
+        assertEquals(forward[2], backward[0]);
+    }
+
+    @Test
+    void streamsDifferPerPatientAndPerName() {
+        PatientRange patients = new PatientRange(1, 2);
+        SplittableRandom[] ecg = RandomStreams.forPatients(1L, "ECG", patients);
+        SplittableRandom[] alert = RandomStreams.forPatients(1L, "Alert", patients);
+        assertNotEquals(ecg[0].nextLong(), ecg[1].nextLong());
+        assertNotEquals(RandomStreams.forPatients(1L, "ECG", patients)[0].nextLong(), alert[0].nextLong());
+    }
+
+    @Test
+    void shardsReproduceTheValuesOfASingleProcess() {
+        SampleBatch whole = new SampleBatch(4);
+        SampleBatch shard = new SampleBatch(4);
+        new BloodPressureDataGenerator(100, 9L).generate(new int[] {77}, 0, 1, whole);
+        new BloodPressureDataGenerator(PatientRange.shard(100, 3, 4), 9L, SimulationClock.system())
+                .generate(new int[] {77}, 0, 1, shard);
+        assertEquals(whole.getValue(0), shard.getValue(0));
+        assertEquals(whole.getValue(1), shard.getValue(1));
+    }
+
+    @Test
+    void generatorsWithTheSameSeedStartFromTheSameBaseline() {
+        SampleBatch a = new SampleBatch(4);
+        SampleBatch b = new SampleBatch(4);
+        new BloodPressureDataGenerator(10, 3L).generate(new int[] {5}, 0, 1, a);
+        new BloodPressureDataGenerator(10, 3L).generate(new int[] {5}, 0, 1, b);
+        assertEquals(a.getValue(0), b.getValue(0));
+        assertEquals(a.getValue(1), b.getValue(1));
+    }
+}
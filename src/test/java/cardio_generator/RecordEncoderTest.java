@@ -0,0 +1,108 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.RecordEncoder;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordEncoderTest {
+
+    private static String decode(RecordEncoder encoder) {
+        return new String(encoder.bytes(), 0, encoder.length(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void encodesTheTextFormsOfTheOutputs() {
+        RecordEncoder csv = new RecordEncoder(RecordEncoder.Layout.CSV);
+        csv.encode(7, 1_000L, MeasurementKind.SATURATION, 97);
+        assertEquals("7,1000,Saturation,97.0%\n", decode(csv));
+
+        RecordEncoder message = new RecordEncoder(RecordEncoder.Layout.MESSAGE);
+        message.encode(7, 1_000L, MeasurementKind.ALERT, 1);
+        assertEquals("7,1000,Alert,triggered", decode(message));
+        assertEquals("7,1000,Alert,triggered", message.toString());
+
+        RecordEncoder labeled = new RecordEncoder(RecordEncoder.Layout.LABELED);
+        double value = 0.1 + 0.2;
+        labeled.encode(-3, Long.MAX_VALUE, MeasurementKind.ECG, value);
+        assertEquals(String.format("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", -3, Long.MAX_VALUE,
+                "ECG", Double.toString(value)), decode(labeled));
+
+        labeled.encode(1, 2L, "Note", "Blutdruck über 140");
+        assertEquals(String.format("Patient ID: 1, Timestamp: 2, Label: Note, Data: Blutdruck über 140%n"),
+                decode(labeled));
+    }
+
+    @Test
+    void typedValuesMatchTheFormatOfTheirKind() {
+        RecordEncoder encoder = new RecordEncoder(RecordEncoder.Layout.MESSAGE);
+        double[] values = {0, -0.0, 1e-7, 123456789.123, 1e21, Double.NaN, Double.MIN_VALUE};
+        for (MeasurementKind kind : MeasurementKind.values()) {
+            for (double value : values) {
+                encoder.encode(1, 2L, kind, value);
+                assertEquals("1,2," + kind.label() + "," + kind.format(value), decode(encoder));
+            }
+        }
+    }
+
+    @Test
+    void appendDoubleMatchesDoubleToString() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1_000_000; i++) {
+            double value;
+            switch (i % 4) {
+                case 0:
+                    value = (random.nextInt(2_000_000) - 1_000_000) / Math.pow(10, random.nextInt(10));
+                    break;
+                case 1:
+                    value = random.nextDouble() * Math.pow(10, random.nextInt(9) - 1);
+                    break;
+                case 2:
+                    value = Math.round(random.nextGaussian() * 1e6) / 1e3;
+                    break;
+                default:
+                    value = Double.longBitsToDouble(random.nextLong());
+                    break;
+            }
+            text.setLength(0);
+            assertEquals(Double.toString(value), RecordEncoder.appendDouble(text, value).toString());
+        }
+    }
+
+    @Test
+    void encodingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        RecordEncoder encoder = new RecordEncoder(RecordEncoder.Layout.LABELED);
+        int records = 200_000;
+        long checksum = 0;
+        for (int i = 0; i < records; i++) { // Warm up
+            checksum += encode(encoder, i);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < records; i++) {
+            checksum += encode(encoder, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(checksum > 0);
+        double perRecord = (double) allocated / (3 * records);
+        assertTrue(perRecord < 1, "Allocated " + perRecord + " bytes per record");
+    }
+
+    // Values with few decimals, which are written without allocating on any Java version
+    private static int encode(RecordEncoder encoder, int i) {
+        long timestamp = 1_700_000_000_000L + i;
+        return encoder.encode(i, timestamp, MeasurementKind.SATURATION, 90 + i % 10)
+                + encoder.encode(i, timestamp, MeasurementKind.CHOLESTEROL, (18_000 + i % 4000) / 100.0)
+                + encoder.encode(i, timestamp, "Alert", "triggered");
+    }
+}
@@ -0,0 +1,181 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.BackpressurePolicy;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.RingBufferOutputStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferOutputStrategyTest {
+
+    /** Records the patient ids it receives; optionally blocks until released. */
+    private static class RecordingOutput implements OutputStrategy {
+        final List<Integer> patientIds = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch release;
+        final CountDownLatch firstRecord = new CountDownLatch(1);
+        volatile boolean closed;
+
+        RecordingOutput(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            firstRecord.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            patientIds.add(patientId);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void blockPolicyDeliversEveryRecordOfEveryProducer() throws InterruptedException {
+        RecordingOutput output = new RecordingOutput(new CountDownLatch(0));
+        RingBufferOutputStrategy ringBuffer = new RingBufferOutputStrategy(output, 64, BackpressurePolicy.BLOCK);
+
+        int producers = 4;
+        int perProducer = 10_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    ringBuffer.output(producer * perProducer + i, i, MeasurementKind.ECG, i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        ringBuffer.close();
+
+        assertTrue(output.closed, "Closing should close the wrapped output");
+        assertEquals(producers * perProducer, output.patientIds.size());
+        assertEquals(0, ringBuffer.getDroppedCount());
+        // Records of a single producer keep their order
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int patientId : output.patientIds) {
+            int producer = patientId / perProducer;
+            assertTrue(patientId > last[producer]);
+            last[producer] = patientId;
+        }
+    }
+
+    @Test
+    void dropNewestKeepsTheBufferedRecords() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingOutput output = new RecordingOutput(release);
+        RingBufferOutputStrategy ringBuffer = new RingBufferOutputStrategy(output, 4, BackpressurePolicy.DROP_NEWEST);
+
+        ringBuffer.output(0, 0, "ECG", "0");
+        assertTrue(output.firstRecord.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            ringBuffer.output(i, 0, "ECG", "0");
+        }
+        assertEquals(4, ringBuffer.getQueueDepth());
+        assertEquals(6, ringBuffer.getDroppedCount());
+
+        release.countDown();
+        ringBuffer.close();
+        assertEquals(List.of(0, 1, 2, 3, 4), output.patientIds);
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestRecords() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingOutput output = new RecordingOutput(release);
+        RingBufferOutputStrategy ringBuffer = new RingBufferOutputStrategy(output, 4, BackpressurePolicy.DROP_OLDEST);
+
+        ringBuffer.output(0, 0, "ECG", "0");
+        assertTrue(output.firstRecord.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) {
+            ringBuffer.output(i, 0, "ECG", "0");
+        }
+        assertEquals(6, ringBuffer.getDroppedCount());
+
+        release.countDown();
+        ringBuffer.close();
+        assertEquals(List.of(0, 7, 8, 9, 10), output.patientIds);
+    }
+
+    @Test
+    void blocksAreCopiedWhenEnqueued() {
+        List<Double> samples = new ArrayList<>();
+        RingBufferOutputStrategy ringBuffer = new RingBufferOutputStrategy(new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+            }
+
+            @Override
+            public void outputBlock(int patientId, long startTimestamp, MeasurementKind kind, double[] block,
+                    int offset, int length, int sampleRateHz) {
+                for (int i = 0; i < length; i++) {
+                    samples.add(block[offset + i]);
+                }
+            }
+        }, 8, BackpressurePolicy.BLOCK);
+
+        double[] buffer = {1, 2, 3, 4};
+        ringBuffer.outputBlock(1, 0, MeasurementKind.ECG, buffer, 1, 2, 250);
+        buffer[1] = 99;
+        ringBuffer.close();
+
+        assertEquals(List.of(2.0, 3.0), samples);
+    }
+
+    @Test
+    void slotsReuseTheirBlockArraysForShorterAndLongerBlocks() {
+        List<List<Double>> blocks = Collections.synchronizedList(new ArrayList<>());
+        RingBufferOutputStrategy ringBuffer = new RingBufferOutputStrategy(new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, String label, String data) {
+            }
+
+            @Override
+            public void outputBlock(int patientId, long startTimestamp, MeasurementKind kind, double[] block,
+                    int offset, int length, int sampleRateHz) {
+                List<Double> samples = new ArrayList<>();
+                for (int i = 0; i < length; i++) {
+                    samples.add(block[offset + i]);
+                }
+                blocks.add(samples);
+            }
+        }, 2, BackpressurePolicy.BLOCK);
+
+        List<List<Double>> expected = new ArrayList<>();
+        for (int length : new int[] {5, 1, 3, 6, 2, 4, 7, 1}) { // Every slot sees longer and shorter blocks
+            double[] samples = new double[length];
+            List<Double> block = new ArrayList<>();
+            for (int i = 0; i < length; i++) {
+                samples[i] = length * 10 + i;
+                block.add(samples[i]);
+            }
+            expected.add(block);
+            ringBuffer.outputBlock(1, 0, MeasurementKind.ECG, samples, 0, length, 250);
+        }
+        ringBuffer.close();
+
+        assertEquals(expected, blocks);
+    }
+}
@@ -0,0 +1,74 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.generators.AlertGenerator;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.SampleBatch;
+import com.cardio_generator.outputs.MeasurementKind;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleBatchTest {
+
+    private static final int PATIENTS = 1_000;
+
+    private static int[] patientIds() {
+        int[] ids = new int[PATIENTS];
+        for (int i = 0; i < PATIENTS; i++) {
+            ids[i] = i + 1;
+        }
+        return ids;
+    }
+
+    @Test
+    void bloodPressureBatchProducesTwoSamplesPerPatient() {
+        SampleBatch batch = new SampleBatch(16);
+        batch.reset(42L);
+        new BloodPressureDataGenerator(PATIENTS).generate(patientIds(), 0, PATIENTS, batch);
+
+        assertEquals(2 * PATIENTS, batch.size());
+        for (int i = 0; i < batch.size(); i += 2) {
+            assertEquals(MeasurementKind.SYSTOLIC_PRESSURE, batch.getKind(i));
+            assertEquals(MeasurementKind.DIASTOLIC_PRESSURE, batch.getKind(i + 1));
+            assertEquals(batch.getPatientId(i), batch.getPatientId(i + 1));
+            assertTrue(batch.getValue(i) >= 90 && batch.getValue(i) <= 180);
+        }
+    }
+
+    @Test
+    void batchRespectsTheRequestedRange() {
+        SampleBatch batch = new SampleBatch(16);
+        batch.reset(0L);
+        new BloodLevelsDataGenerator(PATIENTS).generate(patientIds(), 10, 20, batch);
+        new ECGDataGenerator(PATIENTS).generate(patientIds(), 10, 20, batch);
+        new BloodSaturationDataGenerator(PATIENTS).generate(patientIds(), 10, 20, batch);
+
+        assertEquals(10 * 3 + 10 + 10, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            assertTrue(batch.getPatientId(i) >= 11 && batch.getPatientId(i) <= 20);
+        }
+    }
+
+    @Test
+    void drainWritesTextWithTheBatchTimestamp() {
+        SampleBatch batch = new SampleBatch(16);
+        batch.reset(1234L);
+        batch.add(7, MeasurementKind.SATURATION, 97);
+        batch.add(8, MeasurementKind.ALERT, 1);
+        new AlertGenerator(PATIENTS).generate(patientIds(), 0, 0, batch);
+
+        List<String> lines = new ArrayList<>();
+        batch.drainTo((patientId, timestamp, label, data) ->
+                lines.add(patientId + "," + timestamp + "," + label + "," + data));
+
+        assertEquals(List.of("7,1234,Saturation,97.0%", "8,1234,Alert,triggered"), lines);
+        assertEquals(0, batch.size(), "Draining should clear the batch");
+    }
+}
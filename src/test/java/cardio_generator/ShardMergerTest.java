@@ -0,0 +1,71 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.ShardMerger;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.TcpOutputStrategy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test_support.TestPorts.freeTcpPort;
+
+class ShardMergerTest {
+
+    /** Records the typed records it receives as "patientId,timestamp,label,value". */
+    private static class RecordingOutput implements OutputStrategy {
+        final List<String> records = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void output(int patientId, long timestamp, String label, String data) {
+            records.add(patientId + "," + timestamp + "," + label + "," + data);
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, MeasurementKind kind, double value) {
+            records.add(patientId + "," + timestamp + "," + kind.label() + "," + value);
+        }
+    }
+
+    @Test
+    void mergesTextAndFramedShards() throws Exception {
+        int textPort = freeTcpPort();
+        int framedPort = freeTcpPort();
+        TcpOutputStrategy textShard = new TcpOutputStrategy(textPort);
+        TcpOutputStrategy framedShard = new TcpOutputStrategy(framedPort, 1 << 20,
+                TcpOutputStrategy.SlowClientPolicy.DROP, TcpOutputStrategy.Format.FRAMED, 4096);
+        RecordingOutput merged = new RecordingOutput();
+        ShardMerger merger = new ShardMerger(merged);
+        merger.addShard("localhost", textPort);
+        merger.addShard("localhost", framedPort);
+        merger.start();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((textShard.getClientCount() == 0 || framedShard.getClientCount() == 0)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            textShard.output(1, 1_000L, MeasurementKind.SATURATION, 97);
+            framedShard.output(2, 2_000L, MeasurementKind.ECG, 0.25);
+            framedShard.output(2, 3_000L, "Saturation", "95.0%");
+            textShard.flush();
+            framedShard.flush();
+            while (merged.records.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            merger.stop();
+            textShard.close();
+            framedShard.close();
+        }
+
+        assertEquals(3, merged.records.size(), merged.records.toString());
+        assertTrue(merged.records.contains("1,1000,Saturation,97.0"));
+        assertTrue(merged.records.contains("2,2000,ECG,0.25"));
+        assertTrue(merged.records.contains("2,3000,Saturation,95.0"));
+    }
+}
@@ -0,0 +1,57 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.SubscriptionIndex;
+import com.cardio_generator.outputs.SubscriptionIndex.Topic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionIndexTest {
+
+    private static List<String> subscribers(SubscriptionIndex<String> index, int patientId, String label) {
+        List<String> result = new ArrayList<>();
+        int count = index.forEachSubscriber(patientId, label, result::add);
+        assertEquals(result.size(), count);
+        assertEquals(!result.isEmpty(), index.hasSubscribers(patientId, label));
+        return result;
+    }
+
+    @Test
+    void routesByPatientLabelAndWildcards() {
+        SubscriptionIndex<String> index = new SubscriptionIndex<>();
+        index.subscribe("bedside", new Topic(4, null));
+        index.subscribe("ecg-wall", new Topic(null, "ECG"));
+        index.subscribe("exact", new Topic(4, "Saturation"));
+        index.subscribe("everything", new Topic(null, null));
+
+        assertEquals(List.of("exact", "bedside", "everything"), subscribers(index, 4, "Saturation"));
+        assertEquals(List.of("bedside", "ecg-wall", "everything"), subscribers(index, 4, "ECG"));
+        assertEquals(List.of("ecg-wall", "everything"), subscribers(index, 5, "ECG"));
+        assertEquals(List.of("everything"), subscribers(index, 5, "Alert"));
+    }
+
+    @Test
+    void subscriberMatchingSeveralTopicsIsCalledOnce() {
+        SubscriptionIndex<String> index = new SubscriptionIndex<>();
+        index.subscribe("viewer", List.of(new Topic(1, null), new Topic(1, "ECG"), new Topic(null, "ECG")));
+
+        assertEquals(List.of("viewer"), subscribers(index, 1, "ECG"));
+    }
+
+    @Test
+    void unsubscribeRemovesCoveredTopics() {
+        SubscriptionIndex<String> index = new SubscriptionIndex<>();
+        index.subscribe("viewer", List.of(new Topic(1, "ECG"), new Topic(1, "Alert"), new Topic(2, "ECG")));
+
+        index.unsubscribe("viewer", new Topic(1, null));
+        assertTrue(subscribers(index, 1, "ECG").isEmpty());
+        assertEquals(List.of("viewer"), subscribers(index, 2, "ECG"));
+
+        index.remove("viewer");
+        assertTrue(index.isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.TcpOutputStrategy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test_support.TestPorts.freeTcpPort;
+
+class TcpOutputStrategyTest {
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Condition not met in time");
+    }
+
+    // Reads lines in the background and counts them
+    private static Thread reader(Socket socket, AtomicInteger lines, List<String> firstLines) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (lines.getAndIncrement() == 0) {
+                        firstLines.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                // Closed by the test
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void everyClientReceivesEveryRecord() throws Exception {
+        int port = freeTcpPort();
+        TcpOutputStrategy output = new TcpOutputStrategy(port);
+        List<Socket> sockets = new ArrayList<>();
+        List<AtomicInteger> counts = new ArrayList<>();
+        List<String> firstLines = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Socket socket = new Socket("localhost", port);
+                AtomicInteger count = new AtomicInteger();
+                sockets.add(socket);
+                counts.add(count);
+                reader(socket, count, firstLines);
+            }
+            await(() -> output.getClientCount() == 3);
+
+            for (int i = 0; i < 10_000; i++) {
+                output.output(i, 1_000L + i, MeasurementKind.SATURATION, 97);
+            }
+            for (AtomicInteger count : counts) {
+                await(() -> count.get() == 10_000);
+            }
+            assertEquals(0, output.getDroppedRecords());
+            synchronized (firstLines) {
+                assertTrue(firstLines.contains("0,1000,Saturation,97.0%"), firstLines.toString());
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            output.close();
+        }
+    }
+
+    @Test
+    void rejectsFramesLargerThanTheClientBuffer() throws Exception {
+        int port = freeTcpPort();
+        assertThrows(IllegalArgumentException.class, () -> new TcpOutputStrategy(port, 1 << 20,
+                TcpOutputStrategy.SlowClientPolicy.DROP, TcpOutputStrategy.Format.FRAMED, 2 << 20));
+    }
+
+    @Test
+    void slowClientIsDisconnectedWithoutHoldingUpOthers() throws Exception {
+        int port = freeTcpPort();
+        TcpOutputStrategy output = new TcpOutputStrategy(port, 64 * 1024, TcpOutputStrategy.SlowClientPolicy.DISCONNECT);
+        Socket slow = new Socket("localhost", port); // never reads
+        slow.setReceiveBufferSize(1024);
+        Socket fast = new Socket("localhost", port);
+        AtomicInteger received = new AtomicInteger();
+        reader(fast, received, new ArrayList<>());
+        try {
+            await(() -> output.getClientCount() == 2);
+
+            int records = 0;
+            while (output.getDisconnectedClients() == 0 && records < 5_000_000) {
+                output.output(1, records++, "ECG", "0.123456789");
+                if (records % 500 == 0) {
+                    Thread.sleep(1); // Let the fast client keep up
+                }
+            }
+            assertEquals(1, output.getDisconnectedClients());
+            await(() -> output.getClientCount() == 1);
+
+            int before = received.get();
+            for (int i = 0; i < 1_000; i++) {
+                output.output(2, i, "ECG", "0.5");
+                if (i % 100 == 0) {
+                    Thread.sleep(1);
+                }
+            }
+            await(() -> received.get() >= before + 1_000);
+        } finally {
+            slow.close();
+            fast.close();
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.clock.SimulationClock;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.SampleBatch;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.scheduling.FixedRateTaskScheduler;
+import com.cardio_generator.scheduling.PatientTaskScheduler;
+import com.cardio_generator.scheduling.VirtualThreadTaskScheduler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+class VirtualThreadTaskSchedulerTest {
+
+    private static final List<Integer> PATIENTS = Arrays.asList(1, 2, 3);
+
+    @Test
+    void generatesEveryPatientOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreadTaskScheduler.isSupported(), "Virtual threads require Java 21");
+        Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>();
+        Map<Thread, Boolean> threads = new ConcurrentHashMap<>();
+        PatientTaskScheduler scheduler = VirtualThreadTaskScheduler.createOrFallBack(recordingOutput(counts),
+                new Random(1), SimulationClock.system(), 4);
+        assertTrue(scheduler instanceof VirtualThreadTaskScheduler);
+        scheduler.schedule(new TickingGenerator(threads), PATIENTS, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(300);
+        scheduler.shutdown();
+
+        assertEveryPatientGenerated(counts);
+        for (Thread thread : threads.keySet()) {
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread),
+                    thread + " should be a virtual thread");
+        }
+    }
+
+    @Test
+    void fallsBackToPlatformThreadsWithoutVirtualThreads() throws Exception {
+        assumeFalse(VirtualThreadTaskScheduler.isSupported(), "Thread.ofVirtual is available");
+        assertThrows(UnsupportedOperationException.class,
+                () -> new VirtualThreadTaskScheduler((id, ts, label, data) -> { }, new Random(1),
+                        SimulationClock.system()));
+
+        Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>();
+        PatientTaskScheduler scheduler = VirtualThreadTaskScheduler.createOrFallBack(recordingOutput(counts),
+                new Random(1), SimulationClock.system(), 4);
+        assertTrue(scheduler instanceof FixedRateTaskScheduler);
+        scheduler.schedule(new TickingGenerator(new ConcurrentHashMap<>()), PATIENTS, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(300);
+        scheduler.shutdown();
+
+        assertEveryPatientGenerated(counts);
+    }
+
+    private static OutputStrategy recordingOutput(Map<Integer, AtomicInteger> counts) {
+        return (patientId, timestamp, label, data) ->
+                counts.computeIfAbsent(patientId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static void assertEveryPatientGenerated(Map<Integer, AtomicInteger> counts) {
+        for (int patientId : PATIENTS) {
+            AtomicInteger count = counts.get(patientId);
+            assertNotNull(count, "Patient " + patientId + " should have been generated");
+            assertTrue(count.get() >= 2, "Patient " + patientId + " should be generated repeatedly");
+        }
+    }
+
+    /** Writes one record per call and remembers the threads it ran on. */
+    private static class TickingGenerator implements PatientDataGenerator {
+        private final Map<Thread, Boolean> threads;
+
+        TickingGenerator(Map<Thread, Boolean> threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public void generate(int patientId, OutputStrategy outputStrategy) {
+            threads.put(Thread.currentThread(), Boolean.TRUE);
+            outputStrategy.output(patientId, System.currentTimeMillis(), "Tick", "1");
+        }
+
+        @Override
+        public void generate(int[] patientIds, int from, int to, SampleBatch batch) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
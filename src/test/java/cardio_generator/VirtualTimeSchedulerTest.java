@@ -0,0 +1,48 @@
+package cardio_generator;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.clock.VirtualClock;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.PatientRange;
+import com.cardio_generator.scheduling.VirtualTimeScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualTimeSchedulerTest {
+
+    @Test
+    void runsADayOfDataWithoutWaiting() throws InterruptedException {
+        long start = 1_000_000L;
+        VirtualClock clock = new VirtualClock(start);
+        List<Long> timestamps = Collections.synchronizedList(new ArrayList<>());
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler(
+                (patientId, timestamp, label, data) -> timestamps.add(timestamp), 2, new Random(3), clock);
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            ids.add(i);
+        }
+        scheduler.schedule(new BloodSaturationDataGenerator(new PatientRange(1, 10), 3L, clock), ids, 1, TimeUnit.MINUTES);
+
+        long wallStart = System.nanoTime();
+        scheduler.run(TimeUnit.DAYS.toMillis(1));
+        scheduler.shutdown();
+        assertTrue(System.nanoTime() - wallStart < TimeUnit.SECONDS.toNanos(10), "Virtual time should not wait");
+
+        // Every patient produces one sample per minute, minus the minutes of its initial delay
+        assertTrue(timestamps.size() > 10 * (24 * 60 - 5));
+        assertTrue(timestamps.size() <= 10 * 24 * 60);
+        for (long timestamp : timestamps) {
+            assertTrue(timestamp >= start && timestamp < start + TimeUnit.DAYS.toMillis(1));
+            assertEquals(0, (timestamp - start) % TimeUnit.MINUTES.toMillis(1));
+        }
+        assertEquals(start + TimeUnit.DAYS.toMillis(1) - TimeUnit.MINUTES.toMillis(1), clock.currentTimeMillis());
+    }
+}
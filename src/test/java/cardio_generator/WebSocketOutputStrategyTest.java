@@ -0,0 +1,170 @@
+package cardio_generator;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test_support.TestPorts.freeTcpPort;
+
+class WebSocketOutputStrategyTest {
+
+    /** Collects the received messages. */
+    private static class Client extends WebSocketClient {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final List<ByteBuffer> binaryMessages = new CopyOnWriteArrayList<>();
+
+        Client(int port) throws Exception {
+            super(new URI("ws://localhost:" + port));
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void onMessage(ByteBuffer message) {
+            binaryMessages.add(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+
+        void awaitMessages(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (messages.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(messages.size() >= count, "Expected " + count + " messages but got " + messages);
+        }
+    }
+
+    @Test
+    void subscribedClientsOnlyReceiveMatchingRecords() throws Exception {
+        int port = freeTcpPort();
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(port);
+        Client all = new Client(port);
+        Client bedside = new Client(port);
+        try {
+            Thread.sleep(200); // Let the server start
+            assertTrue(all.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(bedside.connectBlocking(5, TimeUnit.SECONDS));
+            bedside.send("subscribe 3-4 Saturation");
+            bedside.awaitMessages(1);
+            assertEquals("ok: 2 subscriptions", bedside.messages.get(0));
+
+            for (int patientId = 1; patientId <= 5; patientId++) {
+                output.output(patientId, 1_000L, MeasurementKind.SATURATION, 97);
+                output.output(patientId, 1_000L, "ECG", "0.5");
+            }
+
+            all.awaitMessages(10);
+            bedside.awaitMessages(3);
+            Thread.sleep(100);
+            assertEquals(List.of("ok: 2 subscriptions", "3,1000,Saturation,97.0%", "4,1000,Saturation,97.0%"),
+                    bedside.messages);
+
+            bedside.send("frobnicate");
+            bedside.awaitMessages(4);
+            assertTrue(bedside.messages.get(3).startsWith("error:"));
+
+            // Neither one command nor the sum of a client's commands may explode into millions of topics
+            bedside.send("subscribe 1-60000,1-60000 ECG");
+            bedside.send("subscribe 1-60000 ECG,Saturation");
+            bedside.send("subscribe 1-60000 ECG");
+            bedside.send("subscribe 1-60000 Saturation");
+            bedside.awaitMessages(8);
+            assertTrue(bedside.messages.get(4).startsWith("error:"));
+            assertTrue(bedside.messages.get(5).startsWith("error:"));
+            assertEquals("ok: 60002 subscriptions", bedside.messages.get(6));
+            assertTrue(bedside.messages.get(7).startsWith("error:"));
+        } finally {
+            all.closeBlocking();
+            bedside.closeBlocking();
+            output.close();
+        }
+    }
+
+    @Test
+    void binaryFormatSendsOneMessagePerTick() throws Exception {
+        int port = freeTcpPort();
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(port, WebSocketOutputStrategy.Format.BINARY);
+        Client first = new Client(port);
+        Client second = new Client(port);
+        try {
+            Thread.sleep(200); // Let the server start
+            assertTrue(first.connectBlocking(5, TimeUnit.SECONDS));
+            assertTrue(second.connectBlocking(5, TimeUnit.SECONDS));
+            for (Client client : new Client[] {first, second}) {
+                client.send("subscribe 1-2 ECG");
+                client.awaitMessages(1);
+            }
+
+            for (int patientId = 1; patientId <= 3; patientId++) {
+                output.output(patientId, 2_000L, MeasurementKind.ECG, 0.25);
+                output.output(patientId, 2_000L, MeasurementKind.SATURATION, 97);
+            }
+            output.flush();
+
+            for (Client client : new Client[] {first, second}) {
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (client.binaryMessages.isEmpty() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(1, client.binaryMessages.size());
+                ByteBuffer frame = client.binaryMessages.get(0);
+                assertEquals(2 * BinaryRecordFormat.RECORD_SIZE, frame.remaining());
+                assertEquals(1, frame.getInt());
+                assertEquals(2_000L, frame.getLong());
+                assertEquals(MeasurementKind.ECG, BinaryRecordFormat.kindOf(frame.getShort()));
+                assertEquals(0.25, frame.getDouble());
+                assertEquals(2, frame.getInt());
+            }
+        } finally {
+            first.closeBlocking();
+            second.closeBlocking();
+            output.close();
+        }
+    }
+
+    @Test
+    void jsonFormatSendsAnArrayPerTick() throws Exception {
+        int port = freeTcpPort();
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(port, WebSocketOutputStrategy.Format.JSON);
+        Client client = new Client(port);
+        try {
+            Thread.sleep(200); // Let the server start
+            assertTrue(client.connectBlocking(5, TimeUnit.SECONDS));
+            output.output(5, 3_000L, MeasurementKind.SATURATION, 96);
+            output.output(5, 3_000L, "Alert", "triggered");
+            output.flush();
+
+            client.awaitMessages(1);
+            assertEquals("[[5,3000,\"Saturation\",96.0],[5,3000,\"Alert\",\"triggered\"]]",
+                    client.messages.get(0));
+        } finally {
+            client.closeBlocking();
+            output.close();
+        }
+    }
+}
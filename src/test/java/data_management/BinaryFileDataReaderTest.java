@@ -0,0 +1,103 @@
+package data_management;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import com.cardio_generator.outputs.BinaryFileOutputStrategy;
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.data_management.BinaryFileDataReader;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFileDataReaderTest extends StorageTestBase {
+
+    @TempDir Path tempDir;
+
+    private static Patient patient(DataStorage storage, int patientId) {
+        return storage.getAllPatients().stream()
+                .filter(x -> x.getPatientId() == patientId).findFirst().orElse(null);
+    }
+
+    @Test
+    void readDataLoadsRecordsWrittenByTheBinaryOutput() throws IOException {
+        BinaryFileOutputStrategy output = new BinaryFileOutputStrategy(tempDir.toString());
+        output.output(9001, 1_000L, MeasurementKind.ECG, 0.25);
+        output.output(9001, 2_000L, MeasurementKind.SATURATION, 97);
+        output.output(9001, 3_000L, "Saturation", "95.0%"); // text records of known kinds are converted
+        output.output(9001, 4_000L, "Unknown", "x"); // and others skipped
+        output.close();
+
+        assertEquals(BinaryRecordFormat.HEADER_SIZE + 2 * BinaryRecordFormat.RECORD_SIZE,
+                Files.size(tempDir.resolve("Saturation.bin")));
+
+        DataStorage storage = DataStorage.getInstance();
+        new BinaryFileDataReader(tempDir.toString()).readData(storage);
+
+        Patient p = patient(storage, 9001);
+        assertNotNull(p, "Patient 9001 should exist");
+        List<PatientRecord> recs = p.getRecords(0, Long.MAX_VALUE);
+        assertEquals(3, recs.size());
+        assertTrue(recs.stream().anyMatch(r -> r.getRecordType().equals("ECG")
+                && r.getMeasurementValue() == 0.25 && r.getTimestamp() == 1_000L));
+        assertTrue(recs.stream().anyMatch(r -> r.getRecordType().equals("Saturation")
+                && r.getMeasurementValue() == 95.0 && r.getTimestamp() == 3_000L));
+    }
+
+    @Test
+    void partiallyWrittenRecordIsIgnored() throws IOException {
+        BinaryFileOutputStrategy output = new BinaryFileOutputStrategy(tempDir.toString());
+        output.output(9002, 1_000L, MeasurementKind.CHOLESTEROL, 190);
+        output.close();
+        Files.write(tempDir.resolve("Cholesterol.bin"), new byte[5], StandardOpenOption.APPEND);
+
+        DataStorage storage = DataStorage.getInstance();
+        new BinaryFileDataReader(tempDir.toString()).readData(storage);
+
+        assertEquals(1, patient(storage, 9002).getRecords(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void appendingCutsOffAPartialRecordFirst() throws IOException {
+        BinaryFileOutputStrategy output = new BinaryFileOutputStrategy(tempDir.toString());
+        output.output(9003, 1_000L, MeasurementKind.CHOLESTEROL, 190);
+        output.close();
+        Files.write(tempDir.resolve("Cholesterol.bin"), new byte[5], StandardOpenOption.APPEND); // A crash
+
+        output = new BinaryFileOutputStrategy(tempDir.toString());
+        output.output(9003, 2_000L, MeasurementKind.CHOLESTEROL, 200);
+        output.close();
+        assertEquals(BinaryRecordFormat.HEADER_SIZE + 2 * BinaryRecordFormat.RECORD_SIZE,
+                Files.size(tempDir.resolve("Cholesterol.bin")));
+
+        DataStorage storage = DataStorage.getInstance();
+        new BinaryFileDataReader(tempDir.toString()).readData(storage);
+        List<PatientRecord> recs = patient(storage, 9003).getRecords(0, Long.MAX_VALUE);
+        assertEquals(2, recs.size());
+        assertEquals(200.0, recs.get(1).getMeasurementValue());
+        assertEquals(2_000L, recs.get(1).getTimestamp());
+    }
+
+    @Test
+    void appendingLeavesForeignFilesAlone() throws IOException {
+        byte[] foreign = new byte[64];
+        Files.write(tempDir.resolve("ECG.bin"), foreign);
+        BinaryFileOutputStrategy output = new BinaryFileOutputStrategy(tempDir.toString());
+        output.output(9004, 1_000L, MeasurementKind.ECG, 0.5);
+        output.close();
+        assertArrayEquals(foreign, Files.readAllBytes(tempDir.resolve("ECG.bin")));
+    }
+
+    @Test
+    void rejectsFilesWithoutHeader() throws IOException {
+        Files.write(tempDir.resolve("ECG.bin"), new byte[64]);
+        assertThrows(IOException.class,
+                () -> new BinaryFileDataReader(tempDir.toString()).readData(DataStorage.getInstance()));
+    }
+}
@@ -15,7 +15,7 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-class DataStorageTest {
+class DataStorageTest extends StorageTestBase {
 
     private DataStorage storage;
 
@@ -53,4 +53,57 @@ class DataStorageTest {
         assertEquals(1, window.size());
         assertEquals(85.0, window.get(0).getMeasurementValue());
     }
+
+    @Test
+    void bulkAddGroupsRecordsByPatientInOrder() {
+        int[] patientIds = {9601, 9602, 9601, 9603, 9602, 9601, 0};
+        long[] timestamps = {1, 1, 2, 1, 2, 3, 0};
+        String[] recordTypes = {"ECG", "ECG", "Saturation", "ECG", "ECG", "ECG", null};
+        double[] values = {0.1, 0.2, 97.0, 0.3, 0.4, 0.5, 0};
+        storage.addPatientData(patientIds, timestamps, recordTypes, values, 0, 6);
+
+        List<PatientRecord> first = patientRecords(9601);
+        assertEquals(3, first.size());
+        assertEquals(List.of(1L, 2L, 3L), first.stream().map(PatientRecord::getTimestamp).toList());
+        assertEquals("Saturation", first.get(1).getRecordType());
+        assertEquals(List.of(0.2, 0.4), patientRecords(9602).stream()
+                .map(PatientRecord::getMeasurementValue).toList());
+        assertEquals(1, patientRecords(9603).size());
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> storage.addPatientData(patientIds, timestamps, recordTypes, values, 2, 6));
+    }
+
+    @Test
+    void bulkAddFromSeveralThreadsKeepsEveryRecord() throws InterruptedException {
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                int[] patientIds = new int[100];
+                long[] timestamps = new long[100];
+                String[] recordTypes = new String[100];
+                double[] values = new double[100];
+                for (int batch = 0; batch < 100; batch++) {
+                    for (int i = 0; i < 100; i++) {
+                        patientIds[i] = 9611 + i % 3;
+                        timestamps[i] = writer * 1_000_000L + batch * 100 + i;
+                        recordTypes[i] = "ECG";
+                    }
+                    storage.addPatientData(patientIds, timestamps, recordTypes, values, 0, 100);
+                }
+            });
+            writers[w].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(40_000, patientRecords(9611).size() + patientRecords(9612).size()
+                + patientRecords(9613).size());
+    }
+
+    private List<PatientRecord> patientRecords(int patientId) {
+        return storage.getAllPatients().stream()
+                .filter(x -> x.getPatientId() == patientId).findFirst().get()
+                .getRecords(0, Long.MAX_VALUE);
+    }
 }
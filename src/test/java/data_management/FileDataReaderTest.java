@@ -4,8 +4,19 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import com.cardio_generator.outputs.FileOutputOptions;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.MeasurementKind;
 import com.data_management.DataStorage;
 import com.data_management.FileDataReader;
 import com.data_management.Patient;
@@ -13,7 +24,7 @@ import com.data_management.PatientRecord;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-class FileDataReaderTest {
+class FileDataReaderTest extends StorageTestBase {
 
     @TempDir Path tempDir;
     private DataStorage storage;
@@ -46,4 +57,182 @@ class FileDataReaderTest {
         assertTrue(recs.stream().anyMatch(r -> r.getRecordType().equals("HeartRate")));
         assertTrue(recs.stream().anyMatch(r -> r.getRecordType().equals("SpO2")));
     }
+
+    @Test
+    void readDataSplitsLargeFilesIntoChunks() throws IOException {
+        // More than two chunks, with values in every form Double.toString produces
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>();
+        Map<Long, Double> expected = new HashMap<>();
+        long bytes = 0;
+        for (long timestamp = 0; bytes < 2L * FileDataReader.CHUNK_BYTES + 12_345; timestamp++) {
+            double value;
+            switch ((int) (timestamp % 4)) {
+                case 0: value = random.nextDouble(); break;
+                case 1: value = random.nextInt(200); break;
+                case 2: value = (random.nextInt(20_000) - 10_000) / 100.0; break;
+                default: value = random.nextGaussian() * 1e-9; break;
+            }
+            String line = (9301 + timestamp % 3) + "," + timestamp + ",ECG," + value;
+            lines.add(line);
+            expected.put(timestamp, value);
+            bytes += line.length() + 1;
+        }
+        Files.write(tempDir.resolve("large.csv"), lines);
+
+        new FileDataReader(tempDir.toString(), 4).readData(storage);
+
+        int found = 0;
+        for (Patient p : storage.getAllPatients()) {
+            if (p.getPatientId() < 9301 || p.getPatientId() > 9303) {
+                continue;
+            }
+            for (PatientRecord r : p.getRecords(0, Long.MAX_VALUE)) {
+                assertEquals(9301 + r.getTimestamp() % 3, r.getPatientId());
+                assertEquals(expected.get(r.getTimestamp()), r.getMeasurementValue(), 0.0);
+                assertEquals("ECG", r.getRecordType());
+                found++;
+            }
+        }
+        assertEquals(lines.size(), found);
+    }
+
+    @Test
+    void readDataAcceptsWindowsLineEndingsAndRejectsInvalidLines() throws IOException {
+        Files.write(tempDir.resolve("crlf.csv"), "9311,1,HeartRate,-0.5\r\n9311,2,HeartRate,1e3\r\n"
+                .getBytes(StandardCharsets.US_ASCII));
+        new FileDataReader(tempDir.toString(), 1).readData(storage);
+        Patient p = storage.getAllPatients().stream()
+                .filter(x -> x.getPatientId() == 9311).findFirst().orElse(null);
+        assertNotNull(p);
+        assertEquals(List.of(-0.5, 1000.0), p.getRecords(0, Long.MAX_VALUE).stream()
+                .map(PatientRecord::getMeasurementValue).collect(Collectors.toList()));
+
+        Files.write(tempDir.resolve("crlf.csv"), List.of("9312,1,HeartRate,abc"));
+        IOException e = assertThrows(IOException.class, () -> reader.readData(storage));
+        assertTrue(e.getMessage().contains("Invalid line"), e.getMessage());
+    }
+
+    @Test
+    void readDataReadsTheCompressedSegmentsOfTheFileOutput() throws IOException {
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.toString(), new FileOutputOptions()
+                .segmentBytes(500).compression(FileOutputOptions.Compression.GZIP));
+        for (int i = 0; i < 50; i++) {
+            output.output(9331, i, MeasurementKind.ECG, i / 10.0);
+            output.output(9331, i, MeasurementKind.SATURATION, 97);
+        }
+        output.output(9331, 50, "Alert", "triggered");
+        output.close();
+        assertTrue(Files.exists(tempDir.resolve("ECG-000002.txt.gz")));
+        assertFalse(Files.exists(tempDir.resolve("ECG-000001.txt")));
+
+        reader.readData(storage);
+
+        List<PatientRecord> records = patient(9331).getRecords(0, Long.MAX_VALUE);
+        assertEquals(101, records.size());
+        for (PatientRecord record : records) {
+            switch (record.getRecordType()) {
+                case "ECG": assertEquals(record.getTimestamp() / 10.0, record.getMeasurementValue(), 0.0); break;
+                case "Saturation": assertEquals(97.0, record.getMeasurementValue(), 0.0); break;
+                default: assertEquals("Alert", record.getRecordType()); break;
+            }
+        }
+    }
+
+    @Test
+    void followReadsAppendedLinesAndResumesFromTheCheckpoint() throws Exception {
+        Path file = tempDir.resolve("live.csv");
+        Path checkpoint = tempDir.resolve("offsets.properties");
+        Files.write(file, "9321,1,ECG,0.1\n9321,2,ECG,0.2\n9321,3,E".getBytes(StandardCharsets.US_ASCII));
+
+        FileDataReader follower = new FileDataReader(tempDir.toString(), 2);
+        Thread thread = follow(follower, checkpoint);
+        awaitRecords(9321, 2);
+        Files.write(file, "CG,0.3\n9321,4,ECG,0.4\n".getBytes(StandardCharsets.US_ASCII),
+                StandardOpenOption.APPEND);
+        awaitRecords(9321, 4);
+        follower.close();
+        thread.join(5_000);
+        assertFalse(thread.isAlive());
+
+        Properties offsets = new Properties();
+        try (Reader in = Files.newBufferedReader(checkpoint)) {
+            offsets.load(in);
+        }
+        assertEquals(Long.toString(Files.size(file)), offsets.getProperty("live.csv"));
+
+        // A new reader only reads what was appended after the checkpoint
+        Files.write(file, "9321,5,ECG,0.5\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        FileDataReader restarted = new FileDataReader(tempDir.toString(), 1);
+        thread = follow(restarted, checkpoint);
+        awaitRecords(9321, 5);
+        Thread.sleep(200);
+        restarted.close();
+        thread.join(5_000);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), patient(9321).getRecords(0, Long.MAX_VALUE).stream()
+                .map(PatientRecord::getTimestamp).collect(Collectors.toList()));
+    }
+
+    @Test
+    void followReadsTheSegmentsOfTheFileOutputWhileTheyAreCompressed() throws Exception {
+        Path checkpoint = tempDir.resolve("offsets.properties");
+        FileOutputStrategy output = new FileOutputStrategy(tempDir.toString(), new FileOutputOptions()
+                .flushIntervalMillis(20).segmentBytes(1_000).compression(FileOutputOptions.Compression.GZIP));
+        FileDataReader follower = new FileDataReader(tempDir.toString(), 2);
+        Thread thread = follow(follower, checkpoint);
+        try {
+            for (int i = 0; i < 10; i++) {
+                output.output(9341, i, MeasurementKind.ECG, i / 10.0);
+            }
+            output.flushAll();
+            awaitRecords(9341, 10);
+            // Rolls and compresses the segment the reader is in the middle of
+            for (int i = 10; i < 100; i++) {
+                output.output(9341, i, MeasurementKind.ECG, i / 10.0);
+            }
+        } finally {
+            output.close();
+        }
+        assertTrue(Files.exists(tempDir.resolve("ECG-000003.txt.gz")));
+        awaitRecords(9341, 100);
+        Thread.sleep(200);
+        follower.close();
+        thread.join(5_000);
+
+        List<PatientRecord> records = patient(9341).getRecords(0, Long.MAX_VALUE);
+        assertEquals(100, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i, records.get(i).getTimestamp());
+            assertEquals(i / 10.0, records.get(i).getMeasurementValue(), 0.0);
+        }
+    }
+
+    private Thread follow(FileDataReader follower, Path checkpoint) {
+        Thread thread = new Thread(() -> {
+            try {
+                follower.follow(storage, checkpoint, 50);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private Patient patient(int patientId) {
+        return storage.getAllPatients().stream()
+                .filter(x -> x.getPatientId() == patientId).findFirst().orElse(null);
+    }
+
+    private void awaitRecords(int patientId, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            Patient p = patient(patientId);
+            if (p != null && p.getRecords(0, Long.MAX_VALUE).size() >= count) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("Expected " + count + " records of patient " + patientId);
+    }
 }
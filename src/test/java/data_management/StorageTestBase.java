@@ -0,0 +1,19 @@
+package data_management;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+import com.data_management.DataStorage;
+
+/**
+ * Base class of the tests that store records in {@link DataStorage}. The storage is a singleton
+ * shared by all tests, so it is cleared before and after every test.
+ */
+abstract class StorageTestBase {
+
+    @BeforeEach
+    @AfterEach
+    void clearStorage() {
+        DataStorage.getInstance().clearAllData();
+    }
+}
@@ -0,0 +1,52 @@
+package data_management;
+
+import org.junit.jupiter.api.*;
+
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.TcpOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.TcpFrameDataReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test_support.TestPorts.freeTcpPort;
+
+class TcpFrameDataReaderTest extends StorageTestBase {
+
+    @Test
+    void readDataStoresFramedRecordsUntilTheServerCloses() throws Exception {
+        int port = freeTcpPort();
+        TcpOutputStrategy output = new TcpOutputStrategy(port, 1 << 20, TcpOutputStrategy.SlowClientPolicy.DROP,
+                TcpOutputStrategy.Format.FRAMED, 4096);
+        DataStorage storage = DataStorage.getInstance();
+        Thread reader = new Thread(() -> {
+            try {
+                new TcpFrameDataReader("localhost", port).readData(storage);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        reader.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (output.getClientCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            output.output(9101, i, MeasurementKind.ECG, i / 1000.0);
+        }
+        output.output(9102, 5L, "Saturation", "97.0%");
+        output.flush();
+        output.close();
+        reader.join(10_000);
+
+        Patient ecg = storage.getAllPatients().stream()
+                .filter(x -> x.getPatientId() == 9101).findFirst().orElse(null);
+        assertNotNull(ecg, "Patient 9101 should exist");
+        assertEquals(1_000, ecg.getRecords(0, Long.MAX_VALUE).size());
+        Patient saturation = storage.getAllPatients().stream()
+                .filter(x -> x.getPatientId() == 9102).findFirst().orElse(null);
+        assertNotNull(saturation, "Patient 9102 should exist");
+        assertEquals(97.0, saturation.getRecords(0, Long.MAX_VALUE).get(0).getMeasurementValue());
+    }
+}
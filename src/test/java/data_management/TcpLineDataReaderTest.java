@@ -0,0 +1,107 @@
+package data_management;
+
+import org.junit.jupiter.api.*;
+
+import java.net.InetSocketAddress;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.TcpOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+import com.data_management.TcpLineDataReader;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test_support.TestPorts.freeTcpPort;
+
+class TcpLineDataReaderTest extends StorageTestBase {
+
+    private static List<PatientRecord> recordsOf(DataStorage storage, int patientId) {
+        Patient patient = storage.getAllPatients().stream()
+                .filter(x -> x.getPatientId() == patientId).findFirst().orElse(null);
+        assertNotNull(patient, "Patient " + patientId + " should exist");
+        return patient.getRecords(0, Long.MAX_VALUE);
+    }
+
+    @Test
+    void readDataStoresTheLinesOfAllShardsUntilTheyClose() throws Exception {
+        int firstPort = freeTcpPort();
+        int secondPort = freeTcpPort();
+        TcpOutputStrategy first = new TcpOutputStrategy(firstPort);
+        TcpOutputStrategy second = new TcpOutputStrategy(secondPort);
+        int unreachable = freeTcpPort();
+        TcpLineDataReader reader = new TcpLineDataReader(
+                new InetSocketAddress("localhost", firstPort),
+                new InetSocketAddress("localhost", secondPort),
+                new InetSocketAddress("localhost", unreachable));
+        DataStorage storage = DataStorage.getInstance();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                reader.readData(storage);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ((first.getClientCount() == 0 || second.getClientCount() == 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            first.output(9501, i, MeasurementKind.ECG, i / 1000.0);
+            second.output(9502, i, MeasurementKind.CHOLESTEROL, 180 + i % 40);
+        }
+        second.output(9502, 20_000L, "Saturation", "97.0%");
+        second.output(9502, 20_001L, "Alert", "triggered");
+        first.output(9501, 20_000L, "HeartRate", "not a number");
+        for (int i = 0; i < 100; i++) {
+            first.output(9503, i, "Custom" + i, "1.5"); // More types than the parser remembers
+        }
+        first.close();
+        second.close();
+        thread.join(10_000);
+
+        assertFalse(thread.isAlive(), "The reader should stop when all shards have closed");
+        assertNull(failure.get());
+        assertEquals(20_102, reader.getRecordCount());
+        assertEquals(1, reader.getSkippedLines());
+        assertEquals(0, reader.getOpenConnections());
+        List<PatientRecord> ecg = recordsOf(storage, 9501);
+        assertEquals(10_000, ecg.size());
+        assertEquals(9.999, ecg.get(9_999).getMeasurementValue());
+        List<PatientRecord> vitals = recordsOf(storage, 9502);
+        assertEquals(10_002, vitals.size());
+        assertEquals(97.0, vitals.get(10_000).getMeasurementValue());
+        assertEquals(1.0, vitals.get(10_001).getMeasurementValue());
+        List<PatientRecord> custom = recordsOf(storage, 9503);
+        assertEquals(100, custom.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Custom" + i, custom.get(i).getRecordType());
+        }
+    }
+
+    @Test
+    void closeStopsAWaitingReader() throws Exception {
+        int port = freeTcpPort();
+        TcpOutputStrategy output = new TcpOutputStrategy(port);
+        TcpLineDataReader reader = new TcpLineDataReader(new InetSocketAddress("localhost", port));
+        Thread thread = new Thread(() -> {
+            try {
+                reader.readData(DataStorage.getInstance());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+        reader.close();
+        thread.join(5_000);
+        output.close();
+        assertFalse(thread.isAlive());
+    }
+}
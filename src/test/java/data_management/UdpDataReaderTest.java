@@ -0,0 +1,188 @@
+package data_management;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.BinaryRecordFormat;
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.UdpOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+import com.data_management.UdpDataReader;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test_support.TestPorts.freeUdpPort;
+
+class UdpDataReaderTest extends StorageTestBase {
+
+    // Runs the reader in the background
+    private static Thread startReader(UdpDataReader reader, AtomicReference<Exception> failure) {
+        Thread thread = new Thread(() -> {
+            try {
+                reader.readData(DataStorage.getInstance());
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void readsRecordsSentToAMulticastGroup() throws Exception {
+        int port = freeUdpPort();
+        UdpDataReader reader = new UdpDataReader("239.255.17.20", port, null);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread thread = startReader(reader, failure);
+        Thread.sleep(200); // Let the reader join the group
+
+        UdpOutputStrategy output = new UdpOutputStrategy("239.255.17.20", port, null);
+        for (int i = 0; i < 100; i++) {
+            output.output(9201, 1_000L + i, MeasurementKind.ECG, i / 100.0);
+        }
+        output.output(9201, 5_000L, "Saturation", "97.0%");
+        output.close();
+        thread.join(5_000);
+        reader.close();
+
+        assertNull(failure.get());
+        assertFalse(thread.isAlive(), "The reader should stop at the end of the stream");
+        assertEquals(101, reader.getRecordCount());
+        assertEquals(0, reader.getLostDatagrams());
+        assertEquals(output.getSentDatagrams(), reader.getReceivedDatagrams());
+        Patient patient = DataStorage.getInstance().getAllPatients().stream()
+                .filter(p -> p.getPatientId() == 9201).findFirst().orElse(null);
+        assertNotNull(patient);
+        List<PatientRecord> records = patient.getRecords(0, Long.MAX_VALUE);
+        assertEquals(101, records.size());
+    }
+
+    @Test
+    void countsLostAndReorderedDatagrams() throws Exception {
+        int port = freeUdpPort();
+        UdpDataReader reader = new UdpDataReader("127.0.0.1", port, null);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread thread = startReader(reader, failure);
+        Thread.sleep(200);
+
+        try (DatagramChannel sender = DatagramChannel.open()) {
+            InetSocketAddress target = new InetSocketAddress("127.0.0.1", port);
+            for (long sequence : new long[] {0, 3, 1, 4}) { // 2 never arrives, 1 arrives late
+                sender.send(datagram(sequence, 9202, sequence), target);
+            }
+            sender.send(datagram(5, 0, 0), target); // End of stream
+        }
+        thread.join(5_000);
+        reader.close();
+
+        assertNull(failure.get());
+        assertEquals(5, reader.getReceivedDatagrams());
+        assertEquals(1, reader.getLostDatagrams());
+        assertEquals(1, reader.getReorderedDatagrams());
+        assertEquals(4, reader.getRecordCount());
+    }
+
+    @Test
+    void aReaderJoiningLateOnlyCountsTheGapsItSees() throws Exception {
+        UdpDataReader reader = sendToReader(new long[] {1000, 1001, 1003, 999});
+        assertEquals(1, reader.getLostDatagrams()); // 1002; 999 was sent before the reader joined
+        assertEquals(1, reader.getReorderedDatagrams());
+        assertEquals(4, reader.getRecordCount());
+    }
+
+    @Test
+    void dropsDuplicatedDatagrams() throws Exception {
+        UdpDataReader reader = sendToReader(new long[] {0, 1, 1, 3, 2, 2, 0});
+        assertEquals(0, reader.getLostDatagrams());
+        assertEquals(1, reader.getReorderedDatagrams());
+        assertEquals(3, reader.getDuplicateDatagrams());
+        assertEquals(4, reader.getRecordCount());
+        Patient patient = DataStorage.getInstance().getAllPatients().stream()
+                .filter(p -> p.getPatientId() == 9203).findFirst().orElse(null);
+        assertEquals(4, patient.getRecords(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void skipsInvalidDatagrams() throws Exception {
+        int port = freeUdpPort();
+        UdpDataReader reader = new UdpDataReader("127.0.0.1", port, null);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread thread = startReader(reader, failure);
+        Thread.sleep(200);
+
+        try (DatagramChannel sender = DatagramChannel.open()) {
+            InetSocketAddress target = new InetSocketAddress("127.0.0.1", port);
+            ByteBuffer truncated = datagram(0, 9204, 1);
+            truncated.limit(truncated.limit() - 1);
+            sender.send(truncated, target);
+            ByteBuffer unknownKind = datagram(0, 9204, 1);
+            unknownKind.putShort(UdpOutputStrategy.DATAGRAM_HEADER_SIZE + 12, (short) 999);
+            sender.send(unknownKind, target);
+            sender.send(ByteBuffer.wrap("hello".getBytes()), target);
+            sender.send(datagram(0, 9204, 1), target);
+            sender.send(datagram(1, 0, 0), target);
+        }
+        thread.join(5_000);
+        reader.close();
+
+        assertNull(failure.get());
+        assertFalse(thread.isAlive());
+        assertEquals(3, reader.getInvalidDatagrams());
+        assertEquals(1, reader.getRecordCount());
+        assertEquals(0, reader.getLostDatagrams());
+    }
+
+    @Test
+    void closeStopsAWaitingReader() throws Exception {
+        UdpDataReader reader = new UdpDataReader("127.0.0.1", freeUdpPort(), null);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread thread = startReader(reader, failure);
+        Thread.sleep(200);
+        reader.close();
+        thread.join(5_000);
+        assertFalse(thread.isAlive());
+        assertNull(failure.get());
+    }
+
+    // Sends one record of patient 9203 per sequence, then the end of stream, and waits for the reader
+    private static UdpDataReader sendToReader(long[] sequences) throws Exception {
+        int port = freeUdpPort();
+        UdpDataReader reader = new UdpDataReader("127.0.0.1", port, null);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread thread = startReader(reader, failure);
+        Thread.sleep(200);
+        long last = 0;
+        try (DatagramChannel sender = DatagramChannel.open()) {
+            InetSocketAddress target = new InetSocketAddress("127.0.0.1", port);
+            for (long sequence : sequences) {
+                sender.send(datagram(sequence, 9203, sequence), target);
+                last = Math.max(last, sequence);
+            }
+            sender.send(datagram(last + 1, 0, 0), target);
+        }
+        thread.join(5_000);
+        reader.close();
+        assertNull(failure.get());
+        assertFalse(thread.isAlive());
+        return reader;
+    }
+
+    // A datagram of session 7 with one record of the patient, or none for patient 0
+    private static ByteBuffer datagram(long sequence, int patientId, long timestamp) {
+        int records = patientId == 0 ? 0 : 1;
+        ByteBuffer datagram = ByteBuffer.allocate(UdpOutputStrategy.DATAGRAM_HEADER_SIZE
+                + records * BinaryRecordFormat.RECORD_SIZE);
+        datagram.putInt(UdpOutputStrategy.DATAGRAM_MAGIC).putInt(7).putLong(sequence).putShort((short) records);
+        if (records > 0) {
+            BinaryRecordFormat.writeRecord(datagram, patientId, timestamp, MeasurementKind.ECG, 0.5);
+        }
+        datagram.flip();
+        return datagram;
+    }
+}
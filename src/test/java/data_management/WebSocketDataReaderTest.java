@@ -0,0 +1,98 @@
+package data_management;
+
+import org.junit.jupiter.api.Test;
+
+import com.cardio_generator.outputs.MeasurementKind;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.PatientRecord;
+import com.data_management.WebSocketDataReader;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test_support.TestPorts.freeTcpPort;
+
+class WebSocketDataReaderTest extends StorageTestBase {
+
+    private static Thread startReader(WebSocketDataReader reader) {
+        Thread thread = new Thread(() -> reader.readData(DataStorage.getInstance()));
+        thread.start();
+        return thread;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<PatientRecord> recordsOf(int patientId) {
+        Patient patient = DataStorage.getInstance().getAllPatients().stream()
+                .filter(p -> p.getPatientId() == patientId).findFirst().orElse(null);
+        return patient == null ? Collections.emptyList() : patient.getRecords(0, Long.MAX_VALUE);
+    }
+
+    @Test
+    void readsEveryMessageFormat() throws Exception {
+        for (WebSocketOutputStrategy.Format format : WebSocketOutputStrategy.Format.values()) {
+            int patientId = 9401 + format.ordinal();
+            int port = freeTcpPort();
+            WebSocketOutputStrategy output = new WebSocketOutputStrategy(port, format);
+            WebSocketDataReader reader = new WebSocketDataReader("ws://localhost:" + port);
+            Thread thread = startReader(reader);
+            await(() -> reader.getConnectionCount() == 1);
+            Thread.sleep(100); // Let the server register the client
+
+            for (int i = 0; i < 500; i++) {
+                output.output(patientId, 1_000L + i, MeasurementKind.ECG, i / 100.0);
+            }
+            output.output(patientId, 5_000L, "Saturation", "97.0%");
+            output.flush();
+            await(() -> reader.getRecordCount() == 501);
+            reader.close();
+            thread.join(5_000);
+            output.close();
+
+            assertFalse(thread.isAlive(), format + ": close() should stop the reader");
+            assertEquals(501, reader.getRecordCount(), format.name());
+            assertEquals(0, reader.getSkippedCount(), format.name());
+            List<PatientRecord> records = recordsOf(patientId);
+            assertEquals(501, records.size(), format.name());
+            PatientRecord saturation = records.stream()
+                    .filter(r -> r.getRecordType().equals("Saturation")).findFirst().orElse(null);
+            assertNotNull(saturation, format.name());
+            assertEquals(97.0, saturation.getMeasurementValue(), 1e-9);
+            assertTrue(reader.getLagMillis() >= 0);
+        }
+    }
+
+    @Test
+    void keepsTryingUntilTheServerIsUp() throws Exception {
+        int port = freeTcpPort();
+        WebSocketDataReader reader = new WebSocketDataReader("ws://localhost:" + port, "subscribe 9411");
+        Thread thread = startReader(reader);
+        Thread.sleep(300); // A few refused connects
+
+        WebSocketOutputStrategy output = new WebSocketOutputStrategy(port);
+        await(() -> reader.getConnectionCount() == 1);
+        Thread.sleep(200); // Let the subscription arrive
+        output.output(9411, 1_000L, MeasurementKind.ECG, 0.5);
+        output.output(9412, 1_000L, MeasurementKind.ECG, 0.5); // Not subscribed
+        output.output(9411, 1_001L, MeasurementKind.ECG, 0.25);
+        await(() -> reader.getRecordCount() == 2);
+        reader.close();
+        thread.join(5_000);
+        output.close();
+
+        assertFalse(thread.isAlive());
+        assertEquals(1, reader.getConnectionCount());
+        assertEquals(2, reader.getMessageCount());
+        assertEquals(2, recordsOf(9411).size());
+        assertTrue(recordsOf(9412).isEmpty());
+    }
+}
@@ -0,0 +1,35 @@
+package test_support;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+
+/**
+ * Finds ports the network tests can listen on. The port is free when it is returned; another
+ * process could take it before the test binds it, which is unlikely enough for tests.
+ */
+public final class TestPorts {
+
+    private TestPorts() {
+    }
+
+    /**
+     * @return a TCP port no socket is bound to
+     * @throws IOException if no port can be bound
+     */
+    public static int freeTcpPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * @return a UDP port no socket is bound to
+     * @throws IOException if no port can be bound
+     */
+    public static int freeUdpPort() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}